@@ -0,0 +1,47 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+/**
+ * A row of the Book table. pubYear and numPages are null when NULL.
+ */
+public final class Book {
+
+    public Book(String isbn, String title, Integer pubYear, Integer numPages, String pubName) {
+        this.isbn = isbn;
+        this.title = title;
+        this.pubYear = pubYear;
+        this.numPages = numPages;
+        this.pubName = pubName;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Integer getPubYear() {
+        return pubYear;
+    }
+
+    public Integer getNumPages() {
+        return numPages;
+    }
+
+    public String getPubName() {
+        return pubName;
+    }
+
+
+    private final String isbn;
+    private final String title;
+    private final Integer pubYear;
+    private final Integer numPages;
+    private final String pubName;
+}
@@ -0,0 +1,90 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The operations of bookFrame, without the frame. Form values are passed
+ * as the text the user typed.
+ */
+public class BookModel extends RecordModel<Book> {
+
+    public BookModel() {
+        this(new BookRepository());
+    }
+
+    private BookModel(BookRepository books) {
+        super(ChangeEvent.Entity.BOOK, books);
+        this.books = books;
+    }
+
+    public static Book parse(String isbn, String title, String year, String pages, String publisher) {
+        return new Book(isbn, title, Integer.parseInt(year.trim()), Integer.parseInt(pages.trim()), publisher);
+    }
+
+    public void insert(Connection con, String isbn, String title, String year, String pages, String publisher) throws SQLException {
+        Book book = parse(isbn.trim(), title, year, pages, publisher);
+        books.insert(con, book);
+        inserted(con, book.getIsbn());
+    }
+
+    /**
+     * Overwrites the book on show, whose ISBN may change; returns it as stored.
+     */
+    public Book update(Connection con, String isbn, String title, String year, String pages, String publisher) throws SQLException {
+        Book book = parse(isbn, title, year, pages, publisher);
+        books.update(con, (String) currentKey(), book);
+        return updated(con, book.getIsbn());
+    }
+
+    /**
+     * Deletes the book and returns the record to show in its place.
+     */
+    public Book delete(Connection con, String isbn) throws SQLException {
+        books.delete(con, isbn);
+        return deleted(con, isbn);
+    }
+
+    @Override
+    public String errorMessage(Action action, Exception ex) {
+        String text = ex.toString();
+        if (action == Action.DELETE) {
+            return text.contains("delete") ? "Το βιβλίο είναι δανεισμένο από κάποιο μέλος.\n Δεν μπορεί να διαγραφεί!" : text;
+        }
+        // An empty number field on insert is reported as unfilled, below
+        boolean unfilled = action == Action.INSERT && isEmptyField(ex);
+        if ((ex instanceof NumberFormatException && !unfilled) || isWrongType(ex)) {
+            return WRONG_TYPE;
+        }
+        if (action == Action.UPDATE && text.contains("ON UPDATE CASCADE")) {
+            return "Σφάλμα! Το βιβλίο αυτό είναι δανεισμένο";
+        }
+        if (text.contains("duplicate")) {
+            return "Σφάλμα! Το βιβλίο με αυτό το ISBN ήδη υπάρχει";
+        }
+        if (text.contains("ISBN length")) {
+            return "Σφάλμα! Το μήκος του ISBN δεν είναι 13 χαρακτήρες";
+        }
+        if (text.contains("correct format")) {
+            return "Σφάλμα! H σωστή μορφή του ISBN είναι: ###-###-###-#";
+        }
+        if (text.contains("Error! Year")) {
+            return "Σφάλμα! Το έτος πρέπει να είναι από το έτος ίδρυσης του εκδοτικού οίκου μέχρι το τρέχον";
+        }
+        if (text.contains("Error! Pages")) {
+            return "Σφάλμα! Οι σελίδες πρέπει να είναι θετικός αριθμός";
+        }
+        if (unfilled) {
+            return EMPTY_FIELDS;
+        }
+        return text;
+    }
+
+
+    private final BookRepository books;
+}
@@ -0,0 +1,193 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * The operations of bookPositionFrame, without the frame: stepping through
+ * every copy with its shelf, and moving all copies of a title to another
+ * shelf. The copies are read once, and read again after a move, which
+ * starts the stepping over from the first copy. Writes made through other
+ * frames are folded in by apply, which re-reads only the copies affected.
+ *
+ * Not thread safe; the frame drives it from its DbExecutor.
+ */
+public class BookPositionModel {
+
+    /**
+     * Moves to the first copy, or returns null if there are none.
+     */
+    public Copy first(Connection con) throws SQLException {
+        fetch(con);
+        index = 0;
+        return show();
+    }
+
+    /**
+     * Moves to the following copy; null, staying put, at the end.
+     */
+    public Copy next(Connection con) throws SQLException {
+        fetch(con);
+        if (index + 1 >= positions.size()) {
+            return null;
+        }
+        index++;
+        return show();
+    }
+
+    /**
+     * Moves to the preceding copy; null, staying put, at the start.
+     */
+    public Copy previous(Connection con) throws SQLException {
+        fetch(con);
+        if (index <= 0) {
+            return null;
+        }
+        index--;
+        return show();
+    }
+
+    /**
+     * The copy last shown; null before any.
+     */
+    public Copy getCurrent() {
+        return current;
+    }
+
+    /**
+     * Moves every copy of the title on show to shelf, the text the user typed.
+     */
+    public void moveTitle(Connection con, String shelf) throws SQLException {
+        try {
+            String title = current == null ? null : current.getTitle();
+            copies.moveTitle(con, title, Integer.parseInt(shelf.trim()));
+            Set<String> isbns = new LinkedHashSet<>();
+            for (Copy copy : positions) {
+                if (copy.getTitle().equals(title)) {
+                    isbns.add(copy.getIsbn());
+                }
+            }
+            for (String isbn : isbns) {
+                ChangeBus.getInstance().publish(new ChangeEvent(this, ChangeEvent.Entity.COPY, ChangeEvent.Operation.UPDATE, isbn));
+            }
+        } finally {
+            positions = null;
+        }
+    }
+
+    /**
+     * Folds in a write made elsewhere to a book or its copies (both events
+     * are keyed by ISBN): that book's copies are read again and replace
+     * their old entries at their place in ISBN order, keeping the copy on
+     * show. Returns that copy if it was among them, otherwise null.
+     */
+    public Copy apply(Connection con, ChangeEvent event) throws SQLException {
+        if (positions == null || event.getSource() == this) {
+            return null;
+        }
+        if (event.getOperation() == ChangeEvent.Operation.RELOAD) {
+            return reload(con);
+        }
+        String oldIsbn = event.getOldKey().toString();
+        Predicate<Copy> affected = copy -> oldIsbn.equals(copy.getIsbn());
+        List<Copy> fresh = event.getEntity() == ChangeEvent.Entity.BOOK && event.getOperation() == ChangeEvent.Operation.DELETE
+                ? new ArrayList<>() : copies.positionsOfBook(con, event.getKey().toString());
+
+        List<Copy> patched = new ArrayList<>(positions.size() + fresh.size());
+        for (Copy copy : positions) {
+            if (!affected.test(copy)) {
+                patched.add(copy);
+            }
+        }
+        // The fresh copies go where COPY_POSITIONS would put their ISBN, which a rename may have moved
+        if (!fresh.isEmpty()) {
+            String isbn = fresh.get(0).getIsbn();
+            int at = 0;
+            while (at < patched.size() && patched.get(at).getIsbn().compareTo(isbn) < 0) {
+                at++;
+            }
+            patched.addAll(at, fresh);
+        }
+        positions = patched;
+
+        Copy shown = current;
+        if (shown == null) {
+            return null;
+        }
+        boolean hit = affected.test(shown);
+        String isbn = hit ? event.getKey().toString() : shown.getIsbn();
+        for (int i = 0; i < positions.size(); i++) {
+            Copy copy = positions.get(i);
+            if (copy.getIsbn().equals(isbn) && copy.getCopyNr() == shown.getCopyNr()) {
+                index = i;
+                current = copy;
+                return hit ? copy : null;
+            }
+        }
+        // The copy on show is gone: step onto whatever took its place
+        index = Math.min(index, positions.size()) - 1;
+        return hit ? next(con) : null;
+    }
+
+    /**
+     * Returns the message the frame shows when moveTitle failed with ex.
+     */
+    public String errorMessage(Exception ex) {
+        String text = ex.toString();
+        if (ex instanceof NumberFormatException || text.contains("field")) {
+            return RecordModel.WRONG_TYPE;
+        }
+        if (text.contains("Error! Copy")) {
+            return "Σφάλμα! Ο αριθμός του ραφιού πρέπει να είναι θετικός αριθμός.";
+        }
+        return text;
+    }
+
+    // Reads every copy again after a bulk load, staying on the copy on show if it is still there
+    private Copy reload(Connection con) throws SQLException {
+        Copy shown = current;
+        positions = null;
+        fetch(con);
+        if (shown != null) {
+            for (int i = 0; i < positions.size(); i++) {
+                Copy copy = positions.get(i);
+                if (copy.getIsbn().equals(shown.getIsbn()) && copy.getCopyNr() == shown.getCopyNr()) {
+                    index = i;
+                    return show();
+                }
+            }
+        }
+        return first(con);
+    }
+
+    private void fetch(Connection con) throws SQLException {
+        if (positions == null) {
+            positions = copies.positions(con);
+            index = -1;
+        }
+    }
+
+    private Copy show() {
+        if (index >= 0 && index < positions.size()) {
+            current = positions.get(index);
+            return current;
+        }
+        return null;
+    }
+
+
+    private final CopyRepository copies = new CopyRepository();
+    private List<Copy> positions = null;
+    private int index = -1;
+    private Copy current = null;
+}
@@ -5,10 +5,14 @@
  */
 package my.libraryui;
 
-import java.sql.ResultSet;
-import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.DefaultComboBoxModel;
 import javax.swing.JOptionPane;
-import net.proteanit.sql.DbUtils;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.JTextComponent;
 
 public class BookPositionQuery extends javax.swing.JFrame {
 
@@ -21,31 +25,80 @@ public class BookPositionQuery extends javax.swing.JFrame {
         initComponents();
         this.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
         this.setLocationRelativeTo(null); // Align window on screen center
-        
+        db_exec = new DbExecutor(this, db_con);
+
+        // Type-ahead: each keystroke looks the text up in the shared TitleIndex
+        bookBox.setEditable(true);
+        titleEditor = (JTextComponent) bookBox.getEditor().getEditorComponent();
+        titleEditor.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                typed();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                typed();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        db_exec.submit(() -> ReferenceData.getInstance().loadTitles(db_con.connection), index -> showMatches(),
+                ex -> JOptionPane.showMessageDialog(null, ex));
+    }
+
+    // The document may not be changed from its own listener, so the lookup runs just after
+    private void typed() {
+        if (!filling) {
+            SwingUtilities.invokeLater(this::showMatches);
+        }
+    }
+
+    // Fills the drop-down with the titles starting with the text typed, keeping the text as it is
+    private void showMatches() {
+        TitleIndex index = ReferenceData.getInstance().titles();
+        if (index == null) {
+            return;
+        }
+        String text = titleEditor.getText();
+        int caret = titleEditor.getCaretPosition();
+        List<TitleIndex.Match> found = index.find(text, TitleIndex.DEFAULT_LIMIT);
+
+        filling = true;
         try {
-            try {
-                Statement bookStmt = db_con.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-                String query = "select title from Book";
-                ResultSet bookSet = bookStmt.executeQuery(query);
-                
-                while (bookSet.next()){
-                    bookBox.addItem(bookSet.getString("title"));
-                }
-                
-            } catch (Exception ex) {
-
-                try {
-                    if (db_con.connection != null) {
-                        db_con.closeCon();
-                    }
-                } catch (Exception x) {
+            DefaultComboBoxModel<String> items = new DefaultComboBoxModel<>();
+            for (TitleIndex.Match match : found) {
+                items.addElement(match.toString());
+            }
+            items.setSelectedItem(text);
+            bookBox.setModel(items);
+            titleEditor.setText(text);
+            titleEditor.setCaretPosition(Math.min(caret, text.length()));
+            matches = found;
+            if (bookBox.isShowing()) {
+                bookBox.hidePopup();
+                if (!found.isEmpty()) {
+                    bookBox.showPopup();
                 }
             }
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(null, ex);
+        } finally {
+            filling = false;
         }
     }
 
+    // The book picked from the drop-down, or on Enter the first one matching the text typed
+    private TitleIndex.Match picked() {
+        Object item = bookBox.getSelectedItem();
+        for (TitleIndex.Match match : matches) {
+            if (match.toString().equals(item)) {
+                return match;
+            }
+        }
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
     /**
      * This method is called from within the constructor to initialize the form.
      * WARNING: Do NOT modify this code. The content of this method is always
@@ -149,41 +202,26 @@ public class BookPositionQuery extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     private void bookBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_bookBoxActionPerformed
-        title = bookBox.getSelectedItem().toString();
-
-        if (result_set == null) {
-            fetchResultSet();
-        }
-        if (result_set != null) {
-            resultsTable.setModel(DbUtils.resultSetToTableModel(result_set));
-            result_set = null;
+        TitleIndex.Match match = filling ? null : picked();
+        if (match == null) {
+            return;
         }
+        isbn = match.getIsbn();
+
+        db_exec.submit(() -> LazyTableModel.open(db_con, db_exec, Sql.BOOK_POSITION_BY_ISBN, isbn), model -> resultsTable.setModel(model), null);
     }//GEN-LAST:event_bookBoxActionPerformed
 
     
-    public void fetchResultSet() {
-        try {
-            
-            Statement stmt = db_con.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-            String query = "select shelf,copyNr from Copies as c inner join Book as b on c.ISBN=b.ISBN where b.title =\""+title+"\";";
-            result_set = stmt.executeQuery(query);
-            
-        } catch (Exception ex) {
-
-            try {
-                if (db_con.connection != null) {
-                    db_con.closeCon();
-                }
-            } catch (Exception x) {
-            }
-        }
-    }
-    
-    
     private void closeButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_closeButtonActionPerformed
-        setVisible(false);
+        dispose();
     }//GEN-LAST:event_closeButtonActionPerformed
 
+    @Override
+    public void dispose() {
+        db_exec.close(db_con::closeCon);  // Hand the connection back to the pool once queued work is done
+        super.dispose();
+    }
+
     /**
      * @param args the command line arguments
      */
@@ -220,8 +258,12 @@ public class BookPositionQuery extends javax.swing.JFrame {
     }
 
     final private ConnectionDB db_con;
-    private ResultSet result_set = null;
-    private String title;
+    final private DbExecutor db_exec;
+    private String isbn;
+    private JTextComponent titleEditor;
+    private List<TitleIndex.Match> matches = new ArrayList<>();
+    // Set while showMatches rewrites the combo box, whose own events are then ignored
+    private boolean filling = false;
     
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JComboBox<String> bookBox;
@@ -0,0 +1,61 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads and writes the Book table as Book records.
+ */
+public class BookRepository extends KeysetRepository<Book> {
+
+    public BookRepository() {
+        super("Book", "ISBN", "ISBN, title, pubYear, numPages, pubName");
+    }
+
+    @Override
+    protected Book map(ResultSet rs) throws SQLException {
+        return new Book(rs.getString(1), rs.getString(2), getInteger(rs, 3), getInteger(rs, 4), rs.getString(5));
+    }
+
+    @Override
+    public Object keyOf(Book book) {
+        return book.getIsbn();
+    }
+
+    public void insert(Connection con, Book book) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.BOOK_INSERT);
+        bind(stmt, book);
+        stmt.executeUpdate();
+    }
+
+    /**
+     * Overwrites the book stored under isbn, which may itself change.
+     */
+    public void update(Connection con, String isbn, Book book) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.BOOK_UPDATE);
+        bind(stmt, book);
+        stmt.setString(6, isbn);
+        stmt.executeUpdate();
+    }
+
+    public void delete(Connection con, String isbn) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.BOOK_DELETE);
+        stmt.setString(1, isbn);
+        stmt.executeUpdate();
+    }
+
+    private static void bind(PreparedStatement stmt, Book book) throws SQLException {
+        stmt.setString(1, book.getIsbn());
+        stmt.setString(2, book.getTitle());
+        setInt(stmt, 3, book.getPubYear());
+        setInt(stmt, 4, book.getNumPages());
+        stmt.setString(5, book.getPubName());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.time.Year;
+
+/**
+ * The checks TR_ISBN_ON_INSERT and TR_ISBN_ON_UPDATE make on a Book row,
+ * done in Java so rows can be refused before they are sent. Each check
+ * returns the trigger's own message, or null if the row passes.
+ *
+ * The ISBN format test copies the trigger's REGEXP '^[-]|[0-9]$' as it is
+ * (it accepts anything ending in a digit, including the en dash ISBNs of
+ * the seed data), so the same rows pass here and in the database. As in
+ * SQL, a NULL year or page count passes its comparison.
+ */
+final class BookRules {
+
+    public static final int ISBN_LENGTH = 13;
+    public static final int MAX_TITLE_LENGTH = 120;
+    public static final int MAX_PUBNAME_LENGTH = 80;
+
+    private BookRules() {
+    }
+
+    static String checkIsbn(String isbn) {
+        if (isbn == null || isbn.codePointCount(0, isbn.length()) != ISBN_LENGTH) {
+            return "Error in ISBN length.";
+        }
+        char last = isbn.charAt(isbn.length() - 1);
+        if (!isbn.startsWith("-") && !(last >= '0' && last <= '9')) {
+            return "Error in ISBN Format. The correct format is ###-###-###-#";
+        }
+        return null;
+    }
+
+    /**
+     * @param estYear the publisher's establishment year, or null if unknown
+     */
+    static String checkPubYear(Integer pubYear, Integer estYear) {
+        if (pubYear != null && ((estYear != null && pubYear < estYear) || pubYear > Year.now().getValue())) {
+            return "Error! Year must be greater than publisher's establishment year and less than 2019.";
+        }
+        return null;
+    }
+
+    static String checkNumPages(Integer numPages) {
+        if (numPages != null && numPages <= 0) {
+            return "Error in pages. Must be a postitive number.";
+        }
+        return null;
+    }
+
+    /**
+     * Runs every check in the trigger's order and returns the first failure.
+     */
+    static String check(String isbn, Integer pubYear, Integer numPages, Integer estYear) {
+        String error = checkIsbn(isbn);
+        if (error == null) {
+            error = checkPubYear(pubYear, estYear);
+        }
+        if (error == null) {
+            error = checkNumPages(numPages);
+        }
+        return error;
+    }
+}
@@ -5,10 +5,6 @@
  */
 package my.libraryui;
 
-import java.sql.ResultSet;
-import java.sql.Statement;
-import net.proteanit.sql.DbUtils;
-
 
 public class BorrowedCountFrame extends javax.swing.JFrame {
 
@@ -20,42 +16,10 @@ public class BorrowedCountFrame extends javax.swing.JFrame {
         initComponents();
         this.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
         this.setLocationRelativeTo(null); // Align window on screen center
-        
-        try {
-            Statement pubStmt = db_con.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-        } catch (Exception ex) {
-            try {
-                if (db_con.connection != null) {
-                    db_con.closeCon();
-                }
-            } catch (Exception x) {
-            }
-        }
-            
-        if (result_set == null) {
-            fetchResultSet();
-        }
-        resultsTable.setModel(DbUtils.resultSetToTableModel(result_set));
+        db_exec = new DbExecutor(this, db_con);
+        db_exec.submit(() -> LazyTableModel.open(db_con, db_exec, Sql.BORROWED_COUNT), model -> resultsTable.setModel(model), null);
     }
 
-    public void fetchResultSet() {
-        try {
-            Statement stmt = db_con.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-            String query = "select * from BorrowedCount";
-            result_set = stmt.executeQuery(query);
-            
-        } catch (Exception ex) {
-
-            try {
-                if (db_con.connection != null) {
-                    db_con.closeCon();
-                }
-            } catch (Exception x) {
-            }
-        }
-    }
-    
-    
     /**
      * This method is called from within the constructor to initialize the form.
      * WARNING: Do NOT modify this code. The content of this method is always
@@ -139,9 +103,15 @@ public class BorrowedCountFrame extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     private void closeButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_closeButtonActionPerformed
-        setVisible(false);
+        dispose();
     }//GEN-LAST:event_closeButtonActionPerformed
 
+    @Override
+    public void dispose() {
+        db_exec.close(db_con::closeCon);  // Hand the connection back to the pool once queued work is done
+        super.dispose();
+    }
+
     /**
      * @param args the command line arguments
      */
@@ -179,7 +149,7 @@ public class BorrowedCountFrame extends javax.swing.JFrame {
 
     
     final private ConnectionDB db_con;
-    private ResultSet result_set = null;
+    final private DbExecutor db_exec;
     
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton closeButton;
@@ -0,0 +1,141 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Inserts rows into one table with multi-row statements,
+ * "insert into T values (?,?),(?,?),...", so the server parses and logs one
+ * statement per ROWS_PER_STATEMENT rows instead of one per row. Rows are
+ * buffered by add and sent when a statement's worth has accumulated; close
+ * sends the remainder.
+ *
+ * When the connection is not in autocommit mode every statement sent is
+ * committed, which keeps the undo log of a large load small.
+ */
+final class BulkInsert implements AutoCloseable {
+
+    public static final int ROWS_PER_STATEMENT = Integer.getInteger("library.bulk.rowsPerStatement", 1000);
+    // MySQL's limit on placeholders in one prepared statement
+    private static final int MAX_PARAMETERS = 65535;
+
+    /**
+     * @param modifier inserted after "insert", e.g. "ignore"; may be empty
+     */
+    BulkInsert(Connection con, String modifier, String table, int columns) {
+        this.con = con;
+        this.prefix = "insert " + modifier + " into " + table + " values ";
+        this.columns = columns;
+        this.rowsPerStatement = Math.max(1, Math.min(ROWS_PER_STATEMENT, MAX_PARAMETERS / columns));
+        this.buffer = new Object[rowsPerStatement * columns];
+    }
+
+    BulkInsert(Connection con, String table, int columns) {
+        this(con, "", table, columns);
+    }
+
+    /**
+     * Buffers one row. LocalDate values are bound as DATE.
+     */
+    void add(Object... values) throws SQLException {
+        if (values.length != columns) {
+            throw new IllegalArgumentException("Expected " + columns + " values, got " + values.length);
+        }
+        System.arraycopy(values, 0, buffer, buffered * columns, columns);
+        if (++buffered == rowsPerStatement) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the buffered rows now.
+     */
+    void flush() throws SQLException {
+        if (buffered == 0) {
+            return;
+        }
+        if (buffered == rowsPerStatement) {
+            if (full == null) {
+                full = con.prepareStatement(statement(rowsPerStatement));
+            }
+            execute(full);
+        } else {
+            try (PreparedStatement rest = con.prepareStatement(statement(buffered))) {
+                execute(rest);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of rows the server reported inserted so far.
+     */
+    long inserted() {
+        return inserted;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            flush();
+        } finally {
+            if (full != null) {
+                full.close();
+            }
+        }
+    }
+
+    private void execute(PreparedStatement stmt) throws SQLException {
+        int count = buffered * columns;
+        for (int i = 0; i < count; i++) {
+            Object value = buffer[i];
+            if (value instanceof LocalDate) {
+                Repository.setDate(stmt, i + 1, (LocalDate) value);
+            } else {
+                stmt.setObject(i + 1, value);
+            }
+        }
+        try {
+            inserted += stmt.executeUpdate();
+        } finally {
+            // The rows of a refused statement are dropped, not sent again
+            buffered = 0;
+        }
+        if (!con.getAutoCommit()) {
+            con.commit();
+        }
+    }
+
+    private String statement(int rows) {
+        StringBuilder row = new StringBuilder("(");
+        for (int c = 0; c < columns; c++) {
+            row.append(c == 0 ? "?" : ",?");
+        }
+        row.append(')');
+        StringBuilder sql = new StringBuilder(prefix.length() + rows * (row.length() + 1));
+        sql.append(prefix);
+        for (int r = 0; r < rows; r++) {
+            if (r > 0) {
+                sql.append(',');
+            }
+            sql.append(row);
+        }
+        return sql.toString();
+    }
+
+
+    private final Connection con;
+    private final String prefix;
+    private final int columns;
+    private final int rowsPerStatement;
+    private final Object[] buffer;
+    private int buffered = 0;
+    private long inserted = 0;
+    private PreparedStatement full = null;
+}
@@ -0,0 +1,522 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Imports books from a CSV or TSV file with the Book table's columns in
+ * order: ISBN, title, pubYear, numPages, pubName. The delimiter is a tab if
+ * the first line has one and a comma otherwise; fields may be quoted with
+ * "", an empty field is NULL, and a first line starting with ISBN is taken
+ * as a header.
+ *
+ * The file is read and split on the calling thread, in chunks of
+ * CHUNK_SIZE rows. library.import.validators threads check each row with
+ * BookRules against a publisher map read once at the start, the same
+ * checks TR_ISBN_ON_INSERT makes, and library.import.writers threads insert
+ * the rows that pass, one multi-row statement and one transaction per
+ * chunk. The queues between the stages hold library.import.queueChunks
+ * chunks each, so a slow database holds the reader back instead of filling
+ * the heap.
+ *
+ * The writers turn the per-row TR_CHANGELOG_* entries off for their
+ * sessions; once the import ends, or fails after some chunks were
+ * committed, one RELOAD entry for Book tells the other workstations to read
+ * their books again, instead of replaying every row.
+ *
+ * A refused row is written to the reject file as its line number, the
+ * reason and the line itself, tab separated. When the database refuses a
+ * chunk (usually an ISBN already in Book), the chunk is rolled back and
+ * retried row by row so only the offending rows are rejected; any other
+ * error fails the import.
+ *
+ * Run with: java -cp dist/Library.jar:lib/MySQLDriver/mysql-connector-java-5.1.23-bin.jar my.libraryui.CatalogImport books.csv [rejects.tsv]
+ */
+public class CatalogImport {
+
+    public static final int CHUNK_SIZE = BulkInsert.ROWS_PER_STATEMENT;
+    public static final int VALIDATORS = Integer.getInteger("library.import.validators", Runtime.getRuntime().availableProcessors());
+    public static final int WRITERS = Integer.getInteger("library.import.writers", 2);
+    public static final int QUEUE_CHUNKS = Integer.getInteger("library.import.queueChunks", 16);
+
+    private static final int COLUMNS = 5;
+    // Marks the end of a queue; compared by identity
+    private static final List<Row> END = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: CatalogImport <books.csv|books.tsv> [rejects file]");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[0]);
+        Path rejects = Paths.get(args.length > 1 ? args[1] : args[0] + ".rejects");
+        try {
+            Result result = new CatalogImport().run(input, rejects);
+            System.out.println(String.format("Read %d rows, imported %d, rejected %d in %.1f s (%.0f books/s)",
+                    result.getRead(), result.getImported(), result.getRejected(), result.getSeconds(), result.getImported() / result.getSeconds()));
+            if (result.getRejected() > 0) {
+                System.out.println("Rejected rows are in " + rejects);
+            }
+        } finally {
+            ConnectionPool.getInstance().shutdown();
+        }
+    }
+
+    /**
+     * Counts of one import.
+     */
+    public static final class Result {
+
+        Result(long read, long imported, long rejected, double seconds) {
+            this.read = read;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.seconds = seconds;
+        }
+
+        public long getRead() {
+            return read;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public double getSeconds() {
+            return seconds;
+        }
+
+
+        private final long read;
+        private final long imported;
+        private final long rejected;
+        private final double seconds;
+    }
+
+    /**
+     * Imports input, writing refused rows to rejects. Returns when every row
+     * has been inserted or rejected; throws if a stage fails outright, in
+     * which case the chunks already committed stay in Book.
+     */
+    public Result run(Path input, Path rejects) throws Exception {
+        long start = System.nanoTime();
+        ConnectionPool pool = ConnectionPool.getInstance();
+        Map<String, Integer> estYears = publishers(pool);
+        BlockingQueue<List<Row>> parsed = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+        BlockingQueue<List<Row>> validated = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+        Set<String> isbns = ConcurrentHashMap.newKeySet();
+        ExecutorService workers = Executors.newFixedThreadPool(VALIDATORS + WRITERS);
+        try (RejectFile rejectFile = new RejectFile(rejects)) {
+            List<Future<?>> validators = new ArrayList<>();
+            for (int i = 0; i < VALIDATORS; i++) {
+                validators.add(workers.submit(stage(() -> validate(parsed, validated, estYears, isbns, rejectFile))));
+            }
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < WRITERS; i++) {
+                writers.add(workers.submit(stage(() -> write(pool, validated, rejectFile))));
+            }
+
+            long read = parse(input, parsed);
+            for (int i = 0; i < VALIDATORS; i++) {
+                put(parsed, END);
+            }
+            await(validators);
+            for (int i = 0; i < WRITERS; i++) {
+                put(validated, END);
+            }
+            await(writers);
+            return new Result(read, imported.get(), rejectFile.count(), (System.nanoTime() - start) / 1e9);
+        } finally {
+            workers.shutdownNow();
+            // A writer stopped by a failure may still be committing its chunk; the RELOAD must come after it
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+            if (imported.get() > 0) {
+                logReload(pool, ChangeEvent.Entity.BOOK);
+            }
+        }
+    }
+
+    // Reads input in chunks onto parsed; returns the number of data rows
+    private long parse(Path input, BlockingQueue<List<Row>> parsed) throws IOException, SQLException {
+        long rows = 0;
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            char delimiter = 0;
+            long number = 0;
+            List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (number == 1 && line.startsWith("\uFEFF")) {
+                    line = line.substring(1);
+                }
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] fields;
+                if (delimiter == 0) {
+                    delimiter = line.indexOf('\t') >= 0 ? '\t' : ',';
+                    fields = split(line, delimiter);
+                    if (fields[0].trim().equalsIgnoreCase("ISBN")) {
+                        continue;
+                    }
+                } else {
+                    fields = split(line, delimiter);
+                }
+                chunk.add(new Row(number, line, fields));
+                rows++;
+                if (chunk.size() == CHUNK_SIZE) {
+                    put(parsed, chunk);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                put(parsed, chunk);
+            }
+        }
+        return rows;
+    }
+
+    private void validate(BlockingQueue<List<Row>> parsed, BlockingQueue<List<Row>> validated, Map<String, Integer> estYears,
+            Set<String> isbns, RejectFile rejects) throws IOException, SQLException {
+        List<Row> chunk;
+        while ((chunk = take(parsed)) != END) {
+            List<Row> valid = new ArrayList<>(chunk.size());
+            for (Row row : chunk) {
+                String error = row.check(estYears);
+                // Claimed only once the row is otherwise good, so a valid later copy of a bad row still goes in
+                if (error == null && !isbns.add(row.isbn)) {
+                    error = "Duplicate ISBN in input";
+                }
+                if (error == null) {
+                    valid.add(row);
+                } else {
+                    rejects.write(row, error);
+                }
+            }
+            if (!valid.isEmpty()) {
+                put(validated, valid);
+            }
+        }
+    }
+
+    private void write(ConnectionPool pool, BlockingQueue<List<Row>> validated, RejectFile rejects) throws IOException, SQLException {
+        BookRepository books = new BookRepository();
+        Connection con = pool.borrow();
+        try {
+            changeLog(con, false);
+            con.setAutoCommit(false);
+            List<Row> chunk;
+            while ((chunk = take(validated)) != END) {
+                try (BulkInsert insert = new BulkInsert(con, "Book", COLUMNS)) {
+                    for (Row row : chunk) {
+                        insert.add(row.isbn, row.title, row.pubYear, row.numPages, row.pubName);
+                    }
+                    insert.flush();
+                    imported.addAndGet(chunk.size());
+                } catch (SQLException ex) {
+                    if (!refusesRow(ex)) {
+                        throw ex;
+                    }
+                    con.rollback();
+                    for (Row row : chunk) {
+                        try {
+                            books.insert(con, row.toBook());
+                            con.commit();
+                            imported.incrementAndGet();
+                        } catch (SQLException rowEx) {
+                            if (!refusesRow(rowEx)) {
+                                throw rowEx;
+                            }
+                            con.rollback();
+                            rejects.write(row, rowEx.getMessage());
+                        }
+                    }
+                }
+            }
+        } finally {
+            try {
+                con.setAutoCommit(true);
+                changeLog(con, true);
+            } finally {
+                pool.release(con);
+            }
+        }
+    }
+
+    /**
+     * Whether ex is the database refusing a row: bad data (class 22), a
+     * constraint such as a duplicate ISBN (23) or a TR_ISBN_ON_INSERT
+     * SIGNAL (03xxx). Anything else, a lost connection say, fails the
+     * import rather than rejecting every row.
+     */
+    static boolean refusesRow(SQLException ex) {
+        String state = ex.getSQLState();
+        return state != null && (state.startsWith("22") || state.startsWith("23") || state.startsWith("03"));
+    }
+
+    /**
+     * Turns the TR_CHANGELOG_* entries for con's session off or back on.
+     * Turn them back on before the connection goes back to the pool.
+     */
+    static void changeLog(Connection con, boolean on) throws SQLException {
+        try (Statement stmt = con.createStatement()) {
+            stmt.execute(on ? "set @library_changelog_off = null" : "set @library_changelog_off = 1");
+        }
+    }
+
+    /**
+     * Logs one RELOAD entry for entity, so every workstation reads that
+     * table again.
+     */
+    static void logReload(ConnectionPool pool, ChangeEvent.Entity entity) throws SQLException {
+        Connection con = pool.borrow();
+        try {
+            PreparedStatement stmt = StatementCache.prepare(con, Sql.CHANGE_LOG_RELOAD);
+            stmt.setString(1, entity.name());
+            stmt.executeUpdate();
+        } finally {
+            pool.release(con);
+        }
+    }
+
+    // Publisher establishment years by normalised name; a NULL estYear maps to null
+    private static Map<String, Integer> publishers(ConnectionPool pool) throws SQLException {
+        Map<String, Integer> estYears = new HashMap<>();
+        Connection con = pool.borrow();
+        try (ResultSet rs = StatementCache.prepare(con, Sql.PUBLISHER_EST_YEARS).executeQuery()) {
+            while (rs.next()) {
+                int estYear = rs.getInt(2);
+                estYears.put(publisherKey(rs.getString(1)), rs.wasNull() ? null : estYear);
+            }
+        } finally {
+            pool.release(con);
+        }
+        return estYears;
+    }
+
+    /**
+     * Folds case and accents and drops trailing spaces, the differences
+     * MySQL's general_ci collation ignores when it compares pubName.
+     */
+    static String publisherKey(String name) {
+        int end = name.length();
+        while (end > 0 && name.charAt(end - 1) == ' ') {
+            end--;
+        }
+        String decomposed = Normalizer.normalize(name.substring(0, end), Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}", "").toUpperCase(Locale.ROOT);
+    }
+
+    // Splits one CSV/TSV line; "" inside a quoted field is a literal quote
+    static String[] split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>(COLUMNS);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[fields.size()]);
+    }
+
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    // Records the first failure of any stage, which makes every put and take give up
+    private Runnable stage(Stage stage) {
+        return () -> {
+            try {
+                stage.run();
+            } catch (Exception ex) {
+                failure.compareAndSet(null, ex);
+            }
+        };
+    }
+
+    private void put(BlockingQueue<List<Row>> queue, List<Row> chunk) throws SQLException {
+        try {
+            while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Import interrupted", ex);
+        }
+    }
+
+    private List<Row> take(BlockingQueue<List<Row>> queue) throws SQLException {
+        try {
+            List<Row> chunk;
+            while ((chunk = queue.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                checkFailure();
+            }
+            return chunk;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Import interrupted", ex);
+        }
+    }
+
+    private void await(List<Future<?>> stages) throws Exception {
+        for (Future<?> stage : stages) {
+            stage.get();
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws SQLException {
+        Exception ex = failure.get();
+        if (ex != null) {
+            throw ex instanceof SQLException ? (SQLException) ex : new SQLException("Import failed", ex);
+        }
+    }
+
+    /**
+     * One line of the input, parsed into the Book columns by check.
+     */
+    private static final class Row {
+
+        Row(long line, String text, String[] fields) {
+            this.line = line;
+            this.text = text;
+            this.fields = fields;
+        }
+
+        // Parses the fields and returns the reason the row is refused, or null
+        String check(Map<String, Integer> estYears) {
+            if (fields.length != COLUMNS) {
+                return "Expected " + COLUMNS + " fields, found " + fields.length;
+            }
+            isbn = fields[0].trim();
+            title = fields[1].trim();
+            pubName = fields[4].trim().isEmpty() ? null : fields[4].trim();
+            try {
+                pubYear = parseInt(fields[2]);
+                numPages = parseInt(fields[3]);
+            } catch (NumberFormatException ex) {
+                return "pubYear and numPages must be whole numbers";
+            }
+            if (title.isEmpty()) {
+                return "Missing title";
+            }
+            if (title.codePointCount(0, title.length()) > BookRules.MAX_TITLE_LENGTH) {
+                return "Title longer than " + BookRules.MAX_TITLE_LENGTH + " characters";
+            }
+            Integer estYear = null;
+            if (pubName != null) {
+                String key = publisherKey(pubName);
+                if (!estYears.containsKey(key)) {
+                    return "Unknown publisher";
+                }
+                estYear = estYears.get(key);
+            }
+            return BookRules.check(isbn, pubYear, numPages, estYear);
+        }
+
+        Book toBook() {
+            return new Book(isbn, title, pubYear, numPages, pubName);
+        }
+
+        private static Integer parseInt(String field) {
+            String value = field.trim();
+            return value.isEmpty() ? null : Integer.valueOf(value);
+        }
+
+
+        final long line;
+        final String text;
+        final String[] fields;
+        String isbn;
+        String title;
+        Integer pubYear;
+        Integer numPages;
+        String pubName;
+    }
+
+    /**
+     * Tab separated line number, reason and original line of each refused
+     * row; written to by every stage.
+     */
+    private static final class RejectFile implements AutoCloseable {
+
+        RejectFile(Path path) throws IOException {
+            out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        }
+
+        synchronized void write(Row row, String reason) throws IOException {
+            out.write(row.line + "\t" + reason.replace('\t', ' ').replace('\n', ' ') + "\t" + row.text);
+            out.newLine();
+            count++;
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+
+
+        private final BufferedWriter out;
+        private long count = 0;
+    }
+
+
+    private final AtomicLong imported = new AtomicLong();
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+}
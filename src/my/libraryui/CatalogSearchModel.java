@@ -0,0 +1,139 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The operations of CatalogSearchQuery, without the frame: a full-text
+ * search of book titles, author names and category names, read one page of
+ * library.search.pageSize (default 20) books at a time, best match first.
+ * Every word must appear, as a run of consecutive ngram bigrams, in the
+ * title, in one author's name or in one category name, each word in any of
+ * them: "Tolkien Hobbit" finds the book by its author and its title; see
+ * terms. Each page is one Sql.catalogSearch query for the number of words,
+ * which ranks the matches and joins just that page's books with their
+ * authors and categories; one row past the page is asked for to learn
+ * whether there is a next one.
+ *
+ * Not thread safe; the frame drives it from its DbExecutor.
+ */
+public class CatalogSearchModel {
+
+    public static final int PAGE_SIZE = Integer.getInteger("library.search.pageSize", 20);
+
+    /**
+     * Searches for words and returns the first page of books found, best
+     * match first; empty if none matched.
+     */
+    public ColumnarResult search(Connection con, String words) throws SQLException {
+        this.terms = terms(words);
+        return read(con, 0);
+    }
+
+    /**
+     * Moves to the following page; null, staying put, at the last one.
+     */
+    public ColumnarResult next(Connection con) throws SQLException {
+        if (!more) {
+            return null;
+        }
+        return read(con, pageNr + 1);
+    }
+
+    /**
+     * Moves to the preceding page; null, staying put, at the first one.
+     */
+    public ColumnarResult previous(Connection con) throws SQLException {
+        if (pageNr == 0 || page == null) {
+            return null;
+        }
+        return read(con, pageNr - 1);
+    }
+
+    /**
+     * Reads the current page again, after books were written; null if
+     * nothing was searched for yet.
+     */
+    public ColumnarResult refresh(Connection con) throws SQLException {
+        if (page == null) {
+            return null;
+        }
+        return read(con, pageNr);
+    }
+
+    public ColumnarResult getPage() {
+        return page;
+    }
+
+    /**
+     * Zero-based number of the current page.
+     */
+    public int getPageNr() {
+        return pageNr;
+    }
+
+    public boolean hasNext() {
+        return more;
+    }
+
+    public boolean hasPrevious() {
+        return page != null && pageNr > 0;
+    }
+
+    /**
+     * Turns what the user typed into one boolean-mode phrase per word: "ab
+     * cde" becomes "ab" and "cde", each matched on its own. With the ngram
+     * parser a phrase matches its bigrams in sequence, where natural language
+     * mode would match any row sharing a single bigram with the text. Boolean
+     * operators and quotes are dropped; so are words shorter than the two
+     * characters of a bigram, which the ngram index cannot find. With no word
+     * left the single term is empty, which matches nothing.
+     */
+    static List<String> terms(String words) {
+        List<String> terms = new ArrayList<>();
+        for (String word : words.replaceAll("[-+<>()~*\"@]", " ").trim().split("\\s+")) {
+            if (word.codePointCount(0, word.length()) >= 2) {
+                terms.add('"' + word + '"');
+            }
+        }
+        if (terms.isEmpty()) {
+            terms.add("");
+        }
+        return terms;
+    }
+
+    private ColumnarResult read(Connection con, int nr) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.catalogSearch(terms.size()));
+        int i = 0;
+        for (String term : terms) {
+            for (int match = 0; match < 6; match++) {
+                stmt.setString(++i, term);
+            }
+        }
+        stmt.setInt(i + 1, PAGE_SIZE + 1);
+        stmt.setInt(i + 2, nr * PAGE_SIZE);
+        try (ResultSet rs = stmt.executeQuery()) {
+            page = ColumnarResult.read(rs, PAGE_SIZE);
+            more = rs.next();
+        }
+        pageNr = nr;
+        return page;
+    }
+
+
+    private List<String> terms = Collections.singletonList("");
+    private ColumnarResult page;
+    private int pageNr = 0;
+    // Whether a page follows the current one
+    private boolean more = false;
+}
@@ -0,0 +1,77 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+
+/**
+ * In-process bus of ChangeEvents. The record models publish every write
+ * they commit; ReferenceData and the open frames subscribe to the tables
+ * they show and patch just the affected rows, instead of reading whole
+ * tables again or staying stale until they are reopened.
+ *
+ * Listeners are called on the EDT, in publish order, after the write has
+ * been committed. A frame subscribes in its constructor and unsubscribes
+ * in dispose. Writes made by other processes (other workstations,
+ * CatalogImport, the load tests) arrive through ChangeLogPoller.
+ */
+public final class ChangeBus {
+
+    private static final Logger LOG = Logger.getLogger(ChangeBus.class.getName());
+    private static final ChangeBus INSTANCE = new ChangeBus();
+
+    public static ChangeBus getInstance() {
+        return INSTANCE;
+    }
+
+    private ChangeBus() {
+    }
+
+    public void subscribe(ChangeEvent.Entity entity, Consumer<ChangeEvent> listener) {
+        subscriptions.add(new Subscription(entity, listener));
+    }
+
+    /**
+     * Removes every subscription of listener.
+     */
+    public void unsubscribe(Consumer<ChangeEvent> listener) {
+        subscriptions.removeIf(subscription -> subscription.listener == listener);
+    }
+
+    public void publish(ChangeEvent event) {
+        SwingUtilities.invokeLater(() -> deliver(event));
+    }
+
+    private void deliver(ChangeEvent event) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.entity == event.getEntity()) {
+                try {
+                    subscription.listener.accept(event);
+                } catch (RuntimeException ex) {
+                    // One broken listener must not keep the event from the others
+                    LOG.warning("A listener failed on " + event + ": " + ex);
+                }
+            }
+        }
+    }
+
+    private static final class Subscription {
+        Subscription(ChangeEvent.Entity entity, Consumer<ChangeEvent> listener) {
+            this.entity = entity;
+            this.listener = listener;
+        }
+
+        final ChangeEvent.Entity entity;
+        final Consumer<ChangeEvent> listener;
+    }
+
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+}
@@ -0,0 +1,85 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+/**
+ * One committed write, as published on the ChangeBus: which table, which
+ * primary key, and whether the row was inserted, updated or deleted. An
+ * update that changed the primary key carries the old key as well.
+ *
+ * COPY events are keyed by ISBN and mean "the copies of this book changed";
+ * LOAN events are keyed by memberID. The others carry the table's own key.
+ * RELOAD stands for a bulk load that changed any number of rows of the
+ * table at once; it has no key, and listeners read again what they show.
+ */
+public final class ChangeEvent {
+
+    public enum Entity {
+        PUBLISHER, BOOK, MEMBER, COPY, LOAN
+    }
+
+    public enum Operation {
+        INSERT, UPDATE, DELETE, RELOAD
+    }
+
+    /**
+     * @param source    the object that made the write, so it can ignore its own events
+     * @param entity    the table written
+     * @param operation what happened to the row
+     * @param key       the row's primary key after the write (before it, for a delete); null for RELOAD
+     * @param oldKey    the row's primary key before an update; key otherwise
+     */
+    public ChangeEvent(Object source, Entity entity, Operation operation, Object key, Object oldKey) {
+        this.source = source;
+        this.entity = entity;
+        this.operation = operation;
+        this.key = key;
+        this.oldKey = oldKey;
+    }
+
+    public ChangeEvent(Object source, Entity entity, Operation operation, Object key) {
+        this(source, entity, operation, key, key);
+    }
+
+    public Object getSource() {
+        return source;
+    }
+
+    public Entity getEntity() {
+        return entity;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    public Object getOldKey() {
+        return oldKey;
+    }
+
+    /**
+     * Whether the update changed the row's primary key.
+     */
+    public boolean isRename() {
+        return operation == Operation.UPDATE && oldKey != null && !oldKey.equals(key);
+    }
+
+    @Override
+    public String toString() {
+        return entity + " " + operation + " " + (isRename() ? oldKey + " -> " : "") + key;
+    }
+
+
+    private final Object source;
+    private final Entity entity;
+    private final Operation operation;
+    private final Object key;
+    private final Object oldKey;
+}
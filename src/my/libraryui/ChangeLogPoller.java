@@ -0,0 +1,179 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Brings the writes of other workstations onto this one's ChangeBus. The
+ * TR_CHANGELOG_* triggers (and TR_LOANSTATS_* for Borrows) append every
+ * write to the ChangeLog table; every library.changes.pollMillis (default
+ * 500) a background thread reads the entries past the highest changeID it
+ * has seen and publishes them, so ReferenceData and the open frames patch
+ * the rows written elsewhere just as they do for local writes. Entries
+ * written by this workstation's own pool connections are skipped, since
+ * they were published when they were made. A bulk load logs one RELOAD
+ * entry instead of one per row; it replaces the other entries for its table
+ * in the same poll, and the listeners read the table again.
+ *
+ * Change ids are handed out when a row is written, not when it commits, so
+ * a transaction still open can leave a hole below ids already read. Holes
+ * are read again on each poll for library.changes.gapMillis (default 10000)
+ * before they are taken for a rollback.
+ *
+ * LibraryUI starts it; library.changes.pollMillis=0 turns it off.
+ */
+public final class ChangeLogPoller {
+
+    private static final Logger LOG = Logger.getLogger(ChangeLogPoller.class.getName());
+    private static final long POLL_INTERVAL = Long.getLong("library.changes.pollMillis", 500L);
+    private static final long GAP_TIMEOUT = Long.getLong("library.changes.gapMillis", 10000L);
+    private static final int BATCH_SIZE = 500;
+    // Past this many open holes the oldest are given up early
+    private static final int MAX_GAPS = 10000;
+
+    private static ChangeLogPoller instance;
+
+    /**
+     * Starts polling, once per process; later calls do nothing.
+     */
+    public static synchronized void start() {
+        if (instance == null && POLL_INTERVAL > 0) {
+            instance = new ChangeLogPoller();
+        }
+    }
+
+    private ChangeLogPoller() {
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ChangeLogPoller");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::poll, 0, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll() {
+        ConnectionPool pool = ConnectionPool.getInstance();
+        try {
+            Connection con = pool.borrow();
+            try {
+                if (highWater < 0) {
+                    // Caches are read fresh at start-up; only later entries matter
+                    try (ResultSet rs = StatementCache.prepare(con, Sql.CHANGE_LOG_HEAD).executeQuery()) {
+                        rs.next();
+                        highWater = rs.getLong(1);
+                    }
+                } else {
+                    read(con);
+                }
+            } finally {
+                pool.release(con);
+            }
+        } catch (SQLException | RuntimeException ex) {
+            // Thrown out of the task it would cancel the schedule; try again next time
+            LOG.warning("Could not read the change log: " + ex);
+        }
+    }
+
+    private void read(Connection con) throws SQLException {
+        Map<String, ChangeEvent> events = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+
+        if (!gaps.isEmpty()) {
+            PreparedStatement stmt = StatementCache.prepare(con, Sql.CHANGE_LOG_RANGE);
+            stmt.setLong(1, gaps.firstKey());
+            stmt.setLong(2, gaps.lastKey());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (gaps.remove(rs.getLong(1)) != null) {
+                        add(events, rs);
+                    }
+                }
+            }
+            gaps.values().removeIf(since -> now - since >= GAP_TIMEOUT);
+        }
+
+        int count;
+        do {
+            PreparedStatement stmt = StatementCache.prepare(con, Sql.CHANGE_LOG_AFTER);
+            stmt.setLong(1, highWater);
+            stmt.setInt(2, BATCH_SIZE);
+            count = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    for (long missing = Math.max(highWater + 1, id - MAX_GAPS); missing < id; missing++) {
+                        gaps.put(missing, now);
+                    }
+                    highWater = id;
+                    add(events, rs);
+                    count++;
+                }
+            }
+        } while (count == BATCH_SIZE);
+
+        for (Iterator<Long> it = gaps.keySet().iterator(); gaps.size() > MAX_GAPS && it.hasNext();) {
+            it.next();
+            it.remove();
+        }
+        for (ChangeEvent event : events.values()) {
+            ChangeBus.getInstance().publish(event);
+        }
+    }
+
+    // Adds the entry under rs unless it is local; repeats (one per copy of a moved title, say) collapse into
+    // one at the place of the latest, so INSERT, DELETE, INSERT of a row still ends with the INSERT, and a
+    // RELOAD replaces every other entry for its table
+    private void add(Map<String, ChangeEvent> events, ResultSet rs) throws SQLException {
+        if (ConnectionPool.getInstance().isLocalSession(rs.getLong(6))) {
+            return;
+        }
+        ChangeEvent.Entity entity;
+        ChangeEvent.Operation operation;
+        try {
+            entity = ChangeEvent.Entity.valueOf(rs.getString(2));
+            operation = ChangeEvent.Operation.valueOf(rs.getString(3));
+        } catch (IllegalArgumentException ex) {
+            return;     // written by a newer schema than this client knows
+        }
+        if (operation == ChangeEvent.Operation.RELOAD) {
+            events.values().removeIf(event -> event.getEntity() == entity);
+            events.put(entity + " RELOAD", new ChangeEvent(this, entity, operation, null, null));
+            return;
+        }
+        if (events.containsKey(entity + " RELOAD")) {
+            return;
+        }
+        Object key = key(entity, rs.getString(4));
+        Object oldKey = key(entity, rs.getString(5));
+        ChangeEvent event = new ChangeEvent(this, entity, operation, key, oldKey);
+        events.remove(event.toString());
+        events.put(event.toString(), event);
+    }
+
+    // The models key members by Integer, the other tables by String
+    private static Object key(ChangeEvent.Entity entity, String text) {
+        return entity == ChangeEvent.Entity.MEMBER || entity == ChangeEvent.Entity.LOAN ? Integer.valueOf(text) : text;
+    }
+
+
+    private final ScheduledExecutorService poller;
+    // Only touched on the poller thread
+    private long highWater = -1;
+    // Ids below highWater not seen yet, with the time each was first missed
+    private final TreeMap<Long, Long> gaps = new TreeMap<>();
+}
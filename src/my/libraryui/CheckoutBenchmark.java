@@ -0,0 +1,103 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures checkout throughput with several workstations' worth of threads,
+ * each on its own pooled connection, checking a copy out through
+ * LoanRepository.checkout and returning it again in a loop.
+ *
+ * In "separate" mode (the default) every thread serves its own member, so
+ * the member row locks never meet. In "shared" mode all threads serve one
+ * member, which shows the cost of serialising on that member's row lock;
+ * checkouts refused because the member already holds MAX_OPEN_LOANS are
+ * counted separately.
+ *
+ * Needs the Library database.
+ *
+ * Run with: java -cp dist/Library.jar:lib/MySQLDriver/mysql-connector-java-5.1.23-bin.jar my.libraryui.CheckoutBenchmark [threads] [seconds] [separate|shared]
+ */
+public class CheckoutBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        final boolean shared = args.length > 2 && args[2].equals("shared");
+        ConnectionPool pool = ConnectionPool.getInstance();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        LoanRepository loans = new LoanRepository();
+
+        Connection con = pool.borrow();
+        CheckoutFixture fixture = new CheckoutFixture(con, shared ? 1 : threads);
+        Copy copy = fixture.copy();
+        try {
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                final int member = fixture.memberId(shared ? 0 : t);
+                results.add(workers.submit(() -> run(pool, loans, copy, member, thread, shared ? threads : 1, deadline)));
+            }
+
+            long checkouts = 0, refused = 0, nanos = 0;
+            for (Future<long[]> result : results) {
+                long[] r = result.get();
+                checkouts += r[0];
+                refused += r[1];
+                nanos += r[2];
+            }
+            System.out.println("Threads: " + threads + ", " + (shared ? "one shared member" : "one member per thread") + ", " + seconds + " s");
+            System.out.println(String.format("Checkouts:      %d (%.1f per second)", checkouts, checkouts / (double) seconds));
+            System.out.println(String.format("Refused:        %d", refused));
+            System.out.println(String.format("Mean checkout:  %.2f ms", checkouts == 0 ? 0.0 : nanos / 1e6 / checkouts));
+        } finally {
+            fixture.clear();
+            pool.release(con);
+            workers.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    // Returns {checkouts, refused, nanoseconds spent in successful checkouts}
+    private static long[] run(ConnectionPool pool, LoanRepository loans, Copy copy, int member, int thread, int stride, long deadline) throws SQLException {
+        long checkouts = 0, refused = 0, nanos = 0;
+        LocalDate today = LocalDate.now();
+        Connection con = pool.borrow();
+        try {
+            // Each loan gets its own borrowing date, which keeps the Borrows keys
+            // distinct; counting forward never makes an open loan overdue
+            for (long i = thread; System.nanoTime() < deadline; i += stride) {
+                Loan loan = new Loan(member, copy.getIsbn(), copy.getCopyNr(), today.plusDays(i), null);
+                long start = System.nanoTime();
+                try {
+                    loans.checkout(con, loan);
+                } catch (SQLException ex) {
+                    if (!"02000".equals(ex.getSQLState())) {
+                        throw ex;
+                    }
+                    refused++;
+                    continue;
+                }
+                nanos += System.nanoTime() - start;
+                checkouts++;
+                loans.returned(con, loan, loan.getBorrowed());
+            }
+        } finally {
+            pool.release(con);
+        }
+        return new long[] {checkouts, refused, nanos};
+    }
+}
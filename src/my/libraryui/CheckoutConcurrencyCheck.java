@@ -0,0 +1,91 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks that two simultaneous checkouts cannot both take a member past
+ * LoanRepository.MAX_OPEN_LOANS. In each round a fresh member is given one
+ * loan less than the limit, then two threads on separate connections call
+ * checkout at the same moment; exactly one must succeed and the member must
+ * end with MAX_OPEN_LOANS open loans. Under the old TR_BORROWS trigger both
+ * inserts counted the open loans without a lock and could both pass.
+ *
+ * Needs the Library database. Exits with status 1 if any round fails.
+ *
+ * Run with: java -cp dist/Library.jar:lib/MySQLDriver/mysql-connector-java-5.1.23-bin.jar my.libraryui.CheckoutConcurrencyCheck [rounds]
+ */
+public class CheckoutConcurrencyCheck {
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        ConnectionPool pool = ConnectionPool.getInstance();
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        LoanRepository loans = new LoanRepository();
+        LocalDate today = LocalDate.now();
+        int failures = 0;
+
+        Connection con = pool.borrow();
+        CheckoutFixture fixture = new CheckoutFixture(con, rounds);
+        Copy copy = fixture.copy();
+        try {
+            for (int round = 0; round < rounds; round++) {
+                int member = fixture.memberId(round);
+                for (int i = 0; i < LoanRepository.MAX_OPEN_LOANS - 1; i++) {
+                    loans.checkout(con, new Loan(member, copy.getIsbn(), copy.getCopyNr(), today.minusDays(i), null));
+                }
+
+                CyclicBarrier start = new CyclicBarrier(2);
+                Future<Boolean> first = threads.submit(attempt(pool, loans, start,
+                        new Loan(member, copy.getIsbn(), copy.getCopyNr(), today.minusDays(LoanRepository.MAX_OPEN_LOANS - 1), null)));
+                Future<Boolean> second = threads.submit(attempt(pool, loans, start,
+                        new Loan(member, copy.getIsbn(), copy.getCopyNr(), today.minusDays(LoanRepository.MAX_OPEN_LOANS), null)));
+                int passed = (first.get() ? 1 : 0) + (second.get() ? 1 : 0);
+                int open = loans.outstanding(con, member).size();
+
+                if (passed != 1 || open != LoanRepository.MAX_OPEN_LOANS) {
+                    failures++;
+                    System.out.println("Round " + round + ": " + passed + " checkouts passed, member has " + open + " open loans");
+                }
+            }
+        } finally {
+            fixture.clear();
+            pool.release(con);
+            threads.shutdown();
+            pool.shutdown();
+        }
+
+        System.out.println((rounds - failures) + " of " + rounds + " rounds let exactly one of two concurrent checkouts through");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    // Returns whether the checkout went through; false if the member was refused
+    private static Callable<Boolean> attempt(ConnectionPool pool, LoanRepository loans, CyclicBarrier start, Loan loan) {
+        return () -> {
+            Connection con = pool.borrow();
+            try {
+                start.await();
+                loans.checkout(con, loan);
+                return true;
+            } catch (SQLException ex) {
+                if ("02000".equals(ex.getSQLState())) {
+                    return false;
+                }
+                throw ex;
+            } finally {
+                pool.release(con);
+            }
+        };
+    }
+}
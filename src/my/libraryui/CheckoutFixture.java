@@ -0,0 +1,69 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Throwaway members for the checkout tools. They are numbered from
+ * library.fixture.firstMemberId (default 900000) up, clear of the ids the
+ * Library data uses, and clear() removes them together with their loans.
+ */
+final class CheckoutFixture {
+
+    static final int FIRST_ID = Integer.getInteger("library.fixture.firstMemberId", 900000);
+
+    private static final String DELETE_LOANS = "delete from Borrows where memberID between ? and ?";
+    private static final String DELETE_MEMBERS = "delete from Member where memberID between ? and ?";
+
+    /**
+     * Creates count members, after removing any left behind by an earlier run.
+     */
+    CheckoutFixture(Connection con, int count) throws SQLException {
+        this.con = con;
+        this.count = count;
+        clear();
+        MemberRepository members = new MemberRepository();
+        for (int i = 0; i < count; i++) {
+            members.insert(con, new Member(memberId(i), "Test", "Member " + i, null, null, null, LocalDate.of(1990, 1, 1)));
+        }
+        List<Copy> copies = new CopyRepository().positions(con);
+        if (copies.isEmpty()) {
+            throw new SQLException("The Copies table is empty");
+        }
+        copy = copies.get(0);
+    }
+
+    int memberId(int index) {
+        return FIRST_ID + index;
+    }
+
+    /**
+     * A copy the fixture's members borrow. Loans differ by borrowing date,
+     * which is part of the Borrows key.
+     */
+    Copy copy() {
+        return copy;
+    }
+
+    void clear() throws SQLException {
+        for (String sql : new String[] {DELETE_LOANS, DELETE_MEMBERS}) {
+            PreparedStatement stmt = StatementCache.prepare(con, sql);
+            stmt.setInt(1, FIRST_ID);
+            stmt.setInt(2, FIRST_ID + count - 1);
+            stmt.executeUpdate();
+        }
+    }
+
+
+    private final Connection con;
+    private final int count;
+    private final Copy copy;
+}
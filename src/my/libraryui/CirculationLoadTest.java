@@ -0,0 +1,296 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Simulates several circulation desks working at once. Each session is a
+ * thread with its own pooled connection, the way each workstation has its
+ * own, repeatedly picking an operation by the configured mix, running it
+ * through the repositories the frames use and pausing for a think time:
+ *
+ *   checkout  LoanRepository.checkout of a random copy to a random member
+ *   return    returns the oldest open loan of a random member
+ *   member    looks a member up with their loan history
+ *   book      looks a book up with its copies
+ *   reminder  files a reminder for an open loan of a random member
+ *
+ * The members are CheckoutFixture members, library.load.members of them
+ * (10 per session by default), shared by all sessions so that desks meet
+ * on the same MemberLoanStats rows and Borrows keys; fewer members means
+ * more contention. The mix is library.load.mix, by default
+ * "checkout=30,return=30,member=20,book=15,reminder=5", and the think time
+ * is drawn from an exponential distribution with mean
+ * library.load.thinkMillis (500; 0 for none). Unless library.pool.maxSize
+ * is set, the pool is sized for one connection per session.
+ *
+ * For each operation the report gives throughput, latency percentiles and
+ * how many attempts ended in each way: done, refused by a rule (the
+ * checkout limit or a trigger's SIGNAL), duplicate key, deadlock, lock
+ * wait timeout, or another error.
+ *
+ * Needs the Library database. The fixture members and their loans and
+ * reminders are deleted at the end.
+ *
+ * Run with: java -cp dist/Library.jar:lib/MySQLDriver/mysql-connector-java-5.1.23-bin.jar my.libraryui.CirculationLoadTest [sessions] [seconds]
+ */
+public class CirculationLoadTest {
+
+    public static final String MIX = System.getProperty("library.load.mix", "checkout=30,return=30,member=20,book=15,reminder=5");
+    public static final long THINK_MILLIS = Long.getLong("library.load.thinkMillis", 500L);
+
+    private static final String REMINDER_INSERT = "insert into Reminder values (?, ?, ?, ?, ?, ?)";
+    private static final String FIRST_EMPLOYEE = "select min(empID) from Employee";
+
+    private enum Op {
+        CHECKOUT, RETURN, MEMBER, BOOK, REMINDER
+    }
+
+    private enum Outcome {
+        DONE("done"), REFUSED("refused"), DUPLICATE("duplicate"), DEADLOCK("deadlock"), LOCK_TIMEOUT("lock wait"), ERROR("error");
+
+        Outcome(String label) {
+            this.label = label;
+        }
+
+        final String label;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        final int memberCount = Integer.getInteger("library.load.members", sessions * 10);
+        if (System.getProperty("library.pool.maxSize") == null) {
+            System.setProperty("library.pool.maxSize", String.valueOf(sessions + 1));
+        }
+        final int[] weights = weights(MIX);
+
+        ConnectionPool pool = ConnectionPool.getInstance();
+        ExecutorService desks = Executors.newFixedThreadPool(sessions);
+        Connection con = pool.borrow();
+        CheckoutFixture fixture = new CheckoutFixture(con, memberCount);
+        try {
+            CirculationLoadTest test = new CirculationLoadTest(fixture, new CopyRepository().positions(con), firstEmployee(con), memberCount);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> results = new ArrayList<>();
+            for (int s = 0; s < sessions; s++) {
+                results.add(desks.submit(() -> {
+                    start.await();
+                    test.session(pool, weights, System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds));
+                    return null;
+                }));
+            }
+            long began = System.nanoTime();
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+            double elapsed = (System.nanoTime() - began) / 1e9;
+            test.report(sessions, elapsed);
+        } finally {
+            fixture.clear();
+            pool.release(con);
+            desks.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    private CirculationLoadTest(CheckoutFixture fixture, List<Copy> copies, int employee, int memberCount) throws SQLException {
+        if (copies.isEmpty()) {
+            throw new SQLException("The Copies table is empty");
+        }
+        this.fixture = fixture;
+        this.copies = copies;
+        this.employee = employee;
+        this.memberCount = memberCount;
+        for (Op op : Op.values()) {
+            latencies[op.ordinal()] = new LatencyHistogram();
+        }
+    }
+
+    // One desk: runs operations on its own connection until the deadline
+    private void session(ConnectionPool pool, int[] weights, long deadline) throws Exception {
+        Random random = ThreadLocalRandom.current();
+        Connection con = pool.borrow();
+        try {
+            while (System.nanoTime() < deadline) {
+                Op op = pick(weights, random);
+                int member = fixture.memberId(random.nextInt(memberCount));
+                long start = System.nanoTime();
+                Outcome outcome;
+                try {
+                    run(con, op, member, random);
+                    outcome = Outcome.DONE;
+                } catch (SQLException ex) {
+                    outcome = classify(ex);
+                    if (!con.getAutoCommit()) {
+                        con.rollback();
+                        con.setAutoCommit(true);
+                    }
+                }
+                latencies[op.ordinal()].record((System.nanoTime() - start) / 1000);
+                outcomes.incrementAndGet(op.ordinal() * Outcome.values().length + outcome.ordinal());
+
+                if (THINK_MILLIS > 0) {
+                    long think = (long) (-Math.log(1 - random.nextDouble()) * THINK_MILLIS);
+                    long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    Thread.sleep(Math.max(0, Math.min(think, left)));
+                }
+            }
+        } finally {
+            pool.release(con);
+        }
+    }
+
+    private void run(Connection con, Op op, int member, Random random) throws SQLException {
+        LocalDate today = LocalDate.now();
+        switch (op) {
+            case CHECKOUT: {
+                // Borrowing dates spread over the loan period keep most Borrows keys distinct
+                Copy copy = copies.get(random.nextInt(copies.size()));
+                LocalDate borrowed = today.minusDays(random.nextInt(LoanRepository.MAX_LOAN_DAYS));
+                loans.checkout(con, new Loan(member, copy.getIsbn(), copy.getCopyNr(), borrowed, null));
+                break;
+            }
+            case RETURN: {
+                List<Loan> open = loans.outstanding(con, member);
+                if (!open.isEmpty()) {
+                    loans.returned(con, open.get(0), today);
+                }
+                break;
+            }
+            case MEMBER:
+                members.find(con, member);
+                loans.ofMember(con, member);
+                break;
+            case BOOK: {
+                Copy copy = copies.get(random.nextInt(copies.size()));
+                books.find(con, copy.getIsbn());
+                copyRepository.ofBook(con, copy.getIsbn());
+                break;
+            }
+            case REMINDER: {
+                List<Loan> open = loans.outstanding(con, member);
+                if (!open.isEmpty()) {
+                    Loan loan = open.get(random.nextInt(open.size()));
+                    PreparedStatement stmt = StatementCache.prepare(con, REMINDER_INSERT);
+                    stmt.setInt(1, employee);
+                    stmt.setInt(2, loan.getMemberId());
+                    stmt.setString(3, loan.getIsbn());
+                    stmt.setInt(4, loan.getCopyNr());
+                    Repository.setDate(stmt, 5, loan.getBorrowed());
+                    Repository.setDate(stmt, 6, today);
+                    stmt.executeUpdate();
+                }
+                break;
+            }
+        }
+    }
+
+    private static Outcome classify(SQLException ex) {
+        String state = ex.getSQLState() == null ? "" : ex.getSQLState();
+        if (state.equals("02000") || state.startsWith("03")) {
+            return Outcome.REFUSED;     // LoanRepository.checkout or a trigger's SIGNAL
+        }
+        switch (ex.getErrorCode()) {
+            case 1062:
+                return Outcome.DUPLICATE;
+            case 1213:
+                return Outcome.DEADLOCK;
+            case 1205:
+                return Outcome.LOCK_TIMEOUT;
+            default:
+                return Outcome.ERROR;
+        }
+    }
+
+    private void report(int sessions, double seconds) {
+        System.out.println(String.format(Locale.ROOT, "Sessions: %d, %.1f s, mix %s, think time %d ms, %d members",
+                sessions, seconds, MIX, THINK_MILLIS, memberCount));
+        StringBuilder header = new StringBuilder(String.format("%-10s %9s %8s %8s %8s %8s %8s", "Operation", "Ops", "Ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (Outcome outcome : Outcome.values()) {
+            header.append(String.format(" %10s", outcome.label));
+        }
+        System.out.println(header);
+
+        long total = 0;
+        long done = 0;
+        for (Op op : Op.values()) {
+            LatencyHistogram h = latencies[op.ordinal()];
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-10s %9d %8.1f %8.2f %8.2f %8.2f %8.2f",
+                    op.name().toLowerCase(Locale.ROOT), h.getCount(), h.getCount() / seconds,
+                    h.percentile(50) / 1000.0, h.percentile(95) / 1000.0, h.percentile(99) / 1000.0, h.getMax() / 1000.0));
+            for (Outcome outcome : Outcome.values()) {
+                line.append(String.format(" %10d", outcomes.get(op.ordinal() * Outcome.values().length + outcome.ordinal())));
+            }
+            System.out.println(line);
+            total += h.getCount();
+            done += outcomes.get(op.ordinal() * Outcome.values().length + Outcome.DONE.ordinal());
+        }
+        System.out.println(String.format(Locale.ROOT, "Total: %d attempts, %d done (%.1f per second)", total, done, done / seconds));
+    }
+
+    // Parses "name=weight,..." into cumulative weights in Op order
+    private static int[] weights(String mix) {
+        int[] weights = new int[Op.values().length];
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            weights[Op.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)).ordinal()] = Integer.parseInt(pair[1].trim());
+        }
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += weights[i - 1];
+        }
+        if (weights[weights.length - 1] <= 0) {
+            throw new IllegalArgumentException("library.load.mix has no positive weight: " + mix);
+        }
+        return weights;
+    }
+
+    private static Op pick(int[] weights, Random random) {
+        int r = random.nextInt(weights[weights.length - 1]);
+        int i = 0;
+        while (r >= weights[i]) {
+            i++;
+        }
+        return Op.values()[i];
+    }
+
+    private static int firstEmployee(Connection con) throws SQLException {
+        try (PreparedStatement stmt = con.prepareStatement(FIRST_EMPLOYEE);
+                ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+
+    private final CheckoutFixture fixture;
+    private final List<Copy> copies;
+    private final int employee;
+    private final int memberCount;
+    private final LoanRepository loans = new LoanRepository();
+    private final MemberRepository members = new MemberRepository();
+    private final BookRepository books = new BookRepository();
+    private final CopyRepository copyRepository = new CopyRepository();
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Op.values().length];
+    private final AtomicLongArray outcomes = new AtomicLongArray(Op.values().length * Outcome.values().length);
+}
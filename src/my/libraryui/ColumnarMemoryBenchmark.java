@@ -0,0 +1,180 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import javax.swing.table.TableModel;
+import net.proteanit.sql.DbUtils;
+
+/**
+ * Compares the heap held by DbUtils.resultSetToTableModel with that held by
+ * a ColumnarTableModel for the same result. Both read the same synthetic
+ * ResultSet (default 1,000,000 rows) shaped like a report row: member id,
+ * surname, publisher, title, a count, a salary and a date, with surnames
+ * and publishers drawn from small sets the way the Library data repeats
+ * them. No database is needed.
+ *
+ * Run with: java -Xmx3g -cp dist/Library.jar my.libraryui.ColumnarMemoryBenchmark [rows]
+ */
+public class ColumnarMemoryBenchmark {
+
+    private static final String[] SURNAMES = {
+        "Παπαδόπουλος", "Γεωργίου", "Οικονόμου", "Νικολάου", "Βασιλείου", "Ιωάννου",
+        "Δημητρίου", "Αθανασίου", "Κωνσταντίνου", "Χριστοδούλου", "Μακρής", "Παππάς"
+    };
+    private static final int SURNAME_COUNT = 200;
+    private static final int PUBLISHER_COUNT = 40;
+
+    private static final String[] LABELS = {"memberID", "MLast", "pubName", "title", "booksBorrowed", "salary", "HiringDate"};
+    private static final int[] TYPES = {Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.DOUBLE, Types.DATE};
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        System.out.println("Rows: " + rows);
+        System.out.println(String.format("%-22s %12s %10s %14s", "Model", "Heap (MB)", "Load (ms)", "Bytes per row"));
+
+        long before = usedHeap();
+        long start = System.nanoTime();
+        TableModel vectors = DbUtils.resultSetToTableModel(resultSet(rows));
+        long elapsed = System.nanoTime() - start;
+        long vectorBytes = usedHeap() - before;
+        report("DbUtils (Vector)", vectorBytes, elapsed, rows);
+        check(vectors, rows);
+        vectors = null;
+
+        before = usedHeap();
+        start = System.nanoTime();
+        TableModel columnar = new ColumnarTableModel(ColumnarResult.read(resultSet(rows)));
+        elapsed = System.nanoTime() - start;
+        long columnarBytes = usedHeap() - before;
+        report("ColumnarTableModel", columnarBytes, elapsed, rows);
+        check(columnar, rows);
+
+        System.out.println(String.format("Columnar uses %.1f%% of the Vector model's heap", 100.0 * columnarBytes / vectorBytes));
+    }
+
+    private static void report(String name, long bytes, long nanos, int rows) {
+        System.out.println(String.format("%-22s %12.1f %10d %14.1f", name, bytes / (1024.0 * 1024.0), nanos / 1000000, (double) bytes / rows));
+    }
+
+    // Keeps the model reachable until it has been measured, and sanity checks it
+    private static void check(TableModel model, int rows) {
+        if (model.getRowCount() != rows || !String.valueOf(model.getValueAt(rows - 1, 0)).equals(String.valueOf(rows))) {
+            throw new IllegalStateException("Unexpected model contents");
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * A forward-only ResultSet over generated rows. Like the MySQL driver it
+     * builds a new String for every text cell it returns.
+     */
+    private static ResultSet resultSet(final int rows) {
+        final ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(
+                ResultSetMetaData.class.getClassLoader(), new Class<?>[] {ResultSetMetaData.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return LABELS.length;
+                        case "getColumnLabel":
+                        case "getColumnName":
+                            return LABELS[(Integer) args[0] - 1];
+                        case "getColumnType":
+                            return TYPES[(Integer) args[0] - 1];
+                        case "isSigned":
+                            return true;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        InvocationHandler handler = new InvocationHandler() {
+            int row = 0;
+
+            @Override
+            public Object invoke(Object proxy, java.lang.reflect.Method method, Object[] args) throws SQLException {
+                switch (method.getName()) {
+                    case "next":
+                        return ++row <= rows;
+                    case "getMetaData":
+                        return meta;
+                    case "wasNull":
+                        return false;
+                    case "close":
+                        return null;
+                    case "getInt":
+                        return (int) number((Integer) args[0]);
+                    case "getLong":
+                        return number((Integer) args[0]);
+                    case "getDouble":
+                        return salary();
+                    case "getDate":
+                        return date();
+                    case "getString":
+                        return text((Integer) args[0]);
+                    case "getObject":
+                        return object((Integer) args[0]);
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+
+            private long number(int column) {
+                return column == 1 ? row : row % 6;
+            }
+
+            private double salary() {
+                return 1000 + (row % 997) * 1.5;
+            }
+
+            private Date date() {
+                return new Date((long) (row % 7000) * 24 * 60 * 60 * 1000);
+            }
+
+            private String text(int column) {
+                switch (column) {
+                    case 2:
+                        return new String(SURNAMES[row % SURNAMES.length] + (row % SURNAME_COUNT));
+                    case 3:
+                        return new String("ΕΚΔΟΣΕΙΣ " + (row % PUBLISHER_COUNT));
+                    default:
+                        return "Βιβλίο " + row;
+                }
+            }
+
+            private Object object(int column) {
+                switch (TYPES[column - 1]) {
+                    case Types.INTEGER:
+                        return (int) number(column);
+                    case Types.BIGINT:
+                        return number(column);
+                    case Types.DOUBLE:
+                        return salary();
+                    case Types.DATE:
+                        return date();
+                    default:
+                        return text(column);
+                }
+            }
+        };
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class}, handler);
+    }
+}
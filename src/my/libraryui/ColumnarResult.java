@@ -0,0 +1,438 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Query result held column by column. INT columns are kept in an int[],
+ * BIGINT in a long[], FLOAT and DOUBLE in a double[] and DATE as epoch days
+ * in an int[], with a BitSet marking NULLs. Text columns are dictionary
+ * encoded: each distinct string is stored once and rows hold an int code,
+ * which suits the publisher, category and surname columns the reports
+ * repeat. A text column that turns out to be mostly distinct (titles,
+ * ISBNs) falls back to a plain String[]. Anything else is kept as Objects.
+ *
+ * Values are boxed only when asked for through getValue, so a result costs
+ * roughly its raw size rather than one Object per cell plus a Vector per row
+ * as with DbUtils.resultSetToTableModel. ColumnarTableModel shows one in a
+ * JTable.
+ */
+public final class ColumnarResult {
+
+    /**
+     * Reads every remaining row of rs. Does not close it.
+     */
+    public static ColumnarResult read(ResultSet rs) throws SQLException {
+        return read(rs, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads at most maxRows rows of rs. Does not close it.
+     */
+    public static ColumnarResult read(ResultSet rs, int maxRows) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int count = meta.getColumnCount();
+        Column[] columns = new Column[count];
+        for (int c = 0; c < count; c++) {
+            columns[c] = Column.of(meta, c + 1);
+        }
+        int rows = 0;
+        while (rows < maxRows && rs.next()) {
+            for (int c = 0; c < count; c++) {
+                columns[c].read(rs, c + 1, rows);
+            }
+            rows++;
+        }
+        for (Column column : columns) {
+            column.trim(rows);
+        }
+        return new ColumnarResult(columns, rows);
+    }
+
+    private ColumnarResult(Column[] columns, int rowCount) {
+        this.columns = columns;
+        this.rowCount = rowCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public String getColumnName(int column) {
+        return columns[column].name;
+    }
+
+    /**
+     * Returns the class getValue returns for column.
+     */
+    public Class<?> getColumnClass(int column) {
+        return columns[column].type();
+    }
+
+    public boolean isNull(int row, int column) {
+        return columns[column].isNull(row);
+    }
+
+    /**
+     * Returns the cell boxed as the JDBC driver would have returned it from
+     * getObject, or null for NULL.
+     */
+    public Object getValue(int row, int column) {
+        return columns[column].isNull(row) ? null : columns[column].get(row);
+    }
+
+    /**
+     * Returns an INT column's value without boxing; 0 for NULL.
+     */
+    public int getInt(int row, int column) {
+        return ((IntColumn) columns[column]).values[row];
+    }
+
+    public long getLong(int row, int column) {
+        return ((LongColumn) columns[column]).values[row];
+    }
+
+    public double getDouble(int row, int column) {
+        return ((DoubleColumn) columns[column]).values[row];
+    }
+
+    public String getString(int row, int column) {
+        Object value = getValue(row, column);
+        return value == null ? null : value.toString();
+    }
+
+
+    private abstract static class Column {
+
+        static Column of(ResultSetMetaData meta, int index) throws SQLException {
+            String name = meta.getColumnLabel(index);
+            switch (meta.getColumnType(index)) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                    return new IntColumn(name);
+                case Types.INTEGER:
+                    return meta.isSigned(index) ? new IntColumn(name) : new LongColumn(name);
+                case Types.BIGINT:
+                    return new LongColumn(name);
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    return new DoubleColumn(name);
+                case Types.DATE:
+                    return new DateColumn(name);
+                case Types.CHAR:
+                case Types.VARCHAR:
+                case Types.LONGVARCHAR:
+                case Types.NCHAR:
+                case Types.NVARCHAR:
+                case Types.LONGNVARCHAR:
+                    return new StringColumn(name);
+                default:
+                    return new ObjectColumn(name);
+            }
+        }
+
+        Column(String name) {
+            this.name = name;
+        }
+
+        abstract void read(ResultSet rs, int index, int row) throws SQLException;
+
+        abstract Object get(int row);
+
+        abstract Class<?> type();
+
+        // Shrinks the backing arrays to rows once the result is complete
+        abstract void trim(int rows);
+
+        boolean isNull(int row) {
+            return nulls.get(row);
+        }
+
+        static int grow(int length, int row) {
+            return row < length ? length : Math.max(16, length * 2);
+        }
+
+        final String name;
+        final BitSet nulls = new BitSet();
+    }
+
+    private static final class IntColumn extends Column {
+        IntColumn(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row));
+            }
+            values[row] = rs.getInt(index);
+            if (rs.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        Class<?> type() {
+            return Integer.class;
+        }
+
+        @Override
+        void trim(int rows) {
+            values = Arrays.copyOf(values, rows);
+        }
+
+        int[] values = new int[0];
+    }
+
+    private static final class LongColumn extends Column {
+        LongColumn(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row));
+            }
+            values[row] = rs.getLong(index);
+            if (rs.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        Class<?> type() {
+            return Long.class;
+        }
+
+        @Override
+        void trim(int rows) {
+            values = Arrays.copyOf(values, rows);
+        }
+
+        long[] values = new long[0];
+    }
+
+    private static final class DoubleColumn extends Column {
+        DoubleColumn(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row));
+            }
+            values[row] = rs.getDouble(index);
+            if (rs.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        Class<?> type() {
+            return Double.class;
+        }
+
+        @Override
+        void trim(int rows) {
+            values = Arrays.copyOf(values, rows);
+        }
+
+        double[] values = new double[0];
+    }
+
+    private static final class DateColumn extends Column {
+        DateColumn(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            if (row == days.length) {
+                days = Arrays.copyOf(days, grow(days.length, row));
+            }
+            Date date = rs.getDate(index);
+            if (date == null) {
+                nulls.set(row);
+            } else {
+                days[row] = (int) date.toLocalDate().toEpochDay();
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return Date.valueOf(LocalDate.ofEpochDay(days[row]));
+        }
+
+        @Override
+        Class<?> type() {
+            return Date.class;
+        }
+
+        @Override
+        void trim(int rows) {
+            days = Arrays.copyOf(days, rows);
+        }
+
+        int[] days = new int[0];
+    }
+
+    /**
+     * Dictionary encoded while the column repeats itself; switches to plain
+     * strings once more than half of the rows read so far are distinct.
+     */
+    private static final class StringColumn extends Column {
+        private static final int MIN_ROWS_BEFORE_FALLBACK = 1024;
+
+        StringColumn(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            String value = rs.getString(index);
+            if (value == null) {
+                nulls.set(row);
+            }
+            if (plain != null) {
+                if (row == plain.length) {
+                    plain = Arrays.copyOf(plain, grow(plain.length, row));
+                }
+                plain[row] = value;
+                return;
+            }
+
+            if (row == codes.length) {
+                codes = Arrays.copyOf(codes, grow(codes.length, row));
+            }
+            if (value != null) {
+                codes[row] = index(value);
+            }
+            if (row >= MIN_ROWS_BEFORE_FALLBACK && dictionary.size() > (row + 1) / 2) {
+                decode(row + 1);
+            }
+        }
+
+        private int index(String value) {
+            Integer code = codesByValue.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codesByValue.put(value, code);
+            }
+            return code;
+        }
+
+        private void decode(int rows) {
+            plain = new String[codes.length];
+            for (int r = 0; r < rows; r++) {
+                if (!nulls.get(r)) {
+                    plain[r] = dictionary.get(codes[r]);
+                }
+            }
+            codes = null;
+            dictionary = null;
+            codesByValue = null;
+        }
+
+        @Override
+        Object get(int row) {
+            return plain != null ? plain[row] : dictionary.get(codes[row]);
+        }
+
+        @Override
+        Class<?> type() {
+            return String.class;
+        }
+
+        @Override
+        void trim(int rows) {
+            if (plain != null) {
+                plain = Arrays.copyOf(plain, rows);
+            } else {
+                codes = Arrays.copyOf(codes, rows);
+                codesByValue = null;    // only needed while reading
+                dictionary.trimToSize();
+            }
+        }
+
+        int[] codes = new int[0];
+        ArrayList<String> dictionary = new ArrayList<>();
+        Map<String, Integer> codesByValue = new HashMap<>();
+        String[] plain = null;
+    }
+
+    private static final class ObjectColumn extends Column {
+        ObjectColumn(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row));
+            }
+            values[row] = rs.getObject(index);
+            if (values[row] == null) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        Class<?> type() {
+            return Object.class;
+        }
+
+        @Override
+        void trim(int rows) {
+            values = Arrays.copyOf(values, rows);
+        }
+
+        Object[] values = new Object[0];
+    }
+
+
+    private final Column[] columns;
+    private final int rowCount;
+}
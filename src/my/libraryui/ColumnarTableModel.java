@@ -0,0 +1,46 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Read-only TableModel showing a ColumnarResult. Cells are boxed as they are
+ * painted instead of being held boxed for the life of the table.
+ */
+public class ColumnarTableModel extends AbstractTableModel {
+
+    public ColumnarTableModel(ColumnarResult result) {
+        this.result = result;
+    }
+
+    @Override
+    public int getRowCount() {
+        return result.getRowCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return result.getColumnCount();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return result.getColumnName(column);
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return result.getValue(row, column);
+    }
+
+    public ColumnarResult getResult() {
+        return result;
+    }
+
+
+    private final ColumnarResult result;
+}
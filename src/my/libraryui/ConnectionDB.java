@@ -6,45 +6,58 @@
 package my.libraryui;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import javax.swing.JOptionPane;
 
 
+/**
+ * A frame's handle on the shared ConnectionPool. The frame's DbExecutor
+ * borrows a connection into it for each task and hands it back when the
+ * task ends, so an open frame holds no connection while it waits for the
+ * user, and a pool with none free fails that one task instead of the
+ * whole application.
+ */
 public class ConnectionDB {
     /**
-     * Creates new ConnectionDB
+     * Creates new ConnectionDB; no connection is borrowed until open.
      */
     public ConnectionDB() {
-        ConnectToMysqlDatabase();
     }
-    
-    private void ConnectToMysqlDatabase() {
-        // Connection strings //
-        String mysql_url = "jdbc:mysql://127.0.0.1:3306/Library?characterEncoding=utf8";
-        String mysql_driver = "com.mysql.jdbc.Driver";
-        String mysql_user = "libuser";
-        String mysql_passwd = "libuser";
-        
-        try {
-            connection = DriverManager.getConnection(mysql_url, mysql_user, mysql_passwd);
-        }
-        catch (SQLException ex) {
-            // show a joptionpane dialog using showMessageDialog
-            JOptionPane.showMessageDialog(null, "Error on Database connection!" );
-            System.exit(0);
+
+    /**
+     * Borrows a connection from the pool unless one is held already. Called
+     * on a DbExecutor thread, since it may wait for a free connection.
+     */
+    public void open() throws SQLException {
+        if (connection == null) {
+            connection = ConnectionPool.getInstance().borrow();
         }
     }
-    
+
+    /**
+     * Returns the connection to the pool. Safe to call more than once.
+     */
     public void closeCon() {
-        try {
-            connection.close();
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(null, "Error on close Database!" );
+        if (connection != null) {
+            ConnectionPool.getInstance().release(connection);
+            connection = null;
         }
     }
 
-    
+
+    /**
+     * Returns the cached prepared statement for sql on this connection.
+     * Bind its parameters and execute it; do not close it.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        return StatementCache.prepare(connection, sql);
+    }
+
+    public PreparedStatement prepare(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return StatementCache.prepare(connection, sql, resultSetType, resultSetConcurrency);
+    }
+
+
     public Connection connection = null;
-    
+
 }
@@ -0,0 +1,277 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide bounded pool of MySQL connections.
+ * Every ConnectionDB borrows from here for the length of one DbExecutor
+ * task, so the server never sees more than library.pool.maxSize
+ * connections from one workstation, however many frames are open. Each
+ * connection is wrapped by JdbcStats when it is opened, and its server
+ * session id is kept so ChangeLogPoller can tell this workstation's writes
+ * from the others'.
+ */
+public final class ConnectionPool {
+
+    // Connection strings //
+    private static final String MYSQL_URL = System.getProperty("library.db.url", "jdbc:mysql://127.0.0.1:3306/Library?characterEncoding=utf8&useServerPrepStmts=true");
+    private static final String MYSQL_USER = System.getProperty("library.db.user", "libuser");
+    private static final String MYSQL_PASSWD = System.getProperty("library.db.password", "libuser");
+
+    // Pool settings (milliseconds unless noted) //
+    private static final int MAX_SIZE = Integer.getInteger("library.pool.maxSize", 8);
+    private static final long BORROW_TIMEOUT = Long.getLong("library.pool.borrowTimeout", 10000L);
+    private static final long IDLE_TIMEOUT = Long.getLong("library.pool.idleTimeout", 5 * 60 * 1000L);
+    private static final long MAX_LIFETIME = Long.getLong("library.pool.maxLifetime", 30 * 60 * 1000L);
+    private static final long EVICTION_INTERVAL = 30 * 1000L;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    // A connection handed back this recently is trusted without a ping
+    private static final long VALIDATION_BYPASS = 500L;
+
+    private static final ConnectionPool INSTANCE = new ConnectionPool();
+
+    public static ConnectionPool getInstance() {
+        return INSTANCE;
+    }
+
+    private ConnectionPool() {
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ConnectionPool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, reusing an idle one when possible and waiting up
+     * to library.pool.borrowTimeout when all MAX_SIZE connections are in use.
+     */
+    public Connection borrow() throws SQLException {
+        long deadline = System.currentTimeMillis() + BORROW_TIMEOUT;
+        while (true) {
+            Entry entry;
+            synchronized (this) {
+                while (!closed && idle.isEmpty() && total >= MAX_SIZE) {
+                    long wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        throw new SQLTimeoutException("Timed out waiting for a database connection");
+                    }
+                    try {
+                        wait(wait);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", ex);
+                    }
+                }
+                if (closed) {
+                    throw new SQLException("Connection pool is shut down");
+                }
+                entry = idle.pollFirst();
+                if (entry == null) {
+                    total++;    // reserve the slot, connect outside the lock
+                }
+            }
+
+            if (entry == null) {
+                try {
+                    Connection con = JdbcStats.instrument(DriverManager.getConnection(MYSQL_URL, MYSQL_USER, MYSQL_PASSWD));
+                    entry = new Entry(con, sessionId(con));
+                    sessions.add(entry.sessionId);
+                } catch (SQLException ex) {
+                    synchronized (this) {
+                        total--;
+                        notifyAll();
+                    }
+                    throw ex;
+                }
+            } else if (!isUsable(entry)) {
+                discard(entry);
+                continue;
+            }
+
+            synchronized (this) {
+                borrowed.put(entry.connection, entry);
+            }
+            return entry.connection;
+        }
+    }
+
+    /**
+     * Hands a borrowed connection back. Connections that are closed, past
+     * their max lifetime or left in a transaction are reset or dropped.
+     */
+    public void release(Connection con) {
+        if (con == null) {
+            return;
+        }
+        Entry entry;
+        synchronized (this) {
+            entry = borrowed.remove(con);
+        }
+        if (entry == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        entry.lastUsed = now;
+        boolean keep;
+        try {
+            keep = !con.isClosed() && now - entry.created < MAX_LIFETIME;
+            if (keep && !con.getAutoCommit()) {
+                con.rollback();
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            keep = false;
+        }
+
+        if (keep) {
+            synchronized (this) {
+                if (!closed) {
+                    idle.addFirst(entry);
+                    notifyAll();
+                    return;
+                }
+            }
+        }
+        discard(entry);
+    }
+
+    /**
+     * Closes every idle connection and refuses further borrows.
+     * Connections still borrowed are closed as they are released.
+     */
+    public void shutdown() {
+        ArrayDeque<Entry> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayDeque<>(idle);
+            idle.clear();
+            notifyAll();
+        }
+        evictor.shutdownNow();
+        for (Entry entry : toClose) {
+            discard(entry);
+        }
+    }
+
+    /**
+     * Whether sessionId (MySQL's CONNECTION_ID()) is one of this pool's open connections.
+     */
+    public boolean isLocalSession(long sessionId) {
+        return sessions.contains(sessionId);
+    }
+
+    public synchronized int getTotalCount() {
+        return total;
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    public synchronized int getBorrowedCount() {
+        return borrowed.size();
+    }
+
+    private boolean isUsable(Entry entry) {
+        long now = System.currentTimeMillis();
+        if (now - entry.created >= MAX_LIFETIME) {
+            return false;
+        }
+        if (now - entry.lastUsed < VALIDATION_BYPASS) {
+            return true;
+        }
+        try {
+            return entry.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void evictIdle() {
+        ArrayDeque<Entry> expired = new ArrayDeque<>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Iterator<Entry> it = idle.iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (now - entry.lastUsed >= IDLE_TIMEOUT || now - entry.created >= MAX_LIFETIME) {
+                    it.remove();
+                    expired.add(entry);
+                }
+            }
+        }
+        for (Entry entry : expired) {
+            discard(entry);
+        }
+    }
+
+    private static long sessionId(Connection con) throws SQLException {
+        try (Statement stmt = con.createStatement();
+                ResultSet rs = stmt.executeQuery("select connection_id()")) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException ex) {
+            con.close();
+            throw ex;
+        }
+    }
+
+    private void discard(Entry entry) {
+        sessions.remove(entry.sessionId);
+        StatementCache.evict(entry.connection);
+        try {
+            entry.connection.close();
+        } catch (SQLException ex) {
+        }
+        synchronized (this) {
+            total--;
+            notifyAll();
+        }
+    }
+
+
+    private static final class Entry {
+        Entry(Connection connection, long sessionId) {
+            this.connection = connection;
+            this.sessionId = sessionId;
+            this.created = System.currentTimeMillis();
+            this.lastUsed = this.created;
+        }
+
+        final Connection connection;
+        final long sessionId;
+        final long created;
+        long lastUsed;
+    }
+
+
+    private final ScheduledExecutorService evictor;
+    // Most recently released first, so hot connections stay hot and cold ones age out
+    private final ArrayDeque<Entry> idle = new ArrayDeque<>();
+    private final Map<Connection, Entry> borrowed = new IdentityHashMap<>();
+    private final Set<Long> sessions = ConcurrentHashMap.newKeySet();
+    private int total = 0;
+    private boolean closed = false;
+}
@@ -0,0 +1,42 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+/**
+ * A row of the Copies table, with the title of its book when it was read
+ * joined to Book (null otherwise). shelf is null when NULL.
+ */
+public final class Copy {
+
+    public Copy(String isbn, int copyNr, Integer shelf, String title) {
+        this.isbn = isbn;
+        this.copyNr = copyNr;
+        this.shelf = shelf;
+        this.title = title;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public int getCopyNr() {
+        return copyNr;
+    }
+
+    public Integer getShelf() {
+        return shelf;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+
+    private final String isbn;
+    private final int copyNr;
+    private final Integer shelf;
+    private final String title;
+}
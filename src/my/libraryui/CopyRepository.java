@@ -0,0 +1,72 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Reads and writes the Copies table as Copy records.
+ */
+public class CopyRepository extends Repository<Copy> {
+
+    @Override
+    protected Copy map(ResultSet rs) throws SQLException {
+        return new Copy(rs.getString(1), rs.getInt(2), getInteger(rs, 3), rs.getString(4));
+    }
+
+    /**
+     * Returns every copy with the title of its book, in BookPosition order.
+     */
+    public List<Copy> positions(Connection con) throws SQLException {
+        return list(StatementCache.prepare(con, Sql.COPY_POSITIONS));
+    }
+
+    /**
+     * Returns the copies of one book, as positions does.
+     */
+    public List<Copy> positionsOfBook(Connection con, String isbn) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.COPY_POSITIONS_OF_BOOK);
+        stmt.setString(1, isbn);
+        return list(stmt);
+    }
+
+    public List<Copy> ofBook(Connection con, String isbn) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.COPIES_OF_BOOK);
+        stmt.setString(1, isbn);
+        return list(stmt);
+    }
+
+    public void insert(Connection con, Copy copy) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.COPY_INSERT);
+        stmt.setString(1, copy.getIsbn());
+        stmt.setInt(2, copy.getCopyNr());
+        setInt(stmt, 3, copy.getShelf());
+        stmt.executeUpdate();
+    }
+
+    public void moveCopy(Connection con, String isbn, int copyNr, int shelf) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.COPY_SHELF_UPDATE);
+        stmt.setInt(1, shelf);
+        stmt.setString(2, isbn);
+        stmt.setInt(3, copyNr);
+        stmt.executeUpdate();
+    }
+
+    /**
+     * Moves every copy of the book titled title to shelf, through the
+     * BookPosition view.
+     */
+    public void moveTitle(Connection con, String title, int shelf) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.BOOK_POSITION_UPDATE);
+        stmt.setInt(1, shelf);
+        stmt.setString(2, title);
+        stmt.executeUpdate();
+    }
+}
@@ -0,0 +1,555 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import javax.swing.table.TableModel;
+import net.proteanit.sql.DbUtils;
+
+/**
+ * Average time per operation of the data-access paths the frames use:
+ * first/next/previous navigation of the three record frames, single-row
+ * insert, update and delete per entity, every report query, a type-ahead
+ * lookup in the TitleIndex, the first and a later page of a full-text
+ * catalog search, and turning a report result into a TableModel with
+ * DbUtils or ColumnarTableModel.
+ *
+ * Each benchmark runs library.bench.warmup warm-up iterations and
+ * library.bench.iterations measured ones (3 and 5 by default), each
+ * library.bench.iterationSeconds long (2), on one pooled connection. Only
+ * the operation itself is timed. Results are printed and written to
+ * library.bench.resultFile (jmh-result.json) in the JSON layout JMH uses
+ * for -rf json, so runs can be compared with the same tools; the score
+ * error is the 99.9% confidence interval, as in JMH.
+ *
+ * The optional argument is a regular expression; only benchmarks whose
+ * name it finds are run. Rows written by the write benchmarks use keys no
+ * real data has (ISBNs 979-9..., member ids from 2,000,000,000, publishers
+ * named "Benchmark ...") and are deleted at the end.
+ *
+ * Needs the Library database, preferably filled by DatasetGenerator.
+ *
+ * Run with: java -cp dist/Library.jar:lib/rs2xml.jar:lib/MySQLDriver/mysql-connector-java-5.1.23-bin.jar my.libraryui.DataAccessBenchmark [regex]
+ */
+public class DataAccessBenchmark {
+
+    public static final int WARMUP_ITERATIONS = Integer.getInteger("library.bench.warmup", 3);
+    public static final int ITERATIONS = Integer.getInteger("library.bench.iterations", 5);
+    public static final int ITERATION_SECONDS = Integer.getInteger("library.bench.iterationSeconds", 2);
+    public static final String RESULT_FILE = System.getProperty("library.bench.resultFile", "jmh-result.json");
+
+    private static final String BENCH_PUBLISHER = "Benchmark Publisher";
+    private static final int FIRST_MEMBER_ID = 2000000000;
+    private static final int FIRST_ISBN = 900000000;
+    // Two-sided 99.9% Student t quantiles for 1 to 30 degrees of freedom
+    private static final double[] T_999 = {
+        636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+        4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+        3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646
+    };
+
+    public static void main(String[] args) throws Exception {
+        Pattern filter = Pattern.compile(args.length > 0 ? args[0] : "");
+        ConnectionPool pool = ConnectionPool.getInstance();
+        Connection con = pool.borrow();
+        List<Result> results = new ArrayList<>();
+        try {
+            clearWrites(con);
+            List<Benchmark> benchmarks = benchmarks(con);
+            System.out.println(String.format("%-40s %12s %10s %8s", "Benchmark", "Score", "Error", "Units"));
+            for (Benchmark benchmark : benchmarks) {
+                if (filter.matcher(benchmark.name).find()) {
+                    Result result = run(con, benchmark);
+                    results.add(result);
+                    System.out.println(String.format(Locale.ROOT, "%-40s %12.3f %10.3f %8s", benchmark.name, result.score(), result.error(), "us/op"));
+                }
+            }
+        } finally {
+            clearWrites(con);
+            pool.release(con);
+            pool.shutdown();
+        }
+        writeJson(results);
+        System.out.println("Results written to " + RESULT_FILE);
+    }
+
+    private static Result run(Connection con, Benchmark benchmark) throws Exception {
+        benchmark.setUp(con);
+        try {
+            Result result = new Result(benchmark.name);
+            for (int i = 0; i < WARMUP_ITERATIONS + ITERATIONS; i++) {
+                double score = iteration(con, benchmark);
+                if (i >= WARMUP_ITERATIONS) {
+                    result.iterations.add(score);
+                }
+            }
+            return result;
+        } finally {
+            benchmark.tearDown(con);
+        }
+    }
+
+    // Returns the mean microseconds per counted step over one iteration
+    private static double iteration(Connection con, Benchmark benchmark) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(ITERATION_SECONDS);
+        long nanos = 0;
+        long ops = 0;
+        while (System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            boolean counted = benchmark.step(con);
+            long elapsed = System.nanoTime() - start;
+            if (counted) {
+                nanos += elapsed;
+                ops++;
+            }
+        }
+        return ops == 0 ? Double.NaN : nanos / 1000.0 / ops;
+    }
+
+    private static List<Benchmark> benchmarks(Connection con) throws SQLException {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        navigation(benchmarks, "book", BookModel::new);
+        navigation(benchmarks, "member", MemberModel::new);
+        navigation(benchmarks, "publisher", PublisherModel::new);
+
+        benchmarks.addAll(publisherWrites());
+        benchmarks.addAll(bookWrites());
+        benchmarks.addAll(memberWrites());
+
+        String publisher = firstValue(con, Sql.PUBLISHER_NAMES);
+        String isbn = firstValue(con, Sql.COPY_POSITIONS);
+        benchmarks.add(report("report.borrowedCount", Sql.BORROWED_COUNT));
+        benchmarks.add(report("report.borrowedFive", Sql.BORROWED_FIVE));
+        benchmarks.add(report("report.booksWritten", Sql.BOOKS_WRITTEN));
+        benchmarks.add(report("report.olderEmployees", Sql.OLDER_EMPLOYEES));
+        benchmarks.add(report("report.totalSalaries", Sql.TOTAL_SALARIES));
+        benchmarks.add(report("report.pubAfterYear", Sql.PUB_AFTER_YEAR, 2000));
+        benchmarks.add(report("report.publishedBy", Sql.PUBLISHED_BY, publisher));
+        benchmarks.add(report("report.bookPosition", Sql.BOOK_POSITION_BY_ISBN, isbn));
+        benchmarks.add(titleSearch(TitleIndex.load(con)));
+        String word = searchWord(con);
+        benchmarks.add(catalogSearch("search.catalog.firstPage", word, 0));
+        benchmarks.add(catalogSearch("search.catalog.toPage5", word, 4));
+
+        benchmarks.add(new Benchmark("tableModel.dbUtils") {
+            @Override
+            boolean step(Connection con) throws Exception {
+                PreparedStatement stmt = StatementCache.prepare(con, Sql.COPY_POSITIONS);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    TableModel model = DbUtils.resultSetToTableModel(rs);
+                    sink += model.getRowCount();
+                }
+                return true;
+            }
+        });
+        benchmarks.add(new Benchmark("tableModel.columnar") {
+            @Override
+            boolean step(Connection con) throws Exception {
+                PreparedStatement stmt = StatementCache.prepare(con, Sql.COPY_POSITIONS);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    TableModel model = new ColumnarTableModel(ColumnarResult.read(rs));
+                    sink += model.getRowCount();
+                }
+                return true;
+            }
+        });
+        return benchmarks;
+    }
+
+    // first, next and previous through the model a record frame browses with
+    private static <T> void navigation(List<Benchmark> benchmarks, String entity, Supplier<RecordModel<T>> models) {
+        benchmarks.add(new Benchmark("navigation." + entity + ".first") {
+            @Override
+            boolean step(Connection con) throws Exception {
+                sink += model.first(con) == null ? 0 : 1;
+                return true;
+            }
+
+            private final RecordModel<T> model = models.get();
+        });
+        benchmarks.add(new Benchmark("navigation." + entity + ".next") {
+            @Override
+            void setUp(Connection con) throws SQLException {
+                model.first(con);
+            }
+
+            @Override
+            boolean step(Connection con) throws Exception {
+                if (model.next(con) == null) {
+                    model.first(con);
+                    return false;
+                }
+                return true;
+            }
+
+            private final RecordModel<T> model = models.get();
+        });
+        benchmarks.add(new Benchmark("navigation." + entity + ".previous") {
+            @Override
+            boolean step(Connection con) throws Exception {
+                if (model.previous(con) == null) {
+                    // Walk forward again so the next steps cross page boundaries backwards
+                    model.first(con);
+                    for (int i = 0; i < 4 * KeysetNavigator.DEFAULT_PAGE_SIZE; i++) {
+                        if (model.next(con) == null) {
+                            break;
+                        }
+                    }
+                    return false;
+                }
+                return true;
+            }
+
+            private final RecordModel<T> model = models.get();
+        });
+    }
+
+    private static List<Benchmark> publisherWrites() {
+        PublisherRepository publishers = new PublisherRepository();
+        Writes<String> writes = new Writes<String>("publisher") {
+            @Override
+            String insert(Connection con, int n) throws SQLException {
+                String name = BENCH_PUBLISHER + " " + n;
+                publishers.insert(con, new Publisher(name, 1900, "Street", "1", "12345"));
+                return name;
+            }
+
+            @Override
+            void update(Connection con, String name, int n) throws SQLException {
+                publishers.update(con, name, new Publisher(name, 1900 + n % 50, "Street", "1", "12345"));
+            }
+
+            @Override
+            void delete(Connection con, String name) throws SQLException {
+                publishers.delete(con, name);
+            }
+        };
+        return writes.benchmarks();
+    }
+
+    private static List<Benchmark> bookWrites() {
+        BookRepository books = new BookRepository();
+        PublisherRepository publishers = new PublisherRepository();
+        Writes<String> writes = new Writes<String>("book") {
+            @Override
+            void setUp(Connection con) throws SQLException {
+                if (publishers.find(con, BENCH_PUBLISHER) == null) {
+                    publishers.insert(con, new Publisher(BENCH_PUBLISHER, 1900, "Street", "1", "12345"));
+                }
+            }
+
+            @Override
+            String insert(Connection con, int n) throws SQLException {
+                String isbn = String.format("979-%09d", FIRST_ISBN + n);
+                books.insert(con, new Book(isbn, "Benchmark " + n, 2000, 100, BENCH_PUBLISHER));
+                return isbn;
+            }
+
+            @Override
+            void update(Connection con, String isbn, int n) throws SQLException {
+                books.update(con, isbn, new Book(isbn, "Benchmark " + n, 2000, 100 + n % 500, BENCH_PUBLISHER));
+            }
+
+            @Override
+            void delete(Connection con, String isbn) throws SQLException {
+                books.delete(con, isbn);
+            }
+        };
+        return writes.benchmarks();
+    }
+
+    private static List<Benchmark> memberWrites() {
+        MemberRepository members = new MemberRepository();
+        LocalDate birthdate = LocalDate.of(1980, 1, 1);
+        Writes<Integer> writes = new Writes<Integer>("member") {
+            @Override
+            Integer insert(Connection con, int n) throws SQLException {
+                members.insert(con, new Member(FIRST_MEMBER_ID + n, "Bench", "Mark", "Street", "1", "12345", birthdate));
+                return FIRST_MEMBER_ID + n;
+            }
+
+            @Override
+            void update(Connection con, Integer id, int n) throws SQLException {
+                members.update(con, id, new Member(id, "Bench", "Mark " + n, "Street", "1", "12345", birthdate));
+            }
+
+            @Override
+            void delete(Connection con, Integer id) throws SQLException {
+                members.delete(con, id);
+            }
+        };
+        return writes.benchmarks();
+    }
+
+    // Runs sql to the last row, the way LazyTableModel fills its first page
+    private static Benchmark report(String name, String sql, Object... parameters) {
+        return new Benchmark(name) {
+            @Override
+            boolean step(Connection con) throws Exception {
+                PreparedStatement stmt = StatementCache.prepare(con, sql);
+                for (int i = 0; i < parameters.length; i++) {
+                    stmt.setObject(i + 1, parameters[i]);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    int columns = rs.getMetaData().getColumnCount();
+                    while (rs.next()) {
+                        for (int c = 1; c <= columns; c++) {
+                            sink += rs.getObject(c) == null ? 0 : 1;
+                        }
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+    // One type-ahead lookup per step, for the first one to three letters of each title in turn
+    private static Benchmark titleSearch(TitleIndex index) {
+        List<TitleIndex.Match> all = index.find("", Integer.MAX_VALUE);
+        return new Benchmark("titleIndex.find") {
+            @Override
+            boolean step(Connection con) {
+                if (all.isEmpty()) {
+                    return false;
+                }
+                String title = all.get(next % all.size()).getTitle();
+                String prefix = title.substring(0, Math.min(title.length(), 1 + next % 3));
+                next++;
+                sink += index.find(prefix, TitleIndex.DEFAULT_LIMIT).size();
+                return true;
+            }
+
+            private int next = 0;
+        };
+    }
+
+    // One search per step, then page more pages with next, the way a user leafs through the results
+    private static Benchmark catalogSearch(String name, String words, int page) {
+        return new Benchmark(name) {
+            @Override
+            boolean step(Connection con) throws Exception {
+                CatalogSearchModel model = new CatalogSearchModel();
+                ColumnarResult result = model.search(con, words);
+                for (int i = 0; i < page && result != null; i++) {
+                    result = model.next(con);
+                }
+                sink += result == null ? 0 : result.getRowCount();
+                return true;
+            }
+        };
+    }
+
+    // The last word of a real title, so the search finds what the generated data has
+    private static String searchWord(Connection con) throws SQLException {
+        String title = firstValue(con, Sql.TITLE_INDEX).trim();
+        return title.substring(title.lastIndexOf(' ') + 1);
+    }
+
+    private static String firstValue(Connection con, String sql) throws SQLException {
+        try (PreparedStatement stmt = con.prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getString(1) : "";
+        }
+    }
+
+    // Deletes whatever the write benchmarks left behind
+    private static void clearWrites(Connection con) throws SQLException {
+        try (PreparedStatement books = con.prepareStatement("delete from Book where pubName like 'Benchmark Publisher%'");
+                PreparedStatement publishers = con.prepareStatement("delete from Publisher where pubName like 'Benchmark Publisher%'");
+                PreparedStatement members = con.prepareStatement("delete from Member where memberID >= ?")) {
+            books.executeUpdate();
+            publishers.executeUpdate();
+            members.setInt(1, FIRST_MEMBER_ID);
+            members.executeUpdate();
+        }
+    }
+
+    private static void writeJson(List<Result> results) throws IOException {
+        try (Writer out = Files.newBufferedWriter(Paths.get(RESULT_FILE), StandardCharsets.UTF_8)) {
+            out.write("[\n");
+            for (int i = 0; i < results.size(); i++) {
+                Result r = results.get(i);
+                StringBuilder raw = new StringBuilder();
+                for (double score : r.iterations) {
+                    raw.append(raw.length() == 0 ? "" : ", ").append(number(score));
+                }
+                out.write(String.format(Locale.ROOT, "    {%n"
+                        + "        \"benchmark\" : \"my.libraryui.DataAccessBenchmark.%s\",%n"
+                        + "        \"mode\" : \"avgt\",%n"
+                        + "        \"threads\" : 1,%n"
+                        + "        \"forks\" : 0,%n"
+                        + "        \"warmupIterations\" : %d,%n"
+                        + "        \"warmupTime\" : \"%d s\",%n"
+                        + "        \"measurementIterations\" : %d,%n"
+                        + "        \"measurementTime\" : \"%d s\",%n"
+                        + "        \"primaryMetric\" : {%n"
+                        + "            \"score\" : %s,%n"
+                        + "            \"scoreError\" : %s,%n"
+                        + "            \"scoreUnit\" : \"us/op\",%n"
+                        + "            \"rawData\" : [[%s]]%n"
+                        + "        }%n"
+                        + "    }%s%n",
+                        r.name, WARMUP_ITERATIONS, ITERATION_SECONDS, ITERATIONS, ITERATION_SECONDS,
+                        number(r.score()), number(r.error()), raw, i + 1 < results.size() ? "," : ""));
+            }
+            out.write("]\n");
+        }
+    }
+
+    // JSON has no NaN; JMH writes it as a string
+    private static String number(double value) {
+        return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    /**
+     * One benchmark. step is timed; it returns false when it only
+     * repositioned and should not be counted.
+     */
+    private abstract static class Benchmark {
+        Benchmark(String name) {
+            this.name = name;
+        }
+
+        void setUp(Connection con) throws SQLException {
+        }
+
+        abstract boolean step(Connection con) throws Exception;
+
+        void tearDown(Connection con) throws SQLException {
+        }
+
+        final String name;
+        // Consumed results, so the JIT cannot drop the work that produced them
+        long sink;
+    }
+
+    /**
+     * insert, update and delete benchmarks of one entity. The insert
+     * benchmark leaves its rows for update and delete to use; delete inserts
+     * a row, untimed, when it runs out.
+     */
+    private abstract static class Writes<K> {
+        Writes(String entity) {
+            this.entity = entity;
+        }
+
+        void setUp(Connection con) throws SQLException {
+        }
+
+        abstract K insert(Connection con, int n) throws SQLException;
+
+        abstract void update(Connection con, K key, int n) throws SQLException;
+
+        abstract void delete(Connection con, K key) throws SQLException;
+
+        List<Benchmark> benchmarks() {
+            List<Benchmark> benchmarks = new ArrayList<>();
+            benchmarks.add(new Benchmark("write." + entity + ".insert") {
+                @Override
+                void setUp(Connection con) throws SQLException {
+                    Writes.this.setUp(con);
+                }
+
+                @Override
+                boolean step(Connection con) throws Exception {
+                    keys.addLast(insert(con, next++));
+                    return true;
+                }
+            });
+            benchmarks.add(new Benchmark("write." + entity + ".update") {
+                @Override
+                void setUp(Connection con) throws SQLException {
+                    Writes.this.setUp(con);
+                    if (keys.isEmpty()) {
+                        keys.addLast(insert(con, next++));
+                    }
+                }
+
+                @Override
+                boolean step(Connection con) throws Exception {
+                    K key = keys.pollFirst();
+                    update(con, key, updates++);
+                    keys.addLast(key);
+                    return true;
+                }
+            });
+            benchmarks.add(new Benchmark("write." + entity + ".delete") {
+                @Override
+                void setUp(Connection con) throws SQLException {
+                    Writes.this.setUp(con);
+                }
+
+                @Override
+                boolean step(Connection con) throws Exception {
+                    if (keys.isEmpty()) {
+                        keys.addLast(insert(con, next++));
+                        return false;
+                    }
+                    delete(con, keys.pollFirst());
+                    return true;
+                }
+            });
+            return benchmarks;
+        }
+
+        final String entity;
+        final Deque<K> keys = new ArrayDeque<>();
+        int next = 0;
+        int updates = 0;
+    }
+
+    /**
+     * Measured iterations of one benchmark, in microseconds per operation.
+     */
+    private static final class Result {
+        Result(String name) {
+            this.name = name;
+        }
+
+        double score() {
+            double sum = 0;
+            for (double score : iterations) {
+                sum += score;
+            }
+            return sum / iterations.size();
+        }
+
+        // Half-width of the 99.9% confidence interval of the mean
+        double error() {
+            int n = iterations.size();
+            if (n < 2) {
+                return Double.NaN;
+            }
+            double mean = score();
+            double squares = 0;
+            for (double score : iterations) {
+                squares += (score - mean) * (score - mean);
+            }
+            double t = n - 1 <= T_999.length ? T_999[n - 2] : 3.291;
+            return t * Math.sqrt(squares / (n - 1)) / Math.sqrt(n);
+        }
+
+        final String name;
+        final List<Double> iterations = new ArrayList<>();
+    }
+}
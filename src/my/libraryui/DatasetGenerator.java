@@ -0,0 +1,496 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fills the Library database with a large, referentially valid dataset:
+ * publishers, categories, authors, books with their copies, authors and
+ * categories, members, employees of both kinds, and years of loan history
+ * with reminders for the loans returned late. It adds to whatever is there,
+ * numbering new members, authors and employees after the highest existing
+ * id; run it once on a freshly created Library database.
+ *
+ * Volumes are given as books, members and loans; publishers, authors,
+ * employees and copies are derived from them. Popularity is skewed the way
+ * a real library's is: loans pick books, books pick publishers and authors
+ * by Zipfian rank, and members' loan counts are exponentially distributed.
+ * The rows respect the rules the triggers enforce (13 character ISBNs,
+ * publication years after the publisher was established, at most
+ * LoanRepository.MAX_OPEN_LOANS open loans per member, none older than
+ * MAX_LOAN_DAYS), so the data behaves like data entered through the frames.
+ *
+ * For speed the load runs on library.generate.threads pooled connections,
+ * each writing multi-row inserts through BulkInsert with foreign key and
+ * unique checks off, and the schema's triggers are dropped for the duration
+ * and recreated from their own definitions afterwards. MemberLoanStats is
+ * then rebuilt from Borrows in one statement, and one RELOAD entry per
+ * table written tells the open workstations to read them again, since the
+ * dropped TR_CHANGELOG_* triggers logged none of the rows. If a run is
+ * killed midway, recreate the triggers by rerunning their sections of
+ * Library.sql.
+ *
+ * Run with: java -cp dist/Library.jar:lib/MySQLDriver/mysql-connector-java-5.1.23-bin.jar my.libraryui.DatasetGenerator [books] [members] [loans]
+ */
+public class DatasetGenerator {
+
+    public static final int THREADS = Integer.getInteger("library.generate.threads", 4);
+    public static final long SEED = Long.getLong("library.generate.seed", 1L);
+
+    private static final int YEARS_OF_HISTORY = 10;
+    private static final int BOOKS_PER_PUBLISHER = 400;
+    private static final int BOOKS_PER_AUTHOR = 3;
+    private static final int MEMBERS_PER_EMPLOYEE = 2500;
+    // One returned loan in LATE_RETURN_ODDS comes back after MAX_LOAN_DAYS and gets a reminder
+    private static final int LATE_RETURN_ODDS = 20;
+    // One member in OPEN_LOAN_ODDS has books out right now
+    private static final int OPEN_LOAN_ODDS = 4;
+
+    private static final String[] MALE_NAMES = {
+        "Γεώργιος", "Ιωάννης", "Κωνσταντίνος", "Δημήτριος", "Νικόλαος", "Παναγιώτης", "Βασίλειος", "Χρήστος",
+        "Αθανάσιος", "Μιχάλης", "Ευάγγελος", "Σπύρος", "Αντώνης", "Αναστάσης", "Θεόδωρος", "Ανδρέας",
+        "Ηλίας", "Σταύρος", "Άγγελος", "Πέτρος", "Στέλιος", "Αλέξανδρος", "Μάριος", "Κώστας"
+    };
+    private static final String[] FEMALE_NAMES = {
+        "Μαρία", "Ελένη", "Αικατερίνη", "Βασιλική", "Σοφία", "Αγγελική", "Γεωργία", "Δήμητρα",
+        "Κωνσταντίνα", "Παναγιώτα", "Ευαγγελία", "Ειρήνη", "Χριστίνα", "Αναστασία", "Θεοδώρα", "Ιωάννα",
+        "Νεφέλη", "Κατερίνα", "Δέσποινα", "Φωτεινή", "Αλεξάνδρα", "Ζωή", "Μαρίνα", "Χαρίκλεια"
+    };
+    // Male and female forms of the same surnames, index for index
+    private static final String[] MALE_SURNAMES = {
+        "Παπαδόπουλος", "Γεωργίου", "Οικονόμου", "Νικολάου", "Βασιλείου", "Ιωάννου", "Δημητρίου", "Αθανασίου",
+        "Κωνσταντίνου", "Χριστοδούλου", "Μακρής", "Παππάς", "Αλεξίου", "Δήμου", "Βλάχος", "Κλεφτάρας",
+        "Μαντούδης", "Δρογγίτης", "Βαλαβάνης", "Δημάκας", "Σιδηρόπουλος", "Καππής", "Χατζής", "Τζιώρης",
+        "Καλλέργης", "Κοντός", "Αντωνίου", "Ραφαηλίδης", "Λαμπρόπουλος", "Κυριακίδης", "Ζαχαρίου", "Πετρίδης"
+    };
+    private static final String[] FEMALE_SURNAMES = {
+        "Παπαδοπούλου", "Γεωργίου", "Οικονόμου", "Νικολάου", "Βασιλείου", "Ιωάννου", "Δημητρίου", "Αθανασίου",
+        "Κωνσταντίνου", "Χριστοδούλου", "Μακρή", "Παππά", "Αλεξίου", "Δήμου", "Βλάχου", "Κλεφτάρα",
+        "Μαντούδη", "Δρογγίτη", "Βαλαβάνη", "Δημάκα", "Σιδηροπούλου", "Καππή", "Χατζή", "Τζιώρη",
+        "Καλλέργη", "Κοντού", "Αντωνίου", "Ραφαηλίδου", "Λαμπροπούλου", "Κυριακίδου", "Ζαχαρίου", "Πετρίδου"
+    };
+    private static final String[] STREETS = {
+        "Βαλτετσίου", "Βάρναλη Κώστα", "Βενιζέλου Ελευθερίου", "Βεργίνας", "Βορρά", "Γαρδένιας", "Γενναδίου",
+        "Δελφών", "Δοϊράνης", "Τρικάλων", "Ρωμυλίας", "Γεννηματά", "Σμύρνης", "Αττικής", "Βυζαντίου",
+        "Κρήτης", "Ερμού", "Αθηνάς", "Πατησίων", "Σταδίου", "Ακαδημίας", "Πανεπιστημίου", "Ιπποκράτους", "Σόλωνος"
+    };
+    private static final String[] PUBLISHER_WORDS = {
+        "ΕΚΔΟΣΕΙΣ", "ΒΙΒΛΙΟΠΩΛΕΙΟ", "ΟΙΚΟΣ", "ΤΥΠΟΓΡΑΦΕΙΟ", "ΠΑΡΑΤΗΡΗΤΗΣ", "ΑΡΓΟΝΑΥΤΕΣ", "ΠΟΛΙΣ", "ΑΓΡΑ"
+    };
+    private static final String[] TITLE_OPENINGS = {
+        "Εισαγωγή στην", "Οδηγός για την", "Θέματα", "Ιστορία της", "Αρχές της", "Μαθήματα",
+        "Εγχειρίδιο", "Σημειώσεις", "Η τέχνη της", "Πρακτική", "Θεωρία της", "Ασκήσεις"
+    };
+    private static final String[] TITLE_SUBJECTS = {
+        "Πληροφορικής", "Φυσικής", "Χημείας", "Βιολογίας", "Γεωμετρίας", "Άλγεβρας", "Στατιστικής", "Οικονομίας",
+        "Φιλοσοφίας", "Ψυχολογίας", "Γλωσσολογίας", "Αρχιτεκτονικής", "Μουσικής", "Ζωγραφικής", "Ποίησης", "Πεζογραφίας",
+        "Αστρονομίας", "Γεωλογίας", "Ιατρικής", "Νομικής", "Κοινωνιολογίας", "Ηλεκτρονικής", "Ρομποτικής", "Μαγειρικής"
+    };
+    // {category, supercategory}; the first three already exist in the seed data and are left as they are
+    private static final String[][] CATEGORIES = {
+        {"ΕΠΙΣΤΗΜΟΝΙΚΑ", null}, {"ΠΑΝΕΠΙΣΤΗΜΙΑΚΑ", null}, {"ΠΟΛΥΤΕΧΝΙΚΑ", null},
+        {"ΛΟΓΟΤΕΧΝΙΑ", null}, {"ΙΣΤΟΡΙΑ", null}, {"ΠΑΙΔΙΚΑ", null}, {"ΤΕΧΝΕΣ", null},
+        {"ΜΥΘΙΣΤΟΡΗΜΑ", "ΛΟΓΟΤΕΧΝΙΑ"}, {"ΠΟΙΗΣΗ", "ΛΟΓΟΤΕΧΝΙΑ"}, {"ΔΙΗΓΗΜΑ", "ΛΟΓΟΤΕΧΝΙΑ"}, {"ΘΕΑΤΡΟ", "ΛΟΓΟΤΕΧΝΙΑ"},
+        {"ΑΡΧΑΙΑ ΙΣΤΟΡΙΑ", "ΙΣΤΟΡΙΑ"}, {"ΝΕΟΤΕΡΗ ΙΣΤΟΡΙΑ", "ΙΣΤΟΡΙΑ"}, {"ΒΙΟΓΡΑΦΙΕΣ", "ΙΣΤΟΡΙΑ"},
+        {"ΠΑΡΑΜΥΘΙΑ", "ΠΑΙΔΙΚΑ"}, {"ΕΦΗΒΙΚΑ", "ΠΑΙΔΙΚΑ"}, {"ΜΟΥΣΙΚΗ", "ΤΕΧΝΕΣ"}, {"ΖΩΓΡΑΦΙΚΗ", "ΤΕΧΝΕΣ"},
+        {"ΦΩΤΟΓΡΑΦΙΑ", "ΤΕΧΝΕΣ"}, {"ΜΑΘΗΜΑΤΙΚΑ", "ΕΠΙΣΤΗΜΟΝΙΚΑ"}, {"ΦΥΣΙΚΗ", "ΕΠΙΣΤΗΜΟΝΙΚΑ"},
+        {"ΙΑΤΡΙΚΗ", "ΠΑΝΕΠΙΣΤΗΜΙΑΚΑ"}, {"ΝΟΜΙΚΑ", "ΠΑΝΕΠΙΣΤΗΜΙΑΚΑ"}, {"ΟΙΚΟΝΟΜΙΚΑ", "ΠΑΝΕΠΙΣΤΗΜΙΑΚΑ"},
+        {"ΗΛΕΚΤΡΟΝΙΚΗ", "ΠΟΛΥΤΕΧΝΙΚΑ"}, {"ΜΗΧΑΝΟΛΟΓΙΑ", "ΠΟΛΥΤΕΧΝΙΚΑ"}, {"ΑΡΧΙΤΕΚΤΟΝΙΚΗ", "ΠΟΛΥΤΕΧΝΙΚΑ"}
+    };
+
+    public static void main(String[] args) throws Exception {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int members = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        long loans = args.length > 2 ? Long.parseLong(args[2]) : 200000L;
+        new DatasetGenerator(books, members, loans).run();
+    }
+
+    public DatasetGenerator(int books, int members, long loans) {
+        this.books = books;
+        this.members = members;
+        this.loans = loans;
+        this.publishers = Math.max(10, books / BOOKS_PER_PUBLISHER);
+        this.authors = Math.max(10, books / BOOKS_PER_AUTHOR);
+        this.employees = Math.max(10, members / MEMBERS_PER_EMPLOYEE);
+        this.bookPopularity = new ZipfDistribution(books, 1.0);
+        this.publisherSize = new ZipfDistribution(publishers, 1.1);
+        this.authorOutput = new ZipfDistribution(authors, 1.0);
+        this.categoryPopularity = new ZipfDistribution(CATEGORIES.length, 0.8);
+        this.bookStride = coprimeStride(books);
+    }
+
+    public void run() throws Exception {
+        ConnectionPool pool = ConnectionPool.getInstance();
+        Connection con = pool.borrow();
+        List<String> triggers = new ArrayList<>();
+        try {
+            firstMemberId = nextId(con, "select max(memberID) from Member");
+            firstAuthorId = nextId(con, "select max(authID) from Author");
+            firstEmployeeId = nextId(con, "select max(empID) from Employee");
+            System.out.println("Books: " + books + ", members: " + members + ", loans: ~" + loans + ", publishers: " + publishers
+                    + ", authors: " + authors + ", employees: " + employees + ", threads: " + THREADS);
+
+            long start = System.nanoTime();
+            triggers = dropTriggers(con);
+            load(pool, "Publisher", publishers, this::publishers);
+            load(pool, "Category", 1, this::categories);
+            load(pool, "Author", authors, this::authors);
+            load(pool, "Book, Copies, Written_by, Belongs_to", books, this::books);
+            load(pool, "Member", members, this::members);
+            load(pool, "Employee", employees, this::employees);
+            load(pool, "Borrows, Reminder", members, this::loans);
+
+            long rebuild = System.nanoTime();
+            try (Statement stmt = con.createStatement()) {
+                stmt.executeUpdate(Sql.LOAN_STATS_REBUILD);
+            }
+            System.out.println(String.format("%-38s %6.1f s", "MemberLoanStats rebuilt", (System.nanoTime() - rebuild) / 1e9));
+            System.out.println(String.format("%-38s %6.1f s", "Total", (System.nanoTime() - start) / 1e9));
+        } finally {
+            restoreTriggers(con, triggers);
+            pool.release(con);
+            for (ChangeEvent.Entity entity : ChangeEvent.Entity.values()) {
+                CatalogImport.logReload(pool, entity);
+            }
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Loads count items split into THREADS ranges, each on its own connection
+     * with its own Random, so a run is repeatable for a given seed and
+     * thread count.
+     */
+    private void load(ConnectionPool pool, String name, int count, Chunk chunk) throws Exception {
+        int parts = Math.max(1, Math.min(THREADS, count));
+        ExecutorService workers = Executors.newFixedThreadPool(parts);
+        long start = System.nanoTime();
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int p = 0; p < parts; p++) {
+                final int from = (int) ((long) count * p / parts);
+                final int to = (int) ((long) count * (p + 1) / parts);
+                final Random random = new Random(SEED * 1000003L + name.hashCode() * 31L + p);
+                results.add(workers.submit(() -> {
+                    Connection con = pool.borrow();
+                    try {
+                        bulkSession(con, true);
+                        try {
+                            return chunk.load(con, from, to, random);
+                        } finally {
+                            bulkSession(con, false);
+                        }
+                    } finally {
+                        pool.release(con);
+                    }
+                }));
+            }
+            long rows = 0;
+            for (Future<Long> result : results) {
+                rows += result.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println(String.format("%-38s %6.1f s %12d rows %10.0f rows/s", name, seconds, rows, rows / seconds));
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    private interface Chunk {
+        // Inserts the rows for items from (inclusive) to (exclusive); returns the rows inserted
+        long load(Connection con, int from, int to, Random random) throws SQLException;
+    }
+
+    private long publishers(Connection con, int from, int to, Random random) throws SQLException {
+        try (BulkInsert publisher = new BulkInsert(con, "Publisher", 5)) {
+            for (int p = from; p < to; p++) {
+                publisher.add(publisherName(p), establishedIn(p), pick(STREETS, random),
+                        String.valueOf(1 + random.nextInt(250)), postalCode(random));
+            }
+            return flushCount(publisher);
+        }
+    }
+
+    private long categories(Connection con, int from, int to, Random random) throws SQLException {
+        try (BulkInsert category = new BulkInsert(con, "ignore", "Category", 2)) {
+            for (String[] c : CATEGORIES) {
+                category.add(c[0], c[1]);
+            }
+            return flushCount(category);
+        }
+    }
+
+    private long authors(Connection con, int from, int to, Random random) throws SQLException {
+        try (BulkInsert author = new BulkInsert(con, "Author", 4)) {
+            for (int a = from; a < to; a++) {
+                boolean male = random.nextBoolean();
+                author.add(firstAuthorId + a, firstName(male, random), surname(male, random),
+                        LocalDate.of(1900 + random.nextInt(95), 1, 1).plusDays(random.nextInt(365)));
+            }
+            return flushCount(author);
+        }
+    }
+
+    private long books(Connection con, int from, int to, Random random) throws SQLException {
+        int thisYear = LocalDate.now().getYear();
+        try (BulkInsert book = new BulkInsert(con, "Book", 5);
+                BulkInsert copy = new BulkInsert(con, "Copies", 3);
+                BulkInsert writtenBy = new BulkInsert(con, "Written_by", 2);
+                BulkInsert belongsTo = new BulkInsert(con, "Belongs_to", 2)) {
+            Set<Integer> picked = new HashSet<>();
+            for (int b = from; b < to; b++) {
+                String isbn = isbn(b);
+                int publisher = publisherSize.sample(random);
+                int established = establishedIn(publisher);
+                book.add(isbn, title(b), established + random.nextInt(thisYear - established + 1),
+                        48 + random.nextInt(900), publisherName(publisher));
+                for (int c = 1; c <= copies(b); c++) {
+                    copy.add(isbn, c, 1 + random.nextInt(500));
+                }
+
+                // Most books have one author, some two or three
+                picked.clear();
+                int count = random.nextInt(5) == 0 ? 2 + random.nextInt(2) : 1;
+                while (picked.size() < count) {
+                    int author = authorOutput.sample(random);
+                    if (picked.add(author)) {
+                        writtenBy.add(isbn, firstAuthorId + author);
+                    }
+                }
+                picked.clear();
+                count = 1 + random.nextInt(2);
+                while (picked.size() < count) {
+                    int category = categoryPopularity.sample(random);
+                    if (picked.add(category)) {
+                        belongsTo.add(isbn, CATEGORIES[category][0]);
+                    }
+                }
+            }
+            return flushCount(book) + flushCount(copy) + flushCount(writtenBy) + flushCount(belongsTo);
+        }
+    }
+
+    private long members(Connection con, int from, int to, Random random) throws SQLException {
+        try (BulkInsert member = new BulkInsert(con, "Member", 7)) {
+            for (int m = from; m < to; m++) {
+                boolean male = random.nextBoolean();
+                member.add(firstMemberId + m, firstName(male, random), surname(male, random), pick(STREETS, random),
+                        String.valueOf(1 + random.nextInt(250)), postalCode(random),
+                        LocalDate.of(1940 + random.nextInt(70), 1, 1).plusDays(random.nextInt(365)));
+            }
+            return flushCount(member);
+        }
+    }
+
+    private long employees(Connection con, int from, int to, Random random) throws SQLException {
+        LocalDate today = LocalDate.now();
+        try (BulkInsert employee = new BulkInsert(con, "Employee", 4);
+                BulkInsert permanent = new BulkInsert(con, "Permanent_Employee", 2);
+                BulkInsert temporary = new BulkInsert(con, "Temporary_Employee", 2)) {
+            for (int e = from; e < to; e++) {
+                int empId = firstEmployeeId + e;
+                boolean male = random.nextBoolean();
+                employee.add(empId, firstName(male, random), surname(male, random), 600f + random.nextInt(1400));
+                if (e % 2 == 0) {
+                    permanent.add(empId, today.minusDays(random.nextInt(35 * 365)));
+                } else {
+                    temporary.add(empId, 2000 + e);
+                }
+            }
+            return flushCount(employee) + flushCount(permanent) + flushCount(temporary);
+        }
+    }
+
+    /**
+     * Loan history of members from..to. Returned loans fall in the
+     * YEARS_OF_HISTORY years before the last MAX_LOAN_DAYS; open loans were
+     * borrowed within the last MAX_LOAN_DAYS, so no member is locked out.
+     */
+    private long loans(Connection con, int from, int to, Random random) throws SQLException {
+        int maxDays = LoanRepository.MAX_LOAN_DAYS;
+        double meanLoans = (double) loans / members;
+        LocalDate today = LocalDate.now();
+        LocalDate historyStart = today.minusYears(YEARS_OF_HISTORY);
+        int historyDays = (int) ChronoUnit.DAYS.between(historyStart, today) - 3 * maxDays;
+        try (BulkInsert borrows = new BulkInsert(con, "Borrows", 5);
+                BulkInsert reminder = new BulkInsert(con, "Reminder", 6)) {
+            Set<String> keys = new HashSet<>();
+            for (int m = from; m < to; m++) {
+                int memberId = firstMemberId + m;
+                int count = (int) (-Math.log(1 - random.nextDouble()) * meanLoans);
+                int open = random.nextInt(OPEN_LOAN_ODDS) == 0 ? Math.min(count, 1 + random.nextInt(LoanRepository.MAX_OPEN_LOANS - 1)) : 0;
+                keys.clear();
+                for (int i = 0; i < count; i++) {
+                    int book = popularBook(random);
+                    String isbn = isbn(book);
+                    int copyNr = 1 + random.nextInt(copies(book));
+                    boolean isOpen = i < open;
+                    LocalDate borrowed = isOpen ? today.minusDays(random.nextInt(maxDays)) : historyStart.plusDays(random.nextInt(historyDays));
+                    if (!keys.add(isbn + '/' + copyNr + '/' + borrowed)) {
+                        continue;
+                    }
+                    LocalDate returned = null;
+                    if (!isOpen) {
+                        boolean late = random.nextInt(LATE_RETURN_ODDS) == 0;
+                        returned = borrowed.plusDays(late ? maxDays + 1 + random.nextInt(maxDays) : 1 + random.nextInt(maxDays - 7));
+                        if (late) {
+                            reminder.add(firstEmployeeId + random.nextInt(employees), memberId, isbn, copyNr, borrowed, borrowed.plusDays(maxDays + 1));
+                        }
+                    }
+                    borrows.add(memberId, isbn, copyNr, borrowed, returned);
+                }
+            }
+            return flushCount(borrows) + flushCount(reminder);
+        }
+    }
+
+    // Sends what is buffered and returns the rows inserted in total
+    private static long flushCount(BulkInsert insert) throws SQLException {
+        insert.flush();
+        return insert.inserted();
+    }
+
+    private int popularBook(Random random) {
+        // Spreads the popular ranks over the ISBN range instead of bunching them at the start
+        return (int) ((long) bookPopularity.sample(random) * bookStride % books);
+    }
+
+    private static int coprimeStride(int n) {
+        int stride = 1000003;
+        while (gcd(stride, n) != 1) {
+            stride += 2;
+        }
+        return stride;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private static int nextId(Connection con, String sql) throws SQLException {
+        try (Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1) + 1;
+        }
+    }
+
+    private static void bulkSession(Connection con, boolean bulk) throws SQLException {
+        try (Statement stmt = con.createStatement()) {
+            stmt.execute(bulk ? "set foreign_key_checks = 0, unique_checks = 0" : "set foreign_key_checks = 1, unique_checks = 1");
+        }
+        con.setAutoCommit(!bulk);
+    }
+
+    /**
+     * Drops every trigger of the schema and returns the statements that
+     * recreate them. The DEFINER clause is left out, so they are recreated
+     * as the connecting user, who may not be allowed to name another.
+     */
+    private static List<String> dropTriggers(Connection con) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Statement stmt = con.createStatement();
+                ResultSet rs = stmt.executeQuery("select TRIGGER_NAME from information_schema.TRIGGERS where TRIGGER_SCHEMA = database() order by CREATED")) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        List<String> definitions = new ArrayList<>();
+        try (Statement stmt = con.createStatement()) {
+            for (String name : names) {
+                try (ResultSet rs = stmt.executeQuery("show create trigger `" + name + "`")) {
+                    rs.next();
+                    definitions.add(rs.getString("SQL Original Statement").replaceFirst("DEFINER\\s*=\\s*\\S+\\s+", ""));
+                }
+            }
+            for (String name : names) {
+                stmt.executeUpdate("drop trigger `" + name + "`");
+            }
+        }
+        return definitions;
+    }
+
+    private static void restoreTriggers(Connection con, List<String> definitions) throws SQLException {
+        try (Statement stmt = con.createStatement()) {
+            for (String definition : definitions) {
+                stmt.executeUpdate(definition);
+            }
+        }
+        if (!definitions.isEmpty()) {
+            System.out.println(definitions.size() + " triggers restored");
+        }
+    }
+
+    private static String isbn(int book) {
+        return String.format("978-%09d", book);
+    }
+
+    private static String title(int book) {
+        int opening = book % TITLE_OPENINGS.length;
+        int subject = (book / TITLE_OPENINGS.length) % TITLE_SUBJECTS.length;
+        int volume = book / (TITLE_OPENINGS.length * TITLE_SUBJECTS.length);
+        String title = TITLE_OPENINGS[opening] + " " + TITLE_SUBJECTS[subject];
+        return volume == 0 ? title : title + ", τόμος " + (volume + 1);
+    }
+
+    private static int copies(int book) {
+        return 1 + book % 3;
+    }
+
+    private static String publisherName(int publisher) {
+        return PUBLISHER_WORDS[publisher % PUBLISHER_WORDS.length] + " " + (publisher + 1);
+    }
+
+    private static int establishedIn(int publisher) {
+        return 1850 + publisher * 37 % 160;
+    }
+
+    private static String firstName(boolean male, Random random) {
+        return pick(male ? MALE_NAMES : FEMALE_NAMES, random);
+    }
+
+    private static String surname(boolean male, Random random) {
+        int index = random.nextInt(MALE_SURNAMES.length);
+        return male ? MALE_SURNAMES[index] : FEMALE_SURNAMES[index];
+    }
+
+    private static String postalCode(Random random) {
+        return String.valueOf(10000 + random.nextInt(75000));
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+
+
+    private final int books;
+    private final int members;
+    private final long loans;
+    private final int publishers;
+    private final int authors;
+    private final int employees;
+    private final ZipfDistribution bookPopularity;
+    private final ZipfDistribution publisherSize;
+    private final ZipfDistribution authorOutput;
+    private final ZipfDistribution categoryPopularity;
+    private final int bookStride;
+    private int firstMemberId;
+    private int firstAuthorId;
+    private int firstEmployeeId;
+}
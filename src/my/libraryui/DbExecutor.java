@@ -0,0 +1,161 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.awt.Component;
+import java.awt.Cursor;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs a frame's database work off the Swing event dispatch thread.
+ * Tasks submitted through one DbExecutor run one at a time in submit order
+ * (so a frame's writes and the reads after them never overtake each other),
+ * and their results are handed back on the EDT. The owner shows a wait
+ * cursor while anything is queued. Given a ConnectionDB, the executor
+ * borrows its connection for each task and releases it when the task ends;
+ * a task that cannot get one fails with the pool's SQLException.
+ */
+public final class DbExecutor {
+
+    private static final Logger LOG = Logger.getLogger(DbExecutor.class.getName());
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    // Shared by every frame; per-frame ordering is kept by the queue below
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "DbExecutor-" + THREAD_COUNT.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    public DbExecutor(Component owner) {
+        this(owner, null);
+    }
+
+    public DbExecutor(Component owner, ConnectionDB db_con) {
+        this.owner = owner;
+        this.db_con = db_con;
+    }
+
+    /**
+     * Runs task in the background, then passes its result to onDone (or its
+     * exception to onError) on the EDT. Either callback may be null.
+     */
+    public <T> void submit(Callable<T> task, Consumer<? super T> onDone, Consumer<? super Exception> onError) {
+        Runnable job = () -> {
+            T result = null;
+            Exception error = null;
+            try {
+                if (db_con != null) {
+                    db_con.open();
+                }
+                result = task.call();
+            } catch (Exception ex) {
+                error = ex;
+            } finally {
+                if (db_con != null) {
+                    db_con.closeCon();
+                }
+            }
+            final T r = result;
+            final Exception e = error;
+            SwingUtilities.invokeLater(() -> {
+                try {
+                    if (e == null) {
+                        if (onDone != null) {
+                            onDone.accept(r);
+                        }
+                    } else if (onError != null) {
+                        onError.accept(e);
+                    } else {
+                        JOptionPane.showMessageDialog(null, e);
+                    }
+                } finally {
+                    if (pending.decrementAndGet() == 0) {
+                        setBusy(false);
+                    }
+                }
+            });
+        };
+
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            if (pending.getAndIncrement() == 0) {
+                setBusy(true);
+            }
+            queue.add(job);
+            if (!running) {
+                running = true;
+                WORKERS.execute(this::drain);
+            }
+        }
+    }
+
+    /**
+     * Runs finalizer once every task submitted so far has finished and
+     * rejects anything submitted afterwards.
+     */
+    public void close(Runnable finalizer) {
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            queue.add(finalizer);
+            closed = true;
+            if (!running) {
+                running = true;
+                WORKERS.execute(this::drain);
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable job;
+            synchronized (queue) {
+                job = queue.poll();
+                if (job == null) {
+                    running = false;
+                    return;
+                }
+            }
+            try {
+                job.run();
+            } catch (RuntimeException ex) {
+                LOG.warning("A database task failed: " + ex);
+            }
+        }
+    }
+
+    private void setBusy(final boolean busy) {
+        if (owner == null) {
+            return;
+        }
+        Runnable update = () -> owner.setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+        if (SwingUtilities.isEventDispatchThread()) {
+            update.run();
+        } else {
+            SwingUtilities.invokeLater(update);
+        }
+    }
+
+
+    private final Component owner;
+    private final ConnectionDB db_con;
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private boolean running = false;
+    private boolean closed = false;
+}
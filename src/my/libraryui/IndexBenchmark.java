@@ -0,0 +1,248 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the index set Library.sql used to create with the current one.
+ * For each set it creates scratch copies of Book, Publisher and Borrows
+ * (prefixed IB_) in the Library database, bulk loads the same generated
+ * rows into them and reports insert throughput, then times the lookups the
+ * application issues against those tables and reports their median and
+ * 99th percentile latency. The scratch tables are dropped afterwards.
+ *
+ * The old set repeated each primary key as a secondary index; the new one
+ * indexes Book.title, Publisher.estYear and Borrows (memberID,
+ * date_of_return, date_of_borrowing) instead. Both keep the indexes InnoDB
+ * would create for the foreign keys, which the scratch tables do not have.
+ *
+ * Needs the Library database.
+ *
+ * Run with: java -cp dist/Library.jar:lib/MySQLDriver/mysql-connector-java-5.1.23-bin.jar my.libraryui.IndexBenchmark [books] [lookups]
+ */
+public class IndexBenchmark {
+
+    private static final String[] TABLES = {
+        "create table IB_Book (ISBN nvarchar(20) not null, title nvarchar(120) not null, pubYear int, numPages int, pubName nvarchar(80), primary key (ISBN))",
+        "create table IB_Publisher (pubName nvarchar(80) not null, estYear int, street nvarchar(80) not null, snumber nvarchar(10), postalCode nvarchar(10), primary key (pubName))",
+        "create table IB_Borrows (memberID int not null, ISBN nvarchar(15) not null, copyNr int, date_of_borrowing date, date_of_return date, primary key (memberID,ISBN,copyNr,date_of_borrowing))"
+    };
+
+    private static final String[] OLD_INDEXES = {
+        "create index INX_pubName_Book on IB_Book (pubName)",
+        "create index INX_isbn on IB_Book (ISBN)",
+        "create index INX_pubName on IB_Publisher (pubName)",
+        "create index INX_micd on IB_Borrows (memberID,ISBN,copyNr,date_of_borrowing)",
+        "create index INX_ISBN_copyNr_Borrows on IB_Borrows (ISBN,copyNr)"
+    };
+
+    private static final String[] NEW_INDEXES = {
+        "create index INX_pubName_Book on IB_Book (pubName)",
+        "create index INX_title on IB_Book (title)",
+        "create index INX_estYear on IB_Publisher (estYear)",
+        "create index INX_memberID_return on IB_Borrows (memberID,date_of_return,date_of_borrowing)",
+        "create index INX_ISBN_copyNr_Borrows on IB_Borrows (ISBN,copyNr)"
+    };
+
+    private static final String[] QUERY_NAMES = {"Book by title", "Publishers after year", "Open loans of member", "Oldest open loan"};
+    private static final String[] QUERIES = {
+        "select ISBN, pubYear from IB_Book where title = ?",
+        "select pubName, estYear from IB_Publisher where estYear > ?",
+        "select ISBN, copyNr, date_of_borrowing from IB_Borrows where memberID = ? and date_of_return is null order by date_of_borrowing",
+        "select min(date_of_borrowing) from IB_Borrows where memberID = ? and date_of_return is null"
+    };
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int LOANS_PER_BOOK = 4;
+    private static final int BOOKS_PER_PUBLISHER = 10;
+    private static final int LOANS_PER_MEMBER = 40;
+    private static final long SEED = 42;
+
+    public static void main(String[] args) throws Exception {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        ConnectionPool pool = ConnectionPool.getInstance();
+        Connection con = pool.borrow();
+        try {
+            System.out.println("Books: " + books + ", publishers: " + books / BOOKS_PER_PUBLISHER + ", loans: " + books * LOANS_PER_BOOK + ", lookups per query: " + lookups);
+            run(con, "Old indexes", OLD_INDEXES, books, lookups);
+            run(con, "New indexes", NEW_INDEXES, books, lookups);
+        } finally {
+            drop(con);
+            pool.release(con);
+            pool.shutdown();
+        }
+    }
+
+    private static void run(Connection con, String name, String[] indexes, int books, int lookups) throws SQLException {
+        drop(con);
+        try (Statement stmt = con.createStatement()) {
+            for (String sql : TABLES) {
+                stmt.executeUpdate(sql);
+            }
+            for (String sql : indexes) {
+                stmt.executeUpdate(sql);
+            }
+        }
+
+        System.out.println();
+        System.out.println(name);
+        long start = System.nanoTime();
+        long rows = load(con, books);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("  %-24s %10.0f rows/s (%d rows in %.1f s)", "Insert", rows / seconds, rows, seconds));
+
+        try (Statement stmt = con.createStatement()) {
+            stmt.execute("analyze table IB_Book, IB_Publisher, IB_Borrows");
+        }
+        for (int q = 0; q < QUERIES.length; q++) {
+            long[] nanos = time(con, q, books, lookups);
+            System.out.println(String.format("  %-24s p50 %8.3f ms   p99 %8.3f ms", QUERY_NAMES[q], percentile(nanos, 50), percentile(nanos, 99)));
+        }
+    }
+
+    // Loads publishers, books and loans in batches of BATCH_SIZE; returns the rows inserted
+    private static long load(Connection con, int books) throws SQLException {
+        Random random = new Random(SEED);
+        int publishers = Math.max(1, books / BOOKS_PER_PUBLISHER);
+        int members = Math.max(1, books * LOANS_PER_BOOK / LOANS_PER_MEMBER);
+        LocalDate firstLoan = LocalDate.now().minusYears(10);
+        long rows = 0;
+        con.setAutoCommit(false);
+        try (PreparedStatement pub = con.prepareStatement("insert into IB_Publisher values (?,?,?,?,?)");
+                PreparedStatement book = con.prepareStatement("insert into IB_Book values (?,?,?,?,?)");
+                PreparedStatement loan = con.prepareStatement("insert into IB_Borrows values (?,?,?,?,?)")) {
+            for (int p = 0; p < publishers; p++) {
+                pub.setString(1, publisher(p));
+                pub.setInt(2, 1800 + random.nextInt(220));
+                pub.setString(3, "Οδός " + random.nextInt(500));
+                pub.setString(4, String.valueOf(1 + random.nextInt(200)));
+                pub.setString(5, String.valueOf(10000 + random.nextInt(90000)));
+                rows += add(con, pub, p);
+            }
+            rows += flush(con, pub);
+            for (int b = 0; b < books; b++) {
+                book.setString(1, isbn(b));
+                book.setString(2, title(b));
+                book.setInt(3, 1900 + random.nextInt(120));
+                book.setInt(4, 50 + random.nextInt(900));
+                book.setString(5, publisher(random.nextInt(publishers)));
+                rows += add(con, book, b);
+            }
+            rows += flush(con, book);
+            for (int l = 0; l < books * LOANS_PER_BOOK; l++) {
+                LocalDate borrowed = firstLoan.plusDays(random.nextInt(3650));
+                loan.setInt(1, 1 + random.nextInt(members));
+                loan.setString(2, isbn(random.nextInt(books)));
+                loan.setInt(3, 1 + random.nextInt(3));
+                Repository.setDate(loan, 4, borrowed);
+                // About one loan in ten is still out
+                Repository.setDate(loan, 5, random.nextInt(10) == 0 ? null : borrowed.plusDays(1 + random.nextInt(30)));
+                rows += add(con, loan, l);
+            }
+            rows += flush(con, loan);
+        } finally {
+            con.setAutoCommit(true);
+        }
+        return rows;
+    }
+
+    // Returns the rows inserted if the batch was full and sent, otherwise 0
+    private static long add(Connection con, PreparedStatement stmt, int row) throws SQLException {
+        stmt.addBatch();
+        if ((row + 1) % BATCH_SIZE == 0) {
+            return flush(con, stmt);
+        }
+        return 0;
+    }
+
+    // Random loans can repeat a primary key; the duplicate is skipped, and left out of the rows returned.
+    // The driver carries on with the rest of the batch and marks the duplicate EXECUTE_FAILED
+    private static long flush(Connection con, PreparedStatement stmt) throws SQLException {
+        int[] counts;
+        try {
+            counts = stmt.executeBatch();
+        } catch (BatchUpdateException ex) {
+            if (!"23000".equals(ex.getSQLState())) {
+                throw ex;
+            }
+            counts = ex.getUpdateCounts();
+        }
+        con.commit();
+        long rows = 0;
+        for (int count : counts) {
+            if (count == Statement.SUCCESS_NO_INFO) {
+                rows++;
+            } else if (count > 0) {
+                rows += count;
+            }
+        }
+        return rows;
+    }
+
+    // Returns the elapsed time of each lookup, sorted
+    private static long[] time(Connection con, int query, int books, int lookups) throws SQLException {
+        Random random = new Random(SEED + query);
+        int members = Math.max(1, books * LOANS_PER_BOOK / LOANS_PER_MEMBER);
+        long[] nanos = new long[lookups];
+        try (PreparedStatement stmt = con.prepareStatement(QUERIES[query])) {
+            for (int i = 0; i < lookups; i++) {
+                switch (query) {
+                    case 0:
+                        stmt.setString(1, title(random.nextInt(books)));
+                        break;
+                    case 1:
+                        // Roughly the last two years of establishment dates
+                        stmt.setInt(1, 2018);
+                        break;
+                    default:
+                        stmt.setInt(1, 1 + random.nextInt(members));
+                }
+                long start = System.nanoTime();
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rs.getString(1);
+                    }
+                }
+                nanos[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static double percentile(long[] sorted, int p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static void drop(Connection con) throws SQLException {
+        try (Statement stmt = con.createStatement()) {
+            stmt.executeUpdate("drop table if exists IB_Borrows, IB_Book, IB_Publisher");
+        }
+    }
+
+    private static String isbn(int book) {
+        return String.format("978%010d", book);
+    }
+
+    private static String title(int book) {
+        return "Βιβλίο " + Integer.toString(book * 7919 % 1000003, 36) + " " + book;
+    }
+
+    private static String publisher(int publisher) {
+        return "ΕΚΔΟΣΕΙΣ " + publisher;
+    }
+}
@@ -0,0 +1,522 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Per-statement execution figures for every connection ConnectionPool
+ * opens. instrument wraps a Connection in a proxy whose Statements are
+ * proxies too and whose ResultSets are MeasuredResultSets; each execution is timed and counted under the
+ * statement's SQL shape (the SQL with literals replaced by ? and IN lists
+ * folded, so the same query with different values is counted once), and
+ * the rows read from its ResultSet are added when the ResultSet is read to
+ * the end or closed. Statements are also counted while open, and one that
+ * is garbage collected without being closed is counted as leaked.
+ *
+ * The figures are published as the JdbcStatsMXBean my.libraryui:type=JdbcStats
+ * and written to the log every library.jdbc.statsInterval seconds (300 by
+ * default, 0 for never). -Dlibrary.jdbc.stats=false leaves connections
+ * unwrapped.
+ *
+ * The shape of a prepared statement is worked out once, when it is
+ * prepared; an execution then costs two System.nanoTime calls, a few
+ * LongAdder increments and one LatencyHistogram bucket increment, which is
+ * small next to the network round trip it measures. Calls on a connection
+ * or statement go through a reflective proxy; ResultSet getters do not, as
+ * MeasuredResultSet only steps in for next and close.
+ *
+ * Executions slower than library.jdbc.slowQueryMillis are also handed to
+ * SlowQueryLog with their SQL and bound parameters.
+ */
+public final class JdbcStats implements JdbcStatsMXBean {
+
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("library.jdbc.stats"));
+    public static final long LOG_INTERVAL = Long.getLong("library.jdbc.statsInterval", 300L);
+    public static final int MAX_SHAPES = Integer.getInteger("library.jdbc.maxShapes", 500);
+    public static final int TOP_IN_LOG = 20;
+
+    private static final String OBJECT_NAME = "my.libraryui:type=JdbcStats";
+    private static final String OTHER = "(other statements)";
+    // Raw SQL texts remembered with their shape, so repeated texts are not normalised again
+    private static final int MAX_CACHED_TEXTS = 4096;
+    private static final Logger LOG = Logger.getLogger(JdbcStats.class.getName());
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?(?![\\w$])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin \\(\\?(?:\\s*,\\s*\\?)+\\)");
+
+    private static final JdbcStats INSTANCE = new JdbcStats();
+
+    public static JdbcStats getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns con wrapped so its statements are measured, or con itself when
+     * library.jdbc.stats is false.
+     */
+    public static Connection instrument(Connection con) {
+        if (!ENABLED) {
+            return con;
+        }
+        INSTANCE.start();
+        ConnectionHandler handler = new ConnectionHandler(INSTANCE, con);
+        return (Connection) Proxy.newProxyInstance(JdbcStats.class.getClassLoader(), new Class<?>[] {Connection.class}, handler);
+    }
+
+    /**
+     * Returns the shape sql is counted under: whitespace collapsed, string
+     * and number literals replaced by ?, and "in (?, ?, ...)" folded to
+     * "in (?)".
+     */
+    static String normalize(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return IN_LIST.matcher(shape).replaceAll("in (?)");
+    }
+
+    private JdbcStats() {
+    }
+
+    @Override
+    public long getOpenStatements() {
+        expunge();
+        return created.sum() - closed.sum();
+    }
+
+    @Override
+    public long getLeakedStatements() {
+        expunge();
+        return leaked.sum();
+    }
+
+    @Override
+    public long getOpenResultSets() {
+        return openResultSets.sum();
+    }
+
+    @Override
+    public List<StatementStats> getStatements() {
+        List<StatementStats> stats = new ArrayList<>();
+        for (Shape shape : shapes.values()) {
+            if (shape.histogram.getCount() > 0) {
+                stats.add(shape.snapshot());
+            }
+        }
+        stats.sort((a, b) -> Long.compare(b.getTotalMicros(), a.getTotalMicros()));
+        return stats;
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("JDBC statements: %d open, %d leaked, %d open result sets%n",
+                getOpenStatements(), getLeakedStatements(), getOpenResultSets()));
+        out.append(String.format("%10s %7s %11s %11s %9s %9s %9s %9s  %s%n",
+                "Count", "Errors", "Rows", "Total ms", "p50 us", "p95 us", "p99 us", "max us", "SQL"));
+        List<StatementStats> stats = getStatements();
+        for (StatementStats s : stats.subList(0, Math.min(TOP_IN_LOG, stats.size()))) {
+            String sql = s.getSql().length() > 120 ? s.getSql().substring(0, 117) + "..." : s.getSql();
+            out.append(String.format("%10d %7d %11d %11.1f %9d %9d %9d %9d  %s%n", s.getExecutions(), s.getErrors(), s.getRows(),
+                    s.getTotalMicros() / 1000.0, s.getP50Micros(), s.getP95Micros(), s.getP99Micros(), s.getMaxMicros(), sql));
+        }
+        if (stats.size() > TOP_IN_LOG) {
+            out.append(String.format("(%d more)%n", stats.size() - TOP_IN_LOG));
+        }
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (Shape shape : shapes.values()) {
+            shape.reset();
+        }
+    }
+
+    // Registers the MBean and starts the periodic log, once
+    private void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException | RuntimeException ex) {
+            LOG.warning("Could not register " + OBJECT_NAME + ": " + ex);
+        }
+        if (LOG_INTERVAL > 0) {
+            ScheduledExecutorService logger = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "JdbcStats-log");
+                t.setDaemon(true);
+                return t;
+            });
+            logger.scheduleAtFixedRate(() -> {
+                if (!shapes.isEmpty()) {
+                    LOG.info(dump());
+                }
+            }, LOG_INTERVAL, LOG_INTERVAL, TimeUnit.SECONDS);
+        }
+    }
+
+    private Shape shapeOf(String sql) {
+        Shape shape = shapesBySql.get(sql);
+        if (shape != null) {
+            return shape;
+        }
+        String normalized = normalize(sql);
+        shape = shapes.get(normalized);
+        if (shape == null) {
+            shape = shapes.size() < MAX_SHAPES
+                    ? shapes.computeIfAbsent(normalized, Shape::new)
+                    : shapes.computeIfAbsent(OTHER, Shape::new);
+        }
+        if (shapesBySql.size() < MAX_CACHED_TEXTS) {
+            shapesBySql.put(sql, shape);
+        }
+        return shape;
+    }
+
+    // Counts the statements collected since the last call that were never closed, and forgets them
+    private void expunge() {
+        Tracked ref;
+        while ((ref = (Tracked) collected.poll()) != null) {
+            if (tracked.remove(ref)) {
+                leaked.increment();
+                ref.handler.leaked();
+            }
+        }
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    // equals, hashCode and toString of a proxy, which must not reach the target
+    private static Object objectMethod(Object proxy, Object target, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "JdbcStats(" + target + ")";
+        }
+    }
+
+    /**
+     * Running figures for one SQL shape.
+     */
+    private static final class Shape {
+        Shape(String sql) {
+            this.sql = sql;
+        }
+
+        void executed(long nanos) {
+            totalNanos.add(nanos);
+            histogram.record(nanos / 1000);
+        }
+
+        void failed(long nanos) {
+            errors.increment();
+            executed(nanos);
+        }
+
+        void rows(long count) {
+            rows.add(count);
+        }
+
+        StatementStats snapshot() {
+            return new StatementStats(sql, histogram.getCount(), errors.sum(), rows.sum(), totalNanos.sum() / 1000,
+                    histogram.percentile(50), histogram.percentile(95), histogram.percentile(99), histogram.getMax());
+        }
+
+        void reset() {
+            histogram.reset();
+            errors.reset();
+            rows.reset();
+            totalNanos.reset();
+        }
+
+        final String sql;
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        ConnectionHandler(JdbcStats stats, Connection target) {
+            this.stats = stats;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, target, method, args);
+            }
+            switch (method.getName()) {
+                case "createStatement":
+                case "prepareStatement":
+                case "prepareCall": {
+                    Statement statement = (Statement) call(target, method, args);
+                    String sql = method.getName().equals("createStatement") ? null : (String) args[0];
+                    return wrap(proxy, statement, sql, method.getReturnType());
+                }
+                case "close":
+                    try {
+                        return call(target, method, args);
+                    } finally {
+                        // Closing a connection closes its statements
+                        for (StatementHandler statement : statements) {
+                            statement.closed();
+                        }
+                    }
+                default:
+                    return call(target, method, args);
+            }
+        }
+
+        private Object wrap(Object connection, Statement statement, String sql, Class<?> type) {
+            StatementHandler handler = new StatementHandler(this, connection, statement, sql);
+            Object proxy = Proxy.newProxyInstance(JdbcStats.class.getClassLoader(), new Class<?>[] {type}, handler);
+            handler.tracked = new Tracked(proxy, handler, stats.collected);
+            stats.tracked.add(handler.tracked);
+            stats.created.increment();
+            statements.add(handler);
+            stats.expunge();
+            return proxy;
+        }
+
+        final JdbcStats stats;
+        final Connection target;
+        final Set<StatementHandler> statements = ConcurrentHashMap.newKeySet();
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        StatementHandler(ConnectionHandler owner, Object connection, Statement target, String sql) {
+            this.owner = owner;
+            this.connection = connection;
+            this.target = target;
+            this.sql = sql;
+            this.shape = sql == null ? null : owner.stats.shapeOf(sql);
+            this.last = shape;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, target, method, args);
+            }
+            switch (method.getName()) {
+                case "executeQuery": {
+                    ResultSet rs = (ResultSet) execute(method, args);
+                    return wrap(rs);
+                }
+                case "executeUpdate":
+                case "executeLargeUpdate": {
+                    Object count = execute(method, args);
+                    last.rows(((Number) count).longValue());
+                    return count;
+                }
+                case "execute": {
+                    Object hasResultSet = execute(method, args);
+                    if (!(Boolean) hasResultSet) {
+                        last.rows(Math.max(0, target.getUpdateCount()));
+                    }
+                    return hasResultSet;
+                }
+                case "executeBatch":
+                case "executeLargeBatch": {
+                    Object counts = execute(method, args);
+                    long rows = 0;
+                    if (counts instanceof int[]) {
+                        for (int count : (int[]) counts) {
+                            rows += Math.max(0, count);
+                        }
+                    } else {
+                        for (long count : (long[]) counts) {
+                            rows += Math.max(0, count);
+                        }
+                    }
+                    last.rows(rows);
+                    return counts;
+                }
+                case "addBatch":
+                    if (args != null && args.length == 1 && args[0] instanceof String) {
+                        batchSql = (String) args[0];
+                        batch = owner.stats.shapeOf(batchSql);
+                    }
+                    return call(target, method, args);
+                case "clearParameters":
+                    parameters.clear();
+                    return call(target, method, args);
+                case "getResultSet": {
+                    ResultSet rs = (ResultSet) call(target, method, args);
+                    return rs == null ? null : wrap(rs);
+                }
+                case "getConnection":
+                    return connection;
+                case "close":
+                    closed();
+                    return call(target, method, args);
+                default:
+                    if (SlowQueryLog.ENABLED && sql != null && method.getName().startsWith("set")
+                            && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        bound((Integer) args[0], method.getName().equals("setNull") ? null : args[1]);
+                    }
+                    return call(target, method, args);
+            }
+        }
+
+        // Remembers a parameter value for the slow query log
+        private void bound(int index, Object value) {
+            while (parameters.size() < index) {
+                parameters.add(null);
+            }
+            parameters.set(index - 1, value);
+        }
+
+        // Times one execution under the statement's shape, or the shape of the SQL passed in
+        private Object execute(Method method, Object[] args) throws Throwable {
+            finishResultSet();
+            String text;
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                text = (String) args[0];
+                last = owner.stats.shapeOf(text);
+            } else {
+                text = sql != null ? sql : batchSql;
+                last = shape != null ? shape : batch;
+            }
+            if (last == null) {
+                last = owner.stats.shapes.computeIfAbsent(OTHER, Shape::new);
+            }
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = call(target, method, args);
+            } catch (Throwable ex) {
+                long elapsed = System.nanoTime() - start;
+                last.failed(elapsed);
+                if (text != null && SlowQueryLog.isSlow(elapsed)) {
+                    SlowQueryLog.report(last.sql, text, text == sql ? parameters : Collections.emptyList(), elapsed, true);
+                }
+                throw ex;
+            }
+            long elapsed = System.nanoTime() - start;
+            last.executed(elapsed);
+            if (text != null && SlowQueryLog.isSlow(elapsed)) {
+                SlowQueryLog.report(last.sql, text, text == sql ? parameters : Collections.emptyList(), elapsed, false);
+            }
+            return result;
+        }
+
+        // The ResultSet reaches the statement proxy only through tracked, so an unclosed statement can still be collected
+        private ResultSet wrap(ResultSet rs) {
+            Shape read = last;
+            JdbcStats stats = owner.stats;
+            Tracked statement = tracked;
+            resultSet = new MeasuredResultSet(rs, () -> (Statement) statement.get(), rows -> {
+                read.rows(rows);
+                stats.openResultSets.decrement();
+            });
+            stats.openResultSets.increment();
+            return resultSet;
+        }
+
+        // A new execution or close implicitly closes the previous ResultSet
+        private void finishResultSet() {
+            if (resultSet != null) {
+                resultSet.finish();
+                resultSet = null;
+            }
+        }
+
+        void closed() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            finishResultSet();
+            owner.stats.tracked.remove(tracked);
+            owner.stats.closed.increment();
+            owner.statements.remove(this);
+        }
+
+        // The statement was collected unclosed; its ResultSet is counted as finished, as it can no longer be re-executed
+        void leaked() {
+            finishResultSet();
+            owner.statements.remove(this);
+        }
+
+        final ConnectionHandler owner;
+        final Object connection;
+        final Statement target;
+        // Fixed for a prepared statement, null for a plain one
+        final String sql;
+        final Shape shape;
+        // Values bound to the prepared statement, kept only for the slow query log
+        final List<Object> parameters = new ArrayList<>();
+        Shape last;
+        String batchSql;
+        Shape batch;
+        MeasuredResultSet resultSet;
+        Tracked tracked;
+        volatile boolean closed = false;
+    }
+
+    private static final class Tracked extends WeakReference<Object> {
+        Tracked(Object statement, StatementHandler handler, ReferenceQueue<Object> queue) {
+            super(statement, queue);
+            this.handler = handler;
+        }
+
+        // Held strongly by ConnectionHandler.statements until the statement is closed or found leaked
+        final StatementHandler handler;
+    }
+
+
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+    private final Map<String, Shape> shapesBySql = new ConcurrentHashMap<>();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+    private final LongAdder leaked = new LongAdder();
+    private final LongAdder openResultSets = new LongAdder();
+    // Weak references to open statement proxies; the collector queues those that were never closed
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    private final Set<Tracked> tracked = ConcurrentHashMap.newKeySet();
+}
@@ -0,0 +1,134 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that JdbcStats counts a query statement that is never closed as
+ * leaked. Each round prepares a statement on an instrumented connection,
+ * runs executeQuery and drops the statement without closing it; in every
+ * other round the caller keeps the ResultSet. After garbage collection the
+ * leaked count must have grown by the number of rounds and the open
+ * ResultSet count must be back where it started, while the connection
+ * itself stays open, as a pooled one would.
+ *
+ * The connection is a stand-in that answers every query with no rows, so
+ * no database is needed. Exits with status 1 if the check fails.
+ *
+ * Run with: java -cp dist/Library.jar my.libraryui.JdbcStatsLeakCheck [rounds]
+ */
+public class JdbcStatsLeakCheck {
+
+    private static final int GC_ATTEMPTS = 50;
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        if (!JdbcStats.ENABLED) {
+            System.out.println("library.jdbc.stats is false; nothing to check");
+            System.exit(1);
+        }
+        JdbcStats stats = JdbcStats.getInstance();
+        Connection con = JdbcStats.instrument(fakeConnection());
+        long leakedBefore = stats.getLeakedStatements();
+        long openBefore = stats.getOpenResultSets();
+
+        List<ResultSet> kept = new ArrayList<>();
+        for (int round = 0; round < rounds; round++) {
+            ResultSet rs = leak(con);
+            if (round % 2 == 0) {
+                kept.add(rs);
+            }
+        }
+        long leaked = 0;
+        for (int i = 0; i < GC_ATTEMPTS && leaked < rounds; i++) {
+            System.gc();
+            Thread.sleep(100);
+            leaked = stats.getLeakedStatements() - leakedBefore;
+        }
+        long open = stats.getOpenResultSets() - openBefore;
+
+        System.out.println(leaked + " of " + rounds + " unclosed query statements counted as leaked, "
+                + open + " ResultSets left open, " + kept.size() + " ResultSets still held");
+        con.close();
+        System.exit(leaked == rounds && open == 0 ? 0 : 1);
+    }
+
+    // Runs a query and returns its ResultSet, leaving the statement unclosed and unreferenced
+    private static ResultSet leak(Connection con) throws SQLException {
+        PreparedStatement stmt = con.prepareStatement("select ISBN from Book where title = ?");
+        stmt.setString(1, "leak");
+        return stmt.executeQuery();
+    }
+
+    private static Connection fakeConnection() {
+        return fake(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return fakeStatement(proxy);
+                default:
+                    return answer(proxy, method.getReturnType(), method.getName(), args);
+            }
+        });
+    }
+
+    private static PreparedStatement fakeStatement(Object connection) {
+        return fake(PreparedStatement.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "executeQuery":
+                    return fakeResultSet(proxy);
+                case "getConnection":
+                    return connection;
+                default:
+                    return answer(proxy, method.getReturnType(), method.getName(), args);
+            }
+        });
+    }
+
+    private static ResultSet fakeResultSet(Object statement) {
+        return fake(ResultSet.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getStatement":
+                    return statement;
+                default:
+                    return answer(proxy, method.getReturnType(), method.getName(), args);
+            }
+        });
+    }
+
+    // What a stand-in returns from any other method: no rows, nothing closed, zero
+    private static Object answer(Object proxy, Class<?> type, String name, Object[] args) {
+        switch (name) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "fake";
+            default:
+                break;
+        }
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static <T> T fake(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(JdbcStatsLeakCheck.class.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.util.List;
+
+/**
+ * Management interface of JdbcStats, registered as
+ * my.libraryui:type=JdbcStats so JConsole or VisualVM can read it.
+ */
+public interface JdbcStatsMXBean {
+
+    /** Statements created and not yet closed, including leaked ones. */
+    long getOpenStatements();
+
+    /** Statements that became unreachable without being closed. */
+    long getLeakedStatements();
+
+    /** ResultSets opened and not yet closed or read to the end. */
+    long getOpenResultSets();
+
+    /** One entry per SQL shape, the most total time first. */
+    List<StatementStats> getStatements();
+
+    /** Returns the statement table the periodic log prints. */
+    String dump();
+
+    /** Clears the per-shape figures; the open and leaked counts stay. */
+    void reset();
+}
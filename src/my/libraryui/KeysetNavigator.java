@@ -0,0 +1,282 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * First/next/previous record navigation over a table using keyset
+ * pagination on its primary key. Only a small window of records around the
+ * current one is held in memory; moving past either end of the window
+ * fetches the neighbouring page with "where key > ? order by key limit n",
+ * so the cost of a step does not depend on the size of the table.
+ *
+ * After a write the window is patched in place (see inserted, updated and
+ * deleted) and only the affected key is re-read, instead of starting the
+ * browse over. String keys are placed using a primary-strength Collator,
+ * which orders the way MySQL's case and accent insensitive collations do
+ * for the keys this application uses. Writes made elsewhere reach the
+ * window through the same methods; see RecordModel.apply.
+ *
+ * Not thread safe; a frame drives it from its DbExecutor.
+ */
+public class KeysetNavigator<T> {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    /**
+     * @param repository repository of the table to browse
+     */
+    public KeysetNavigator(KeysetRepository<T> repository) {
+        this(DEFAULT_PAGE_SIZE, repository);
+    }
+
+    public KeysetNavigator(int pageSize, KeysetRepository<T> repository) {
+        this.pageSize = pageSize;
+        this.repository = repository;
+        collator.setStrength(Collator.PRIMARY);
+    }
+
+    /**
+     * Moves to the first record, or returns null if the table is empty.
+     */
+    public T first(Connection con) throws SQLException {
+        rows = repository.first(con, pageSize);
+        atStart = true;
+        atEnd = rows.size() < pageSize;
+        position = rows.isEmpty() ? -1 : 0;
+        return current();
+    }
+
+    /**
+     * Moves to the following record. Returns null and stays on the current
+     * record when there is none.
+     */
+    public T next(Connection con) throws SQLException {
+        if (rows.isEmpty()) {
+            return first(con);
+        }
+        if (position + 1 < rows.size()) {
+            position++;
+            return current();
+        }
+        if (!loadNext(con, keyAt(rows.size() - 1))) {
+            return null;
+        }
+        position = 0;
+        return current();
+    }
+
+    /**
+     * Moves to the preceding record. Returns null and stays on the current
+     * record when there is none.
+     */
+    public T previous(Connection con) throws SQLException {
+        if (rows.isEmpty()) {
+            return null;
+        }
+        if (position > 0) {
+            position--;
+            return current();
+        }
+        if (!loadPrevious(con, keyAt(0))) {
+            return null;
+        }
+        position = rows.size() - 1;
+        return current();
+    }
+
+    public T current() {
+        return position < 0 ? null : rows.get(position);
+    }
+
+    /**
+     * Re-reads the record just inserted under key and slots it into the
+     * window if its key falls inside it. The current record does not change.
+     */
+    public void inserted(Connection con, Object key) throws SQLException {
+        T row = repository.find(con, key);
+        if (row != null) {
+            int index = place(row);
+            if (index >= 0 && index <= position) {
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Re-reads the current record, now stored under key (which differs from
+     * its old key if the primary key itself was updated), and makes it the
+     * current record again.
+     */
+    public T updated(Connection con, Object key) throws SQLException {
+        T row = repository.find(con, key);
+        if (position < 0) {
+            return null;
+        }
+        if (row == null) {
+            return deleted(con, keyAt(position));
+        }
+        if (compareKeys(keyAt(position), repository.keyOf(row)) == 0) {
+            rows.set(position, row);
+            return current();
+        }
+
+        rows.remove(position);
+        position = place(row);
+        if (position < 0) {
+            // Moved outside the window: restart the window at the record itself
+            rows.clear();
+            rows.add(row);
+            atStart = false;
+            atEnd = false;
+            position = 0;
+        }
+        return current();
+    }
+
+    /**
+     * Drops the record stored under key from the window. If it was the current
+     * record, the following one (or failing that the preceding one) becomes
+     * current and is returned; null means the table is now empty.
+     */
+    public T deleted(Connection con, Object key) throws SQLException {
+        int index = indexOf(key);
+        if (index < 0) {
+            return current();
+        }
+        Object removedKey = keyAt(index);
+        rows.remove(index);
+        if (index < position) {
+            position--;
+        } else if (index == position && position == rows.size()) {
+            if (loadNext(con, removedKey)) {
+                position = 0;
+            } else if (rows.isEmpty() && loadPrevious(con, removedKey)) {
+                position = rows.size() - 1;
+            } else {
+                position = rows.size() - 1;
+            }
+        }
+        return current();
+    }
+
+    /**
+     * Whether key is the key of the current record.
+     */
+    public boolean isCurrent(Object key) {
+        return position >= 0 && key != null && compareKeys(keyAt(position), key) == 0;
+    }
+
+    /**
+     * Re-reads the current record and drops the rest of the window, for a
+     * change that may have touched any row (a cascaded rename, say); the
+     * neighbouring pages are read again as the user steps onto them.
+     */
+    public T refresh(Connection con) throws SQLException {
+        if (position < 0) {
+            return null;
+        }
+        T row = repository.find(con, keyAt(position));
+        if (row == null) {
+            return deleted(con, keyAt(position));
+        }
+        rows = new ArrayList<>();
+        rows.add(row);
+        atStart = false;
+        atEnd = false;
+        position = 0;
+        return current();
+    }
+
+    /**
+     * Drops the window so the next call starts again from the first record.
+     */
+    public void reset() {
+        rows = new ArrayList<>();
+        position = -1;
+        atStart = false;
+        atEnd = false;
+    }
+
+    // Both keep the current window when there is no page beyond the key
+    private boolean loadNext(Connection con, Object key) throws SQLException {
+        List<T> page = repository.after(con, key, pageSize);
+        if (page.isEmpty()) {
+            atEnd = true;
+            return false;
+        }
+        rows = page;
+        atStart = false;
+        atEnd = rows.size() < pageSize;
+        return true;
+    }
+
+    private boolean loadPrevious(Connection con, Object key) throws SQLException {
+        List<T> page = repository.before(con, key, pageSize);
+        if (page.isEmpty()) {
+            atStart = true;
+            return false;
+        }
+        rows = page;
+        atStart = rows.size() < pageSize;
+        atEnd = false;
+        return true;
+    }
+
+    // Inserts row at its key position; returns its index, or -1 if it lies outside the window
+    private int place(T row) {
+        Object key = repository.keyOf(row);
+        int index = 0;
+        while (index < rows.size() && compareKeys(keyAt(index), key) < 0) {
+            index++;
+        }
+        if ((index == 0 && !atStart && !rows.isEmpty()) || (index == rows.size() && !atEnd)) {
+            return -1;
+        }
+        rows.add(index, row);
+        return index;
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (compareKeys(keyAt(i), key) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Object keyAt(int index) {
+        return repository.keyOf(rows.get(index));
+    }
+
+    private int compareKeys(Object a, Object b) {
+        if (a instanceof Number || b instanceof Number) {
+            try {
+                return Long.compare(Long.parseLong(a.toString().trim()), Long.parseLong(b.toString().trim()));
+            } catch (NumberFormatException ex) {
+                // fall through to a text comparison
+            }
+        }
+        return collator.compare(a.toString(), b.toString());
+    }
+
+
+    private final int pageSize;
+    private final KeysetRepository<T> repository;
+    private final Collator collator = Collator.getInstance(Locale.ROOT);
+    private List<T> rows = new ArrayList<>();
+    private int position = -1;
+    // Whether the window reaches the first / last record of the table
+    private boolean atStart = false;
+    private boolean atEnd = false;
+}
@@ -0,0 +1,81 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Repository of a table with a single-column primary key, which it can page
+ * through in key order. KeysetNavigator browses the three record frames
+ * through these page queries.
+ */
+public abstract class KeysetRepository<T> extends Repository<T> {
+
+    /**
+     * @param table   table to read
+     * @param key     its single-column primary key
+     * @param columns select list, in the order map reads it
+     */
+    protected KeysetRepository(String table, String key, String columns) {
+        String select = "select " + columns + " from " + table;
+        findQuery = select + " where " + key + " = ?";
+        firstQuery = select + " order by " + key + " limit ?";
+        afterQuery = select + " where " + key + " > ? order by " + key + " limit ?";
+        beforeQuery = select + " where " + key + " < ? order by " + key + " desc limit ?";
+    }
+
+    /**
+     * Returns the primary key of record, as an Integer or a String.
+     */
+    public abstract Object keyOf(T record);
+
+    public T find(Connection con, Object key) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, findQuery);
+        stmt.setObject(1, key);
+        return one(stmt);
+    }
+
+    /**
+     * Returns up to limit records from the start of the table.
+     */
+    public List<T> first(Connection con, int limit) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, firstQuery);
+        stmt.setInt(1, limit);
+        return list(stmt);
+    }
+
+    /**
+     * Returns up to limit records following key, in key order.
+     */
+    public List<T> after(Connection con, Object key, int limit) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, afterQuery);
+        stmt.setObject(1, key);
+        stmt.setInt(2, limit);
+        return list(stmt);
+    }
+
+    /**
+     * Returns up to limit records preceding key, also in key order.
+     */
+    public List<T> before(Connection con, Object key, int limit) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, beforeQuery);
+        stmt.setObject(1, key);
+        stmt.setInt(2, limit);
+        List<T> rows = list(stmt);
+        Collections.reverse(rows);
+        return rows;
+    }
+
+
+    private final String findQuery;
+    private final String firstQuery;
+    private final String afterQuery;
+    private final String beforeQuery;
+}
@@ -0,0 +1,179 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Read-only TableModel over a report query that reads its rows in blocks of
+ * BLOCK_SIZE, only when the JTable asks for them. A block that is not loaded
+ * yet shows empty cells while it is fetched on the frame's DbExecutor, and
+ * the rows are repainted when it arrives. At most MAX_BLOCKS blocks are kept;
+ * the least recently painted one is dropped first and re-read if the user
+ * scrolls back to it.
+ *
+ * Replaces DbUtils.resultSetToTableModel, which copies the whole result into
+ * a Vector of Vectors before the first row can be shown. Each block is held
+ * as a ColumnarResult.
+ *
+ * Blocks are read with "limit ? offset ?" appended to the report SQL, so the
+ * query must not have a limit of its own and must order its rows by a
+ * unique key, or rows can repeat or go missing between blocks. The cache is
+ * only touched on the EDT.
+ *
+ * The first block is shown as soon as it is read. Only if it is full are
+ * the rows counted, in the background, and the table grows to the count
+ * when it arrives.
+ */
+public class LazyTableModel extends AbstractTableModel {
+
+    public static final int BLOCK_SIZE = Integer.getInteger("library.table.blockSize", 100);
+    public static final int MAX_BLOCKS = Integer.getInteger("library.table.maxBlocks", 20);
+
+    private static final Logger LOG = Logger.getLogger(LazyTableModel.class.getName());
+
+    /**
+     * Reads the first block of sql. Call it from the DbExecutor and set the
+     * model on the JTable when it returns; the row count and later blocks
+     * are read through db_exec as well.
+     */
+    public static LazyTableModel open(ConnectionDB db_con, DbExecutor db_exec, String sql, Object... params) throws SQLException {
+        LazyTableModel model = new LazyTableModel(db_con, db_exec, sql, params);
+        ColumnarResult first = model.fetch(0);
+        model.blocks.put(0, first);
+        model.rowCount = first.getRowCount();
+        if (model.rowCount == BLOCK_SIZE) {
+            model.countRows();
+        }
+        return model;
+    }
+
+    private LazyTableModel(ConnectionDB db_con, DbExecutor db_exec, String sql, Object[] params) {
+        this.db_con = db_con;
+        this.db_exec = db_exec;
+        this.blockQuery = sql + " limit ? offset ?";
+        this.countQuery = "select count(*) from (" + sql + ") as report";
+        this.params = params.clone();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int block = row / BLOCK_SIZE;
+        ColumnarResult rows = blocks.get(block);
+        if (rows == null) {
+            request(block);
+            return null;
+        }
+        int offset = row % BLOCK_SIZE;
+        return offset < rows.getRowCount() ? rows.getValue(offset, column) : null;
+    }
+
+    // Counts every row in the background; until the count arrives only the first block is shown
+    private void countRows() {
+        db_exec.submit(() -> {
+            PreparedStatement count = db_con.prepare(countQuery);
+            bind(count, params, 0);
+            try (ResultSet rs = count.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }, count -> {
+            int old = rowCount;
+            rowCount = count;
+            if (count > old) {
+                fireTableRowsInserted(old, count - 1);
+            } else if (count < old) {
+                fireTableRowsDeleted(count, old - 1);
+            }
+        }, ex -> LOG.warning("Could not count the rows: " + ex));
+    }
+
+    private void request(final int block) {
+        if (!pending.add(block)) {
+            return;
+        }
+        db_exec.submit(() -> fetch(block), rows -> {
+            pending.remove(block);
+            blocks.put(block, rows);
+            int first = block * BLOCK_SIZE;
+            int last = Math.min(first + BLOCK_SIZE, rowCount) - 1;
+            if (first <= last) {
+                fireTableRowsUpdated(first, last);
+            }
+        }, ex -> {
+            pending.remove(block);
+            LOG.warning("Could not read block " + block + ": " + ex);
+        });
+    }
+
+    // Runs on the DbExecutor thread
+    private ColumnarResult fetch(int block) throws SQLException {
+        PreparedStatement stmt = db_con.prepare(blockQuery);
+        int i = bind(stmt, params, 0);
+        stmt.setInt(i + 1, BLOCK_SIZE);
+        stmt.setInt(i + 2, block * BLOCK_SIZE);
+        try (ResultSet rs = stmt.executeQuery()) {
+            ColumnarResult rows = ColumnarResult.read(rs);
+            if (columnNames == null) {
+                String[] names = new String[rows.getColumnCount()];
+                for (int c = 0; c < names.length; c++) {
+                    names[c] = rows.getColumnName(c);
+                }
+                columnNames = names;
+            }
+            return rows;
+        }
+    }
+
+    // Binds params from index offset + 1 on; returns the last index bound
+    private static int bind(PreparedStatement stmt, Object[] params, int offset) throws SQLException {
+        for (Object param : params) {
+            stmt.setObject(++offset, param);
+        }
+        return offset;
+    }
+
+
+    private final ConnectionDB db_con;
+    private final DbExecutor db_exec;
+    private final String blockQuery;
+    private final String countQuery;
+    private final Object[] params;
+    // The first block's rows until countRows has the total; only changed on the EDT once open returns
+    private int rowCount;
+    private volatile String[] columnNames;
+    private final Set<Integer> pending = new HashSet<>();
+    // Access-ordered, so the block painted longest ago is dropped first
+    private final Map<Integer, ColumnarResult> blocks = new LinkedHashMap<Integer, ColumnarResult>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ColumnarResult> eldest) {
+            return size() > MAX_BLOCKS;
+        }
+    };
+}
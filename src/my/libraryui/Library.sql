@@ -178,22 +178,65 @@ CREATE TABLE Written_by
 );
 
 
+/* Per-member loan counters, maintained by the TR_LOANSTATS_* triggers on Borrows */
+CREATE TABLE MemberLoanStats
+(
+    memberID INT NOT NULL,
+    totalLoans INT NOT NULL DEFAULT 0,
+    openLoans INT NOT NULL DEFAULT 0,
+    oldestOpenLoan DATE,
+
+    CONSTRAINT PK_loanstats_memberID PRIMARY KEY (memberID)
+);
+
+
+/* Append-only log of writes to the shared tables, written by the TR_CHANGELOG_* triggers
+   and read by every workstation's ChangeLogPoller. sessionID is the writer's CONNECTION_ID() */
+CREATE TABLE ChangeLog
+(
+    changeID BIGINT NOT NULL AUTO_INCREMENT,
+    entity NVARCHAR(16) NOT NULL,
+    operation NVARCHAR(6) NOT NULL,
+    entityKey NVARCHAR(120) NOT NULL,
+    oldKey NVARCHAR(120) NOT NULL,
+    sessionID BIGINT NOT NULL,
+    changedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT PK_changelog_changeID PRIMARY KEY (changeID)
+);
+
+
 /*******************************************************************************
-   Create Unique Indexes
+   Create Indexes
+   (InnoDB already clusters every table on its primary key, so only the access
+    paths the application's queries need beyond it are indexed here)
 ********************************************************************************/
-CREATE INDEX INX_memberID ON Member (memberID);
+/* Books of a publisher: PublishedQuery, FK_BOOK_pubName */
 CREATE INDEX INX_pubName_Book ON Book (pubName);
-CREATE INDEX INX_isbn ON Book (ISBN);
-CREATE INDEX INX_authID ON Author (authID);
-CREATE INDEX INX_ISBN_copyNr ON Copies (ISBN, copyNr);
-CREATE INDEX INX_pubName ON Publisher (pubName);
-CREATE INDEX INX_empID ON Employee (empID);
-CREATE INDEX INX_empID ON Permanent_Employee (empID);
-CREATE INDEX INX_empID ON Temporary_Employee (empID);
-CREATE INDEX INX_micd ON Borrows (memberID,ISBN,copyNr,date_of_borrowing);
-CREATE INDEX INX_emicdd ON Reminder (empID,memberID,ISBN,copyNr,date_of_borrowing,date_of_reminder);
-CREATE INDEX INX_ia ON Written_by (ISBN,authID);
-CREATE INDEX INX_ic ON Belongs_to (ISBN,categoryName);
+/* Book by title: BookPositionQuery, bookPositionFrame, the title combo boxes */
+CREATE INDEX INX_title ON Book (title);
+/* Publishers established after a year: PubAfterYearQuery */
+CREATE INDEX INX_estYear ON Publisher (estYear);
+/* A member's open loans, oldest first: LoanRepository.outstanding, SP_LOANSTATS */
+CREATE INDEX INX_memberID_return ON Borrows (memberID,date_of_return,date_of_borrowing);
+/* Loans of a copy: FK_BORROWS_isbn_copyNr and FK_BORROWS_isbn */
+CREATE INDEX INX_ISBN_copyNr_Borrows ON Borrows (ISBN,copyNr);
+/* Books of an author: BooksWrittenQuery, FK_WRITTENBY_authid */
+CREATE INDEX INX_authID_Written_by ON Written_by (authID);
+/* Members by number of loans: BorrowedCountFrame, borrowedFiveQuery */
+CREATE INDEX INX_totalLoans ON MemberLoanStats (totalLoans);
+/* Change log entries past their retention: EV_CHANGELOG_PURGE */
+CREATE INDEX INX_changedAt ON ChangeLog (changedAt);
+/* Books of a category: CatalogSearchQuery, FK_BELONGS_categoryName */
+CREATE INDEX INX_categoryName_Belongs_to ON Belongs_to (categoryName);
+/* Words of titles, author names and category names: CatalogSearchQuery (Sql.CATALOG_SEARCH).
+   The ngram parser (MySQL 5.7.6 and later) indexes every run of ngram_token_size (2) characters
+   instead of splitting on spaces; each word is searched as a phrase, a consecutive run of those
+   bigrams, so it is found inside longer words too (a Greek stem in its inflected forms), and a
+   book matches when every word is found in its title, an author or a category */
+CREATE FULLTEXT INDEX FTX_title ON Book (title) WITH PARSER ngram;
+CREATE FULLTEXT INDEX FTX_authorName ON Author (AFirst,ALast) WITH PARSER ngram;
+CREATE FULLTEXT INDEX FTX_categoryName ON Category (categoryName) WITH PARSER ngram;
 
 
 /*******************************************************************************
@@ -318,9 +361,20 @@ ALTER TABLE Written_by ADD CONSTRAINT FK_WRITTENBY_authid
     ON DELETE CASCADE
     ON UPDATE CASCADE;
 
+
+/* Create Foreign key: FK_LOANSTATS_memberID in MemberLoanStats table to Member table */
+/* (cascaded updates do not fire triggers, so a changed memberID is carried over here) */
+ALTER TABLE MemberLoanStats ADD CONSTRAINT FK_LOANSTATS_memberID
+    FOREIGN KEY (memberID) REFERENCES Member (memberID)
+    ON DELETE CASCADE
+    ON UPDATE CASCADE;
+
     
 /*******************************************************************************
    Create trigger that permits members to borrow books if they are not eligible
+   (Reads the member's MemberLoanStats row, so the check is a primary key lookup.
+    LoanRepository.checkout locks that row first, so concurrent checkouts for
+    one member cannot both pass the limit.)
 ********************************************************************************/
 DELIMITER |
 CREATE TRIGGER TR_BORROWS BEFORE INSERT ON Borrows
@@ -329,8 +383,8 @@ BEGIN
     DECLARE total INT;
     DECLARE dayDiff INT;
     
-    SET total := (SELECT COUNT(*) FROM Borrows WHERE NEW.memberID=memberID AND date_of_return IS NULL);
-    SET dayDiff := (SELECT DATEDIFF(DATE(NOW()), date_of_borrowing) FROM Borrows WHERE NEW.memberID=memberID AND date_of_return IS NULL ORDER BY date_of_borrowing LIMIT 1);
+    SET total := (SELECT openLoans FROM MemberLoanStats WHERE NEW.memberID=memberID);
+    SET dayDiff := (SELECT DATEDIFF(DATE(NOW()), oldestOpenLoan) FROM MemberLoanStats WHERE NEW.memberID=memberID);
         
     IF ((total >= 5) OR (dayDiff > 30))
     THEN
@@ -341,6 +395,87 @@ END|
 DELIMITER ;
 
 
+/*******************************************************************************
+   Create procedure that adds (delta = 1) or removes (delta = -1) one loan
+   from a member's counters in MemberLoanStats
+********************************************************************************/
+DELIMITER |
+CREATE PROCEDURE SP_LOANSTATS(IN member INT, IN borrowed DATE, IN returned DATE, IN delta INT)
+BEGIN
+    INSERT INTO MemberLoanStats (memberID) VALUES (member)
+        ON DUPLICATE KEY UPDATE memberID = memberID;
+
+    UPDATE MemberLoanStats
+        SET totalLoans = totalLoans + delta,
+            openLoans = openLoans + IF(returned IS NULL, delta, 0)
+        WHERE memberID = member;
+
+    /* Only an open loan moves the oldest open date; a rescan is needed only when that loan closes */
+    IF (returned IS NULL AND delta > 0)
+    THEN
+        UPDATE MemberLoanStats
+            SET oldestOpenLoan = IF(oldestOpenLoan IS NULL OR borrowed < oldestOpenLoan, borrowed, oldestOpenLoan)
+            WHERE memberID = member;
+    ELSEIF (returned IS NULL)
+    THEN
+        UPDATE MemberLoanStats
+            SET oldestOpenLoan = (SELECT MIN(date_of_borrowing) FROM Borrows WHERE memberID = member AND date_of_return IS NULL)
+            WHERE memberID = member AND (oldestOpenLoan IS NULL OR oldestOpenLoan >= borrowed);
+    END IF;
+END|
+
+DELIMITER ;
+
+
+/*******************************************************************************
+   Create procedure that appends one write to ChangeLog
+   (Called from AFTER triggers, so the entry commits or rolls back with the write.
+    Bulk loads set @library_changelog_off = 1 for their session and log a single
+    RELOAD entry per table when they finish, see Sql.CHANGE_LOG_RELOAD)
+********************************************************************************/
+DELIMITER |
+CREATE PROCEDURE SP_CHANGELOG(IN entity NVARCHAR(16), IN operation NVARCHAR(6), IN entityKey NVARCHAR(120), IN oldKey NVARCHAR(120))
+BEGIN
+    IF @library_changelog_off IS NULL THEN
+        INSERT INTO ChangeLog (entity, operation, entityKey, oldKey, sessionID)
+            VALUES (entity, operation, entityKey, oldKey, CONNECTION_ID());
+    END IF;
+END|
+
+DELIMITER ;
+
+
+/*******************************************************************************
+   Create triggers that keep MemberLoanStats current on checkout and return
+   (They also log the loan to ChangeLog: a table can have only one AFTER trigger
+    per event before MySQL 5.7.2)
+********************************************************************************/
+DELIMITER |
+CREATE TRIGGER TR_LOANSTATS_INSERT AFTER INSERT ON Borrows
+FOR EACH ROW
+BEGIN
+    CALL SP_LOANSTATS(NEW.memberID, NEW.date_of_borrowing, NEW.date_of_return, 1);
+    CALL SP_CHANGELOG("LOAN", "INSERT", NEW.memberID, NEW.memberID);
+END|
+
+CREATE TRIGGER TR_LOANSTATS_UPDATE AFTER UPDATE ON Borrows
+FOR EACH ROW
+BEGIN
+    CALL SP_LOANSTATS(OLD.memberID, OLD.date_of_borrowing, OLD.date_of_return, -1);
+    CALL SP_LOANSTATS(NEW.memberID, NEW.date_of_borrowing, NEW.date_of_return, 1);
+    CALL SP_CHANGELOG("LOAN", "UPDATE", NEW.memberID, OLD.memberID);
+END|
+
+CREATE TRIGGER TR_LOANSTATS_DELETE AFTER DELETE ON Borrows
+FOR EACH ROW
+BEGIN
+    CALL SP_LOANSTATS(OLD.memberID, OLD.date_of_borrowing, OLD.date_of_return, -1);
+    CALL SP_CHANGELOG("LOAN", "DELETE", OLD.memberID, OLD.memberID);
+END|
+
+DELIMITER ;
+
+
 /*******************************************************************************
    Create trigger that inserts category if it doesn't exist
 ********************************************************************************/
@@ -508,6 +643,96 @@ END|
 DELIMITER ;
 
 
+/*******************************************************************************
+   Create triggers that log every write to Book, Member, Publisher and Copies
+   (Copies are logged by ISBN: the entry means "the copies of this book changed".
+    Rows changed by ON UPDATE CASCADE fire no triggers; readers of a parent's
+    rename or delete account for its children)
+********************************************************************************/
+DELIMITER |
+CREATE TRIGGER TR_CHANGELOG_BOOK_INSERT AFTER INSERT ON Book
+FOR EACH ROW
+BEGIN
+    CALL SP_CHANGELOG("BOOK", "INSERT", NEW.ISBN, NEW.ISBN);
+END|
+
+CREATE TRIGGER TR_CHANGELOG_BOOK_UPDATE AFTER UPDATE ON Book
+FOR EACH ROW
+BEGIN
+    CALL SP_CHANGELOG("BOOK", "UPDATE", NEW.ISBN, OLD.ISBN);
+END|
+
+CREATE TRIGGER TR_CHANGELOG_BOOK_DELETE AFTER DELETE ON Book
+FOR EACH ROW
+BEGIN
+    CALL SP_CHANGELOG("BOOK", "DELETE", OLD.ISBN, OLD.ISBN);
+END|
+
+CREATE TRIGGER TR_CHANGELOG_MEMBER_INSERT AFTER INSERT ON Member
+FOR EACH ROW
+BEGIN
+    CALL SP_CHANGELOG("MEMBER", "INSERT", NEW.memberID, NEW.memberID);
+END|
+
+CREATE TRIGGER TR_CHANGELOG_MEMBER_UPDATE AFTER UPDATE ON Member
+FOR EACH ROW
+BEGIN
+    CALL SP_CHANGELOG("MEMBER", "UPDATE", NEW.memberID, OLD.memberID);
+END|
+
+CREATE TRIGGER TR_CHANGELOG_MEMBER_DELETE AFTER DELETE ON Member
+FOR EACH ROW
+BEGIN
+    CALL SP_CHANGELOG("MEMBER", "DELETE", OLD.memberID, OLD.memberID);
+END|
+
+CREATE TRIGGER TR_CHANGELOG_PUBLISHER_INSERT AFTER INSERT ON Publisher
+FOR EACH ROW
+BEGIN
+    CALL SP_CHANGELOG("PUBLISHER", "INSERT", NEW.pubName, NEW.pubName);
+END|
+
+CREATE TRIGGER TR_CHANGELOG_PUBLISHER_UPDATE AFTER UPDATE ON Publisher
+FOR EACH ROW
+BEGIN
+    CALL SP_CHANGELOG("PUBLISHER", "UPDATE", NEW.pubName, OLD.pubName);
+END|
+
+CREATE TRIGGER TR_CHANGELOG_PUBLISHER_DELETE AFTER DELETE ON Publisher
+FOR EACH ROW
+BEGIN
+    CALL SP_CHANGELOG("PUBLISHER", "DELETE", OLD.pubName, OLD.pubName);
+END|
+
+CREATE TRIGGER TR_CHANGELOG_COPIES_INSERT AFTER INSERT ON Copies
+FOR EACH ROW
+BEGIN
+    CALL SP_CHANGELOG("COPY", "INSERT", NEW.ISBN, NEW.ISBN);
+END|
+
+CREATE TRIGGER TR_CHANGELOG_COPIES_UPDATE AFTER UPDATE ON Copies
+FOR EACH ROW
+BEGIN
+    CALL SP_CHANGELOG("COPY", "UPDATE", NEW.ISBN, OLD.ISBN);
+END|
+
+CREATE TRIGGER TR_CHANGELOG_COPIES_DELETE AFTER DELETE ON Copies
+FOR EACH ROW
+BEGIN
+    CALL SP_CHANGELOG("COPY", "DELETE", OLD.ISBN, OLD.ISBN);
+END|
+
+DELIMITER ;
+
+
+/*******************************************************************************
+   Create event that drops change log entries older than a day
+   (Needs event_scheduler=ON; ChangeLogPoller reads new entries every half second)
+********************************************************************************/
+CREATE EVENT EV_CHANGELOG_PURGE ON SCHEDULE EVERY 1 HOUR
+    DO DELETE FROM ChangeLog WHERE changedAt < NOW() - INTERVAL 1 DAY;
+
+
 /*******************************************************************************
    Insert data into Publisher table
 ********************************************************************************/
@@ -702,11 +927,11 @@ INSERT INTO Reminder VALUES (4,3,"960–538–175–2",1,"2019-06-01","2019-06-0
 
 /*******************************************************************************
    Create view that shows how many books each member has borrowed
-   (This view is non-updateable as it contains the COUNT function)
+   (Reads the counters in MemberLoanStats instead of aggregating Borrows)
 ********************************************************************************/
 CREATE VIEW BorrowedCount AS 
-(SELECT MFirst AS "FirstName", MLast AS "LastName", COUNT(*) AS "BooksBorrowed" FROM Borrows AS b, Member AS m
- WHERE m.memberID=b.memberID GROUP BY m.memberID ORDER BY COUNT(*) DESC);
+(SELECT MFirst AS "FirstName", MLast AS "LastName", s.totalLoans AS "BooksBorrowed" FROM MemberLoanStats AS s, Member AS m
+ WHERE m.memberID=s.memberID AND s.totalLoans > 0 ORDER BY s.totalLoans DESC);
 
 /*******************************************************************************
    Create view that shows book titles, their shelf and copy number
@@ -5,6 +5,10 @@
  */
 package my.libraryui;
 
+import java.io.File;
+import java.nio.file.Path;
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
 
 public class LibraryUI extends javax.swing.JFrame {
 
@@ -14,6 +18,8 @@ public class LibraryUI extends javax.swing.JFrame {
     public LibraryUI() {
         initComponents();
         this.setLocationRelativeTo(null); // Center main window on screen
+        ReferenceData.getInstance(); // Starts loading the combo box contents
+        ChangeLogPoller.start();      // Other workstations' writes reach the open frames through the ChangeBus
     }
     
     /**
@@ -35,6 +41,7 @@ public class LibraryUI extends javax.swing.JFrame {
         jLabel7 = new javax.swing.JLabel();
         jMenuBar1 = new javax.swing.JMenuBar();
         jMenu1 = new javax.swing.JMenu();
+        exportMenuItem = new javax.swing.JMenuItem();
         Exit = new javax.swing.JMenuItem();
         jMenu2 = new javax.swing.JMenu();
         bookMenuItem = new javax.swing.JMenuItem();
@@ -43,6 +50,7 @@ public class LibraryUI extends javax.swing.JFrame {
         jMenu3 = new javax.swing.JMenu();
         query3MenuItem = new javax.swing.JMenuItem();
         query7MenuItem = new javax.swing.JMenuItem();
+        searchMenuItem = new javax.swing.JMenuItem();
         query4MenuItem = new javax.swing.JMenuItem();
         query6MenuItem = new javax.swing.JMenuItem();
         query5MenuItem = new javax.swing.JMenuItem();
@@ -134,6 +142,14 @@ public class LibraryUI extends javax.swing.JFrame {
 
         jMenu1.setText("File");
 
+        exportMenuItem.setText("Export...");
+        exportMenuItem.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                exportMenuItemActionPerformed(evt);
+            }
+        });
+        jMenu1.add(exportMenuItem);
+
         Exit.setText("Exit");
         Exit.addActionListener(new java.awt.event.ActionListener() {
             public void actionPerformed(java.awt.event.ActionEvent evt) {
@@ -190,6 +206,14 @@ public class LibraryUI extends javax.swing.JFrame {
         });
         jMenu3.add(query7MenuItem);
 
+        searchMenuItem.setText("Search Catalog");
+        searchMenuItem.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                searchMenuItemActionPerformed(evt);
+            }
+        });
+        jMenu3.add(searchMenuItem);
+
         query4MenuItem.setText("Total Salaries");
         query4MenuItem.addActionListener(new java.awt.event.ActionListener() {
             public void actionPerformed(java.awt.event.ActionEvent evt) {
@@ -276,9 +300,39 @@ public class LibraryUI extends javax.swing.JFrame {
 
     private void ExitActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_ExitActionPerformed
         // Close database and Exit
+        ConnectionPool.getInstance().shutdown();
         System.exit(0);
     }//GEN-LAST:event_ExitActionPerformed
 
+    private void exportMenuItemActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_exportMenuItemActionPerformed
+        String[] names = StreamingExport.names();
+        Object name = JOptionPane.showInputDialog(this, "Table or report:", "Export", JOptionPane.PLAIN_MESSAGE, null, names, names[0]);
+        if (name == null) {
+            return;
+        }
+        Object[] params = {};
+        String prompt = StreamingExport.parameterPrompt(name.toString());
+        if (prompt != null) {
+            String param = JOptionPane.showInputDialog(this, prompt);
+            if (param == null) {
+                return;
+            }
+            params = new Object[] {param.trim()};
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File(name + ".csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        // Runs on a pooled connection of its own, so the frames stay usable meanwhile
+        final Path file = chooser.getSelectedFile().toPath();
+        final Object[] values = params;
+        db_exec.submit(() -> StreamingExport.export(name.toString(), values, StreamingExport.Format.forFile(file), file),
+                rows -> JOptionPane.showMessageDialog(this, "Exported " + rows + " rows to " + file),
+                ex -> JOptionPane.showMessageDialog(this, ex));
+    }//GEN-LAST:event_exportMenuItemActionPerformed
+
     private void nonUpdateableMenuItemActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_nonUpdateableMenuItemActionPerformed
         new BorrowedCountFrame().setVisible(true);
     }//GEN-LAST:event_nonUpdateableMenuItemActionPerformed
@@ -327,6 +381,10 @@ public class LibraryUI extends javax.swing.JFrame {
         new BookPositionQuery().setVisible(true);
     }//GEN-LAST:event_query7MenuItemActionPerformed
 
+    private void searchMenuItemActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_searchMenuItemActionPerformed
+        new CatalogSearchQuery().setVisible(true);
+    }//GEN-LAST:event_searchMenuItemActionPerformed
+
     /**
      * @param args the command line arguments
      */
@@ -362,12 +420,14 @@ public class LibraryUI extends javax.swing.JFrame {
         });
     }
 
-    
+    private final DbExecutor db_exec = new DbExecutor(this);
+
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JMenuItem Exit;
     private javax.swing.JMenu Views;
     private javax.swing.JMenuItem bookMenuItem;
     private javax.swing.JMenuItem borrowedFiveMenuItem;
+    private javax.swing.JMenuItem exportMenuItem;
     private javax.swing.JLabel jLabel1;
     private javax.swing.JLabel jLabel2;
     private javax.swing.JLabel jLabel3;
@@ -389,6 +449,7 @@ public class LibraryUI extends javax.swing.JFrame {
     private javax.swing.JMenuItem query5MenuItem;
     private javax.swing.JMenuItem query6MenuItem;
     private javax.swing.JMenuItem query7MenuItem;
+    private javax.swing.JMenuItem searchMenuItem;
     private javax.swing.JMenuItem updateableMenuItem;
     // End of variables declaration//GEN-END:variables
 }
@@ -0,0 +1,53 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.time.LocalDate;
+
+/**
+ * A row of the Borrows table. returned is null while the copy is still out.
+ */
+public final class Loan {
+
+    public Loan(int memberId, String isbn, int copyNr, LocalDate borrowed, LocalDate returned) {
+        this.memberId = memberId;
+        this.isbn = isbn;
+        this.copyNr = copyNr;
+        this.borrowed = borrowed;
+        this.returned = returned;
+    }
+
+    public int getMemberId() {
+        return memberId;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public int getCopyNr() {
+        return copyNr;
+    }
+
+    public LocalDate getBorrowed() {
+        return borrowed;
+    }
+
+    public LocalDate getReturned() {
+        return returned;
+    }
+
+    public boolean isOutstanding() {
+        return returned == null;
+    }
+
+
+    private final int memberId;
+    private final String isbn;
+    private final int copyNr;
+    private final LocalDate borrowed;
+    private final LocalDate returned;
+}
@@ -0,0 +1,103 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Reads and writes the Borrows table as Loan records.
+ */
+public class LoanRepository extends Repository<Loan> {
+
+    public static final int MAX_OPEN_LOANS = 5;
+    public static final int MAX_LOAN_DAYS = 30;
+    public static final String NOT_ELIGIBLE = "Error! This user is not eligible to borrow a book!";
+
+    @Override
+    protected Loan map(ResultSet rs) throws SQLException {
+        return new Loan(rs.getInt(1), rs.getString(2), rs.getInt(3), getDate(rs, 4), getDate(rs, 5));
+    }
+
+    public List<Loan> ofMember(Connection con, int memberId) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.LOANS_OF_MEMBER);
+        stmt.setInt(1, memberId);
+        return list(stmt);
+    }
+
+    /**
+     * Returns the member's loans that have not been returned, oldest first.
+     */
+    public List<Loan> outstanding(Connection con, int memberId) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.OPEN_LOANS_OF_MEMBER);
+        stmt.setInt(1, memberId);
+        return list(stmt);
+    }
+
+    public void insert(Connection con, Loan loan) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.LOAN_INSERT);
+        stmt.setInt(1, loan.getMemberId());
+        stmt.setString(2, loan.getIsbn());
+        stmt.setInt(3, loan.getCopyNr());
+        setDate(stmt, 4, loan.getBorrowed());
+        setDate(stmt, 5, loan.getReturned());
+        stmt.executeUpdate();
+    }
+
+    /**
+     * Lends a copy to a member in one transaction, if the member has fewer
+     * than MAX_OPEN_LOANS open loans and none older than MAX_LOAN_DAYS.
+     * The check reads the member's MemberLoanStats row under a row lock, so
+     * it costs a primary key lookup however long the member's history is,
+     * and a second checkout for the same member waits for the first to
+     * commit instead of passing the limit alongside it.
+     *
+     * @throws SQLException with SQLState 02000 and NOT_ELIGIBLE as its
+     *         message (as TR_BORROWS raises) when the member may not borrow
+     */
+    public void checkout(Connection con, Loan loan) throws SQLException {
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try {
+            PreparedStatement ensure = StatementCache.prepare(con, Sql.LOAN_STATS_ENSURE);
+            ensure.setInt(1, loan.getMemberId());
+            ensure.executeUpdate();
+
+            PreparedStatement stats = StatementCache.prepare(con, Sql.LOAN_STATS_FOR_UPDATE);
+            stats.setInt(1, loan.getMemberId());
+            try (ResultSet rs = stats.executeQuery()) {
+                rs.next();
+                int open = rs.getInt(1);
+                int oldestDays = rs.getInt(2);  // 0 when there is no open loan
+                if (open >= MAX_OPEN_LOANS || oldestDays > MAX_LOAN_DAYS) {
+                    throw new SQLException(NOT_ELIGIBLE, "02000");
+                }
+            }
+
+            insert(con, loan);
+            con.commit();
+        } catch (SQLException | RuntimeException ex) {
+            con.rollback();
+            throw ex;
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+    }
+
+    public void returned(Connection con, Loan loan, LocalDate date) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.LOAN_RETURN);
+        setDate(stmt, 1, date);
+        stmt.setInt(2, loan.getMemberId());
+        stmt.setString(3, loan.getIsbn());
+        stmt.setInt(4, loan.getCopyNr());
+        setDate(stmt, 5, loan.getBorrowed());
+        stmt.executeUpdate();
+    }
+}
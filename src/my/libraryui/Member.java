@@ -0,0 +1,61 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.time.LocalDate;
+
+/**
+ * A row of the Member table.
+ */
+public final class Member {
+
+    public Member(int memberId, String first, String last, String street, String streetNumber, String postalCode, LocalDate birthdate) {
+        this.memberId = memberId;
+        this.first = first;
+        this.last = last;
+        this.street = street;
+        this.streetNumber = streetNumber;
+        this.postalCode = postalCode;
+        this.birthdate = birthdate;
+    }
+
+    public int getMemberId() {
+        return memberId;
+    }
+
+    public String getFirst() {
+        return first;
+    }
+
+    public String getLast() {
+        return last;
+    }
+
+    public String getStreet() {
+        return street;
+    }
+
+    public String getStreetNumber() {
+        return streetNumber;
+    }
+
+    public String getPostalCode() {
+        return postalCode;
+    }
+
+    public LocalDate getBirthdate() {
+        return birthdate;
+    }
+
+
+    private final int memberId;
+    private final String first;
+    private final String last;
+    private final String street;
+    private final String streetNumber;
+    private final String postalCode;
+    private final LocalDate birthdate;
+}
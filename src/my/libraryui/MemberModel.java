@@ -0,0 +1,80 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * The operations of memberFrame, without the frame. Form values are passed
+ * as the text the user typed; the birthdate as yyyy-mm-dd.
+ */
+public class MemberModel extends RecordModel<Member> {
+
+    public MemberModel() {
+        this(new MemberRepository());
+    }
+
+    private MemberModel(MemberRepository members) {
+        super(ChangeEvent.Entity.MEMBER, members);
+        this.members = members;
+    }
+
+    public static Member parse(String id, String first, String last, String street, String number, String postal, String birthdate) {
+        return new Member(Integer.parseInt(id.trim()), first, last, street, number, postal, LocalDate.parse(birthdate.trim()));
+    }
+
+    public void insert(Connection con, String id, String first, String last, String street, String number, String postal, String birthdate) throws SQLException {
+        Member member = parse(id, first, last, street, number, postal, birthdate);
+        members.insert(con, member);
+        inserted(con, member.getMemberId());
+    }
+
+    /**
+     * Overwrites the member on show, whose id may change; returns it as stored.
+     */
+    public Member update(Connection con, String id, String first, String last, String street, String number, String postal, String birthdate) throws SQLException {
+        Member member = parse(id, first, last, street, number, postal, birthdate);
+        Integer oldId = (Integer) currentKey();
+        members.update(con, oldId == null ? 0 : oldId, member);
+        return updated(con, member.getMemberId());
+    }
+
+    /**
+     * Deletes the member and returns the record to show in its place.
+     */
+    public Member delete(Connection con, String id) throws SQLException {
+        int memberId = Integer.parseInt(id.trim());
+        members.delete(con, memberId);
+        return deleted(con, memberId);
+    }
+
+    @Override
+    public String errorMessage(Action action, Exception ex) {
+        String text = ex.toString();
+        if (action == Action.DELETE) {
+            if (text.contains("delete")) {
+                return "Το μέλος έχει δανεισμένα βιβλία.\n Δεν μπορεί να διαγραφεί!";
+            }
+            return isEmptyField(ex) ? EMPTY_FIELDS : text;
+        }
+        // An empty id on insert is reported as unfilled, below
+        boolean unfilled = action == Action.INSERT && isEmptyField(ex);
+        if ((ex instanceof NumberFormatException && !unfilled) || ex instanceof DateTimeParseException
+                || isWrongType(ex) || text.contains("'Mbirthdate'")) {
+            return WRONG_TYPE;
+        }
+        if (text.contains("Duplicate")) {
+            return "Σφάλμα! Υπάρχει ήδη μέλος με αυτό το member ID";
+        }
+        return unfilled ? EMPTY_FIELDS : text;
+    }
+
+
+    private final MemberRepository members;
+}
@@ -0,0 +1,64 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads and writes the Member table as Member records.
+ */
+public class MemberRepository extends KeysetRepository<Member> {
+
+    public MemberRepository() {
+        super("Member", "memberID", "memberID, MFirst, MLast, Street, Snumber, PostalCode, Mbirthdate");
+    }
+
+    @Override
+    protected Member map(ResultSet rs) throws SQLException {
+        return new Member(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                rs.getString(5), rs.getString(6), getDate(rs, 7));
+    }
+
+    @Override
+    public Object keyOf(Member member) {
+        return member.getMemberId();
+    }
+
+    public void insert(Connection con, Member member) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.MEMBER_INSERT);
+        bind(stmt, member);
+        stmt.executeUpdate();
+    }
+
+    /**
+     * Overwrites the member stored under memberId, which may itself change.
+     */
+    public void update(Connection con, int memberId, Member member) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.MEMBER_UPDATE);
+        bind(stmt, member);
+        stmt.setInt(8, memberId);
+        stmt.executeUpdate();
+    }
+
+    public void delete(Connection con, int memberId) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.MEMBER_DELETE);
+        stmt.setInt(1, memberId);
+        stmt.executeUpdate();
+    }
+
+    private static void bind(PreparedStatement stmt, Member member) throws SQLException {
+        stmt.setInt(1, member.getMemberId());
+        stmt.setString(2, member.getFirst());
+        stmt.setString(3, member.getLast());
+        stmt.setString(4, member.getStreet());
+        stmt.setString(5, member.getStreetNumber());
+        stmt.setString(6, member.getPostalCode());
+        setDate(stmt, 7, member.getBirthdate());
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs EXPLAIN FORMAT=JSON on every statement in Sql, and on the reads of
+ * the BorrowedCount and BookPosition views, and fails when a plan scans a
+ * table or index of library.plan.minRows rows or more (1000 by default) in
+ * full, or filesorts rows from one. Run it after changing an index in
+ * Library.sql or a statement in Sql, against a database filled by
+ * DatasetGenerator; on the small sample data every plan looks cheap.
+ *
+ * Statements that read a whole table by design list the tables (by the
+ * name or alias the plan shows) they may scan in ALLOWED_SCANS. A new
+ * constant in Sql with ? placeholders needs sample values in SAMPLES, or
+ * the check fails for it; EXPLAIN does not run the statement, so the
+ * values do not have to exist.
+ *
+ * Exits with status 1 if any statement fails.
+ *
+ * Run with: java -cp dist/Library.jar:lib/MySQLDriver/mysql-connector-java-5.1.23-bin.jar my.libraryui.PlanRegressionCheck
+ */
+public class PlanRegressionCheck {
+
+    public static final long MIN_ROWS = Long.getLong("library.plan.minRows", 1000L);
+
+    private static final String ISBN = "978-000000001";
+    private static final String TITLE = "Title 1";
+    private static final String PUB_NAME = "Publisher 1";
+    private static final String WORD = "\"Φυσική\"";
+    private static final String AUTHOR = "\"Τόλκιν\"";
+    private static final Date DAY = Date.valueOf("2020-01-01");
+
+    private static final Map<String, Object[]> SAMPLES = new LinkedHashMap<>();
+    private static final Map<String, Set<String>> ALLOWED_SCANS = new LinkedHashMap<>();
+    // Reads of the views, checked along with the constants in Sql
+    private static final Map<String, String> VIEW_READS = new LinkedHashMap<>();
+
+    static {
+        sample("BOOK_INSERT", ISBN, TITLE, 2000, 200, PUB_NAME);
+        sample("BOOK_UPDATE", ISBN, TITLE, 2000, 200, PUB_NAME, ISBN);
+        sample("BOOK_DELETE", ISBN);
+        sample("MEMBER_INSERT", 1, "First", "Last", "Street", 1, "12345", DAY);
+        sample("MEMBER_UPDATE", 1, "First", "Last", "Street", 1, "12345", DAY, 1);
+        sample("MEMBER_DELETE", 1);
+        sample("PUBLISHER_INSERT", PUB_NAME, 1990, "Street", 1, "12345");
+        sample("PUBLISHER_UPDATE", PUB_NAME, 1990, "Street", 1, "12345", PUB_NAME);
+        sample("PUBLISHER_DELETE", PUB_NAME);
+        sample("BOOK_POSITION_UPDATE", "A1", TITLE);
+        sample("COPIES_OF_BOOK", ISBN);
+        sample("COPY_POSITIONS_OF_BOOK", ISBN);
+        sample("CHANGE_LOG_AFTER", 0L, 500);
+        sample("CHANGE_LOG_RANGE", 1L, 500L);
+        sample("CHANGE_LOG_RELOAD", "BOOK");
+        sample("COPY_INSERT", ISBN, 1, "A1");
+        sample("COPY_SHELF_UPDATE", "A1", ISBN, 1);
+        sample("LOANS_OF_MEMBER", 1);
+        sample("OPEN_LOANS_OF_MEMBER", 1);
+        sample("LOAN_INSERT", 1, ISBN, 1, DAY, null);
+        sample("LOAN_RETURN", DAY, 1, ISBN, 1, DAY);
+        sample("LOAN_STATS_ENSURE", 1);
+        sample("LOAN_STATS_FOR_UPDATE", 1);
+        sample("PUB_AFTER_YEAR", 2000);
+        sample("PUBLISHED_BY", PUB_NAME);
+        sample("PUBLISHER_EST_YEAR", PUB_NAME);
+        sample("BOOK_POSITION_BY_TITLE", TITLE);
+        sample("BOOK_POSITION_BY_ISBN", ISBN);
+        sample("CATALOG_SEARCH", WORD, WORD, WORD, WORD, WORD, WORD, AUTHOR, AUTHOR, AUTHOR, AUTHOR, AUTHOR, AUTHOR, 21, 0);
+        sample("BookPosition view", TITLE);
+
+        // Combo box contents and whole-table reports
+        allow("PUBLISHER_NAMES", "Publisher");
+        allow("TITLE_INDEX", "Book");
+        allow("PUBLISHER_EST_YEARS", "Publisher");
+        allow("CATEGORIES", "Category");
+        allow("AUTHORS", "Author");
+        allow("COPY_POSITIONS", "c");
+        allow("BOOKS_WRITTEN", "w", "filesort");
+        allow("TOTAL_SALARIES", "Employee");
+        allow("LOAN_STATS_REBUILD", "Borrows");
+        // The full-text matches are summed and sorted by relevance in derived tables
+        allow("CATALOG_SEARCH", "hits", "ranked", "filesort");
+
+        VIEW_READS.put("BorrowedCount view", "select * from BorrowedCount");
+        VIEW_READS.put("BookPosition view", "select * from BookPosition where title = ?");
+    }
+
+    private static final Pattern TABLE = Pattern.compile(
+            "\"table_name\"\\s*:\\s*\"([^\"]+)\"\\s*,\\s*\"access_type\"\\s*:\\s*\"(\\w+)\"[^{}]*?\"(?:rows_examined_per_scan|rows)\"\\s*:\\s*(\\d+)");
+    private static final Pattern FILESORT = Pattern.compile("\"using_filesort\"\\s*:\\s*true");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> statements = new LinkedHashMap<>();
+        for (Field field : Sql.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                statements.put(field.getName(), (String) field.get(null));
+            }
+        }
+        statements.putAll(VIEW_READS);
+
+        ConnectionPool pool = ConnectionPool.getInstance();
+        Connection con = pool.borrow();
+        int failures = 0;
+        try {
+            long books = count(con, "Book");
+            if (books < MIN_ROWS) {
+                System.out.println("Book has only " + books + " rows; run DatasetGenerator first for representative plans");
+            }
+            for (Map.Entry<String, String> statement : statements.entrySet()) {
+                List<String> problems = check(con, statement.getKey(), statement.getValue());
+                if (problems.isEmpty()) {
+                    System.out.println("ok    " + statement.getKey());
+                } else {
+                    failures++;
+                    System.out.println("FAIL  " + statement.getKey() + ": " + String.join("; ", problems));
+                }
+            }
+        } finally {
+            pool.release(con);
+            pool.shutdown();
+        }
+
+        System.out.println((statements.size() - failures) + " of " + statements.size() + " statements have acceptable plans");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    // Returns what is wrong with the plan of sql, empty if nothing
+    private static List<String> check(Connection con, String name, String sql) throws SQLException {
+        Object[] sample = SAMPLES.getOrDefault(name, new Object[0]);
+        int placeholders = sql.length() - sql.replace("?", "").length();
+        if (placeholders != sample.length) {
+            return Collections.singletonList(placeholders + " parameters but " + sample.length + " sample values in SAMPLES");
+        }
+
+        String plan;
+        try (PreparedStatement ps = con.prepareStatement("explain format=json " + sql)) {
+            for (int i = 0; i < sample.length; i++) {
+                ps.setObject(i + 1, sample[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                plan = rs.next() ? rs.getString(1) : "";
+            }
+        } catch (SQLException ex) {
+            return Collections.singletonList("EXPLAIN failed: " + ex.getMessage());
+        }
+
+        List<String> problems = new ArrayList<>();
+        Set<String> allowed = ALLOWED_SCANS.getOrDefault(name, Collections.<String>emptySet());
+        long largest = 0;
+        Matcher m = TABLE.matcher(plan);
+        while (m.find()) {
+            String table = m.group(1);
+            String access = m.group(2);
+            long rows = Long.parseLong(m.group(3));
+            largest = Math.max(largest, rows);
+            if (rows >= MIN_ROWS && ("ALL".equals(access) || "index".equals(access)) && !allowed.contains(table)) {
+                problems.add(("ALL".equals(access) ? "full scan of " : "full index scan of ") + table + " (" + rows + " rows)");
+            }
+        }
+        if (largest >= MIN_ROWS && FILESORT.matcher(plan).find() && !allowed.contains("filesort")) {
+            problems.add("filesort over up to " + largest + " rows");
+        }
+        return problems;
+    }
+
+    private static long count(Connection con, String table) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("select count(*) from " + table);
+                ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void sample(String name, Object... values) {
+        SAMPLES.put(name, values);
+    }
+
+    // Tables, by name or alias, and "filesort" for a sorted whole-table read
+    private static void allow(String name, String... tables) {
+        ALLOWED_SCANS.put(name, new HashSet<>(Arrays.asList(tables)));
+    }
+}
@@ -5,10 +5,8 @@
  */
 package my.libraryui;
 
-import java.sql.ResultSet;
-import java.sql.Statement;
+import java.util.function.Consumer;
 import static javax.swing.WindowConstants.DISPOSE_ON_CLOSE;
-import net.proteanit.sql.DbUtils;
 
 
 public class PubAfterYearQuery extends javax.swing.JFrame {
@@ -21,17 +19,16 @@ public class PubAfterYearQuery extends javax.swing.JFrame {
         initComponents();
         this.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
         this.setLocationRelativeTo(null); // Align window on screen center
-        
-        
-        try {
-            Statement pubStmt = db_con.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-        } catch (Exception ex) {
-            try {
-                if (db_con.connection != null) {
-                    db_con.closeCon();
-                }
-            } catch (Exception x) {
-            }
+        db_exec = new DbExecutor(this, db_con);
+        ChangeBus.getInstance().subscribe(ChangeEvent.Entity.BOOK, changes);
+        ChangeBus.getInstance().subscribe(ChangeEvent.Entity.PUBLISHER, changes);
+    }
+
+    // Books and publishers written elsewhere may change the list once it is shown
+    private void changed(ChangeEvent event) {
+        if (resultsTable.getModel() instanceof LazyTableModel) {
+            int shown = year;
+            db_exec.submit(() -> LazyTableModel.open(db_con, db_exec, Sql.PUB_AFTER_YEAR, shown), model -> resultsTable.setModel(model), null);
         }
     }
 
@@ -146,7 +143,7 @@ public class PubAfterYearQuery extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     private void closeButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_closeButtonActionPerformed
-        setVisible(false);
+        dispose();
     }//GEN-LAST:event_closeButtonActionPerformed
 
     private void yearFieldActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_yearFieldActionPerformed
@@ -156,33 +153,17 @@ public class PubAfterYearQuery extends javax.swing.JFrame {
     private void okButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_okButtonActionPerformed
         year = Integer.parseInt(yearField.getText());
         
-        if (result_set == null) {
-            fetchResultSet();
-        }
-        if (result_set != null) {
-            resultsTable.setModel(DbUtils.resultSetToTableModel(result_set));
-            result_set = null;
-        }
+        db_exec.submit(() -> LazyTableModel.open(db_con, db_exec, Sql.PUB_AFTER_YEAR, year), model -> resultsTable.setModel(model), null);
     }//GEN-LAST:event_okButtonActionPerformed
 
     
-    public void fetchResultSet() {
-        try {
-            Statement stmt = db_con.connection.createStatement();
-            String query = "select title from Book where pubName in (select pubName from Publisher where estYear >" + year + ");";
-            result_set = stmt.executeQuery(query);
-            
-        } catch (Exception ex) {
-
-            try {
-                if (db_con.connection != null) {
-                    db_con.closeCon();
-                }
-            } catch (Exception x) {
-            }
-        }
+    @Override
+    public void dispose() {
+        ChangeBus.getInstance().unsubscribe(changes);
+        db_exec.close(db_con::closeCon);  // Hand the connection back to the pool once queued work is done
+        super.dispose();
     }
-    
+
     /**
      * @param args the command line arguments
      */
@@ -220,8 +201,9 @@ public class PubAfterYearQuery extends javax.swing.JFrame {
     
     
     final private ConnectionDB db_con;
-    private ResultSet result_set = null;
+    final private DbExecutor db_exec;
     private int year;
+    private final Consumer<ChangeEvent> changes = this::changed;
     
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton closeButton;
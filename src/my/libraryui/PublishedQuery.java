@@ -5,10 +5,7 @@
  */
 package my.libraryui;
 
-import java.sql.ResultSet;
-import java.sql.Statement;
-import javax.swing.JOptionPane;
-import net.proteanit.sql.DbUtils;
+import java.util.function.Consumer;
 
 
 public class PublishedQuery extends javax.swing.JFrame {
@@ -22,28 +19,16 @@ public class PublishedQuery extends javax.swing.JFrame {
         initComponents();
         this.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
         this.setLocationRelativeTo(null); // Align window on screen center
-        
-        try {
-            try {
-                Statement pubStmt = db_con.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-                String query = "select pubName from Publisher";
-                ResultSet pubSet = pubStmt.executeQuery(query);
-                
-                while (pubSet.next()){
-                    publisherBox.addItem(pubSet.getString("pubName"));
-                }
-                
-            } catch (Exception ex) {
-
-                try {
-                    if (db_con.connection != null) {
-                        db_con.closeCon();
-                    }
-                } catch (Exception x) {
-                }
-            }
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(null, ex);
+        db_exec = new DbExecutor(this, db_con);
+        publisherBox.setModel(ReferenceData.getInstance().publisherModel());
+        ChangeBus.getInstance().subscribe(ChangeEvent.Entity.BOOK, changes);
+    }
+
+    // A book written elsewhere may enter or leave the list; publisher renames reach it through publisherBox
+    private void changed(ChangeEvent event) {
+        if (publisher != null) {
+            String shown = publisher;
+            db_exec.submit(() -> LazyTableModel.open(db_con, db_exec, Sql.PUBLISHED_BY, shown), model -> resultsTable.setModel(model), null);
         }
     }
 
@@ -149,39 +134,22 @@ public class PublishedQuery extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     private void closeButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_closeButtonActionPerformed
-        setVisible(false);
+        dispose();
     }//GEN-LAST:event_closeButtonActionPerformed
 
     private void publisherBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_publisherBoxActionPerformed
         publisher = publisherBox.getSelectedItem().toString();
         
-        if (result_set == null) {
-            fetchResultSet();
-        }
-        if (result_set != null) {
-            resultsTable.setModel(DbUtils.resultSetToTableModel(result_set));
-            result_set = null;
-        }
+        db_exec.submit(() -> LazyTableModel.open(db_con, db_exec, Sql.PUBLISHED_BY, publisher), model -> resultsTable.setModel(model), null);
     }//GEN-LAST:event_publisherBoxActionPerformed
 
-    public void fetchResultSet() {
-        try {
-            
-            Statement stmt = db_con.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-            String query = "select title from Book as b inner join Publisher as p on b.pubName=p.pubName where b.pubName=\""+publisher+"\";";
-            result_set = stmt.executeQuery(query);
-            
-        } catch (Exception ex) {
-
-            try {
-                if (db_con.connection != null) {
-                    db_con.closeCon();
-                }
-            } catch (Exception x) {
-            }
-        }
+    @Override
+    public void dispose() {
+        ChangeBus.getInstance().unsubscribe(changes);
+        db_exec.close(db_con::closeCon);  // Hand the connection back to the pool once queued work is done
+        super.dispose();
     }
-    
+
     /**
      * @param args the command line arguments
      */
@@ -218,8 +186,9 @@ public class PublishedQuery extends javax.swing.JFrame {
     }
 
     final private ConnectionDB db_con;
-    private ResultSet result_set = null;
+    final private DbExecutor db_exec;
     private String publisher;
+    private final Consumer<ChangeEvent> changes = this::changed;
     
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton closeButton;
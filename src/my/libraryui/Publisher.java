@@ -0,0 +1,47 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+/**
+ * A row of the Publisher table. estYear is null when NULL.
+ */
+public final class Publisher {
+
+    public Publisher(String name, Integer estYear, String street, String streetNumber, String postalCode) {
+        this.name = name;
+        this.estYear = estYear;
+        this.street = street;
+        this.streetNumber = streetNumber;
+        this.postalCode = postalCode;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Integer getEstYear() {
+        return estYear;
+    }
+
+    public String getStreet() {
+        return street;
+    }
+
+    public String getStreetNumber() {
+        return streetNumber;
+    }
+
+    public String getPostalCode() {
+        return postalCode;
+    }
+
+
+    private final String name;
+    private final Integer estYear;
+    private final String street;
+    private final String streetNumber;
+    private final String postalCode;
+}
@@ -0,0 +1,72 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The operations of publisherFrame, without the frame. Form values are
+ * passed as the text the user typed.
+ */
+public class PublisherModel extends RecordModel<Publisher> {
+
+    public PublisherModel() {
+        this(new PublisherRepository());
+    }
+
+    private PublisherModel(PublisherRepository publishers) {
+        super(ChangeEvent.Entity.PUBLISHER, publishers);
+        this.publishers = publishers;
+    }
+
+    public static Publisher parse(String name, String year, String street, String number, String postal) {
+        return new Publisher(name, Integer.parseInt(year.trim()), street, number, postal);
+    }
+
+    public void insert(Connection con, String name, String year, String street, String number, String postal) throws SQLException {
+        Publisher publisher = parse(name, year, street, number, postal);
+        publishers.insert(con, publisher);
+        inserted(con, publisher.getName());
+    }
+
+    /**
+     * Overwrites the publisher on show, whose name may change; returns it as stored.
+     */
+    public Publisher update(Connection con, String name, String year, String street, String number, String postal) throws SQLException {
+        Publisher publisher = parse(name, year, street, number, postal);
+        publishers.update(con, (String) currentKey(), publisher);
+        return updated(con, publisher.getName());
+    }
+
+    /**
+     * Deletes the publisher and returns the record to show in its place.
+     */
+    public Publisher delete(Connection con, String name) throws SQLException {
+        publishers.delete(con, name);
+        return deleted(con, name);
+    }
+
+    @Override
+    public String errorMessage(Action action, Exception ex) {
+        String text = ex.toString();
+        if (action == Action.DELETE) {
+            return text.contains("delete") ? "Ο εκδοτικός οίκος δεν μπορεί να διαγραφεί!" : text;
+        }
+        // An empty year on insert is reported as unfilled, below
+        boolean unfilled = action == Action.INSERT && isEmptyField(ex);
+        if ((ex instanceof NumberFormatException && !unfilled) || isWrongType(ex)) {
+            return WRONG_TYPE;
+        }
+        if (text.contains("Duplicate")) {
+            return "Σφάλμα! Ο εκδοτικός οίκος αυτός ήδη υπάρχει";
+        }
+        return unfilled ? EMPTY_FIELDS : text;
+    }
+
+
+    private final PublisherRepository publishers;
+}
@@ -0,0 +1,61 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads and writes the Publisher table as Publisher records.
+ */
+public class PublisherRepository extends KeysetRepository<Publisher> {
+
+    public PublisherRepository() {
+        super("Publisher", "pubName", "pubName, estYear, street, snumber, postalCode");
+    }
+
+    @Override
+    protected Publisher map(ResultSet rs) throws SQLException {
+        return new Publisher(rs.getString(1), getInteger(rs, 2), rs.getString(3), rs.getString(4), rs.getString(5));
+    }
+
+    @Override
+    public Object keyOf(Publisher publisher) {
+        return publisher.getName();
+    }
+
+    public void insert(Connection con, Publisher publisher) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.PUBLISHER_INSERT);
+        bind(stmt, publisher);
+        stmt.executeUpdate();
+    }
+
+    /**
+     * Overwrites the publisher stored under name, which may itself change.
+     */
+    public void update(Connection con, String name, Publisher publisher) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.PUBLISHER_UPDATE);
+        bind(stmt, publisher);
+        stmt.setString(6, name);
+        stmt.executeUpdate();
+    }
+
+    public void delete(Connection con, String name) throws SQLException {
+        PreparedStatement stmt = StatementCache.prepare(con, Sql.PUBLISHER_DELETE);
+        stmt.setString(1, name);
+        stmt.executeUpdate();
+    }
+
+    private static void bind(PreparedStatement stmt, Publisher publisher) throws SQLException {
+        stmt.setString(1, publisher.getName());
+        setInt(stmt, 2, publisher.getEstYear());
+        stmt.setString(3, publisher.getStreet());
+        stmt.setString(4, publisher.getStreetNumber());
+        stmt.setString(5, publisher.getPostalCode());
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Headless state and operations behind one of the record frames: browsing
+ * with a KeysetNavigator, the record on show, turning the form's text into
+ * a record, the writes, and the message to show when one fails. Nothing
+ * here touches Swing, so every user action can be run, timed and load
+ * tested without a display; the frame reads its fields, calls the model
+ * from its DbExecutor and shows what comes back.
+ *
+ * Every write is published on the ChangeBus once it has been committed, and
+ * apply folds in the writes other models published for the same table.
+ *
+ * Like KeysetNavigator it is not thread safe; a frame drives it from its
+ * DbExecutor, which runs one task at a time.
+ */
+public abstract class RecordModel<T> {
+
+    public enum Action {
+        INSERT, UPDATE, DELETE
+    }
+
+    public static final String WRONG_TYPE = "Σφάλμα! Λάθος τύπος στοιχείων";
+    public static final String EMPTY_FIELDS = "Σφάλμα! Τα πεδία πρέπει να είναι συμπληρωμένα.";
+
+    protected RecordModel(ChangeEvent.Entity entity, KeysetRepository<T> repository) {
+        this.entity = entity;
+        this.repository = repository;
+        this.navigator = new KeysetNavigator<>(repository);
+    }
+
+    /**
+     * Moves to the first record, or returns null if the table is empty.
+     */
+    public T first(Connection con) throws SQLException {
+        return show(navigator.first(con));
+    }
+
+    /**
+     * Moves to the following record; null, staying put, at the end.
+     */
+    public T next(Connection con) throws SQLException {
+        return show(navigator.next(con));
+    }
+
+    /**
+     * Moves to the preceding record; null, staying put, at the start.
+     */
+    public T previous(Connection con) throws SQLException {
+        return show(navigator.previous(con));
+    }
+
+    /**
+     * The record last shown, whose key update replaces; null before any.
+     */
+    public T getCurrent() {
+        return current;
+    }
+
+    /**
+     * Folds in a write another model made to this table: the row is slotted
+     * into, replaced in or dropped from the browse window. Returns the
+     * record to show now if the row written was the one on show, otherwise
+     * null, so a form the user is typing into is left alone.
+     */
+    public T apply(Connection con, ChangeEvent event) throws SQLException {
+        T before = current;
+        switch (event.getOperation()) {
+            case INSERT:
+                navigator.inserted(con, event.getKey());
+                break;
+            case UPDATE:
+                if (navigator.isCurrent(event.getOldKey())) {
+                    navigator.updated(con, event.getKey());
+                } else {
+                    navigator.deleted(con, event.getOldKey());
+                    navigator.inserted(con, event.getKey());
+                }
+                break;
+            case DELETE:
+                navigator.deleted(con, event.getKey());
+                break;
+            case RELOAD:
+                navigator.refresh(con);
+                break;
+        }
+        current = navigator.current();
+        return current == before ? null : current;
+    }
+
+    /**
+     * Re-reads the record on show, for a write to another table that may
+     * have cascaded into this one.
+     */
+    public T refresh(Connection con) throws SQLException {
+        current = navigator.refresh(con);
+        return current;
+    }
+
+    /**
+     * Returns the message the frame shows when action failed with ex.
+     */
+    public abstract String errorMessage(Action action, Exception ex);
+
+    protected Object currentKey() {
+        return current == null ? null : repository.keyOf(current);
+    }
+
+    // Called after a row with key was inserted; the form is cleared for the next one
+    protected void inserted(Connection con, Object key) throws SQLException {
+        navigator.inserted(con, key);
+        publish(ChangeEvent.Operation.INSERT, key, key);
+    }
+
+    protected T updated(Connection con, Object key) throws SQLException {
+        Object oldKey = currentKey();
+        T record = show(navigator.updated(con, key));
+        publish(ChangeEvent.Operation.UPDATE, key, oldKey);
+        return record;
+    }
+
+    protected T deleted(Connection con, Object key) throws SQLException {
+        T record = show(navigator.deleted(con, key));
+        publish(ChangeEvent.Operation.DELETE, key, key);
+        return record;
+    }
+
+    private void publish(ChangeEvent.Operation operation, Object key, Object oldKey) {
+        ChangeBus.getInstance().publish(new ChangeEvent(this, entity, operation, key, oldKey));
+    }
+
+    // A NumberFormatException for an empty field reads 'For input string: ""'
+    protected static boolean isEmptyField(Exception ex) {
+        return ex.toString().contains("\"\"");
+    }
+
+    protected static boolean isWrongType(Exception ex) {
+        return ex.toString().contains("field");
+    }
+
+    private T show(T record) {
+        if (record != null) {
+            current = record;
+        }
+        return record;
+    }
+
+
+    private final ChangeEvent.Entity entity;
+    private final KeysetRepository<T> repository;
+    private final KeysetNavigator<T> navigator;
+    private T current;
+}
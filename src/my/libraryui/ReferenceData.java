@@ -0,0 +1,410 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import javax.swing.AbstractListModel;
+import javax.swing.ComboBoxModel;
+import javax.swing.SwingUtilities;
+
+/**
+ * Process-wide copy of the reference tables: publishers with their
+ * establishment year, the category tree and the authors. It is read once,
+ * in the background, the first time getInstance is called (LibraryUI does
+ * so at start-up), and shared by every frame, so opening a frame runs no
+ * reference queries; the frames' combo boxes get their items from
+ * publisherModel and friends.
+ *
+ * The TitleIndex behind the title pickers is read only when a frame first
+ * asks for it, since it holds every book. Book writes are collected and
+ * patched in as one batch by the loader thread; a batch of more than
+ * library.titles.rebuildThreshold (default 1000) books, or a RELOAD,
+ * reads the index again instead.
+ *
+ * Publisher writes published on the ChangeBus are patched in by re-reading
+ * just the publisher written; a combo box showing a renamed publisher then
+ * shows its new name. invalidate reads every table again. Combo box models
+ * are told on the EDT when the data has changed. Writes made elsewhere
+ * (other workstations, CatalogImport) arrive on the ChangeBus through
+ * ChangeLogPoller and are patched in the same way; a bulk load's RELOAD
+ * reads the table again. Categories and authors are not in the change log;
+ * they are read again only by invalidate and a publisher RELOAD.
+ */
+public final class ReferenceData {
+
+    private static final Logger LOG = Logger.getLogger(ReferenceData.class.getName());
+    private static final int TITLES_REBUILD_THRESHOLD = Integer.getInteger("library.titles.rebuildThreshold", 1000);
+    private static final ReferenceData INSTANCE = new ReferenceData();
+
+    public static ReferenceData getInstance() {
+        return INSTANCE;
+    }
+
+    private ReferenceData() {
+        loader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ReferenceData-loader");
+            t.setDaemon(true);
+            return t;
+        });
+        collator.setStrength(Collator.PRIMARY);
+        ChangeBus.getInstance().subscribe(ChangeEvent.Entity.PUBLISHER,
+                event -> background(con -> publisherChanged(con, event)));
+        ChangeBus.getInstance().subscribe(ChangeEvent.Entity.BOOK,
+                this::bookChanged);
+        invalidate();
+    }
+
+    /**
+     * Publisher names in pubName order; empty until the first load completes.
+     */
+    public List<String> publisherNames() {
+        return snapshot.publishers;
+    }
+
+    /**
+     * The publisher's establishment year, or null if unknown.
+     */
+    public Integer estYear(String publisher) {
+        return snapshot.estYears.get(publisher);
+    }
+
+    /**
+     * Each category with its supercategory (null for a top-level one).
+     */
+    public Map<String, String> categories() {
+        return snapshot.categories;
+    }
+
+    /**
+     * The direct subcategories of category, or the top-level ones for null.
+     */
+    public List<String> subcategories(String category) {
+        List<String> children = new ArrayList<>();
+        for (Map.Entry<String, String> entry : snapshot.categories.entrySet()) {
+            if (category == null ? entry.getValue() == null : category.equals(entry.getValue())) {
+                children.add(entry.getKey());
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Authors' names ("first last") by authID.
+     */
+    public Map<Integer, String> authors() {
+        return snapshot.authors;
+    }
+
+    /**
+     * The title index, or null until loadTitles has run.
+     */
+    public TitleIndex titles() {
+        return titleIndex;
+    }
+
+    /**
+     * Returns the title index, reading it on con the first time.
+     */
+    public synchronized TitleIndex loadTitles(Connection con) throws SQLException {
+        if (titleIndex == null) {
+            titleIndex = TitleIndex.load(con);
+        }
+        return titleIndex;
+    }
+
+    /**
+     * A new combo box model over the publisher names. The item list is
+     * shared; each model keeps its own selection.
+     */
+    public ComboBoxModel<String> publisherModel() {
+        return model(s -> s.publishers);
+    }
+
+    public ComboBoxModel<String> categoryModel() {
+        return model(s -> new ArrayList<>(s.categories.keySet()));
+    }
+
+    public ComboBoxModel<String> authorModel() {
+        return model(s -> new ArrayList<>(s.authors.values()));
+    }
+
+    /**
+     * Reads the reference tables again in the background.
+     */
+    public void invalidate() {
+        background(this::load);
+    }
+
+    /**
+     * Reads the reference tables now, on con.
+     */
+    public void load(Connection con) throws SQLException {
+        List<String> publishers = new ArrayList<>();
+        Map<String, Integer> estYears = new LinkedHashMap<>();
+        try (ResultSet rs = StatementCache.prepare(con, Sql.PUBLISHER_EST_YEARS).executeQuery()) {
+            while (rs.next()) {
+                int year = rs.getInt(2);
+                publishers.add(rs.getString(1));
+                estYears.put(rs.getString(1), rs.wasNull() ? null : year);
+            }
+        }
+        // Already in pubName order; sorted again so publisherChanged's collator agrees with it exactly
+        publishers.sort(collator);
+        Map<String, String> categories = new LinkedHashMap<>();
+        try (ResultSet rs = StatementCache.prepare(con, Sql.CATEGORIES).executeQuery()) {
+            while (rs.next()) {
+                categories.put(rs.getString(1), rs.getString(2));
+            }
+        }
+        Map<Integer, String> authors = new LinkedHashMap<>();
+        try (ResultSet rs = StatementCache.prepare(con, Sql.AUTHORS).executeQuery()) {
+            while (rs.next()) {
+                authors.put(rs.getInt(1), rs.getString(2) + " " + rs.getString(3));
+            }
+        }
+        snapshot = new Snapshot(publishers, estYears, categories, authors);
+        SwingUtilities.invokeLater(() -> changed(null, null));
+    }
+
+    // On the loader thread, the only one that replaces the snapshot
+    private void publisherChanged(Connection con, ChangeEvent event) throws SQLException {
+        if (event.getOperation() == ChangeEvent.Operation.RELOAD) {
+            load(con);
+            return;
+        }
+        String name = null;
+        Integer estYear = null;
+        if (event.getOperation() != ChangeEvent.Operation.DELETE) {
+            PreparedStatement stmt = StatementCache.prepare(con, Sql.PUBLISHER_EST_YEAR);
+            stmt.setString(1, event.getKey().toString());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    name = rs.getString(1);
+                    int year = rs.getInt(2);
+                    estYear = rs.wasNull() ? null : year;
+                }
+            }
+        }
+
+        Snapshot old = snapshot;
+        List<String> publishers = new ArrayList<>(old.publishers);
+        Map<String, Integer> estYears = new LinkedHashMap<>(old.estYears);
+        publishers.remove(event.getOldKey());
+        estYears.remove(event.getOldKey());
+        if (name != null) {
+            publishers.remove(name);
+            int index = 0;
+            while (index < publishers.size() && collator.compare(publishers.get(index), name) < 0) {
+                index++;
+            }
+            publishers.add(index, name);
+            estYears.put(name, estYear);
+        }
+        snapshot = new Snapshot(publishers, estYears, old.categories, old.authors);
+
+        Object renamedFrom = event.isRename() ? event.getOldKey() : null;
+        Object renamedTo = name;
+        SwingUtilities.invokeLater(() -> changed(renamedFrom, renamedTo));
+    }
+
+    // On the EDT: queues the books written for the next patchTitles
+    private void bookChanged(ChangeEvent event) {
+        synchronized (writtenBooks) {
+            if (event.getOperation() == ChangeEvent.Operation.RELOAD) {
+                titlesReloadQueued = true;
+            } else {
+                writtenBooks.add(event.getOldKey().toString());
+                writtenBooks.add(event.getKey().toString());
+            }
+            if (titlesPatchQueued) {
+                return;
+            }
+            titlesPatchQueued = true;
+        }
+        background(this::patchTitles);
+    }
+
+    // On the loader thread: re-reads every book written since the last patch and patches them in at once
+    private synchronized void patchTitles(Connection con) throws SQLException {
+        List<String> isbns;
+        boolean reload;
+        synchronized (writtenBooks) {
+            isbns = new ArrayList<>(writtenBooks);
+            reload = titlesReloadQueued;
+            writtenBooks.clear();
+            titlesPatchQueued = false;
+            titlesReloadQueued = false;
+        }
+        if (titleIndex == null) {
+            return;
+        }
+        if (reload || isbns.size() > TITLES_REBUILD_THRESHOLD) {
+            titleIndex = TitleIndex.load(con);
+            return;
+        }
+        List<String> removed = new ArrayList<>();
+        List<TitleIndex.Match> written = new ArrayList<>();
+        for (String isbn : isbns) {
+            Book book = books.find(con, isbn);
+            if (book == null) {
+                removed.add(isbn);
+            } else {
+                written.add(new TitleIndex.Match(book.getTitle(), book.getIsbn()));
+            }
+        }
+        titleIndex = titleIndex.patch(removed, written);
+    }
+
+    // Runs work on a pool connection on the loader thread
+    private void background(Load work) {
+        loader.execute(() -> {
+            ConnectionPool pool = ConnectionPool.getInstance();
+            try {
+                Connection con = pool.borrow();
+                try {
+                    work.run(con);
+                } finally {
+                    pool.release(con);
+                }
+            } catch (SQLException ex) {
+                LOG.warning("Could not load the reference data: " + ex);
+            }
+        });
+    }
+
+    private ComboBoxModel<String> model(Function<Snapshot, List<String>> items) {
+        SharedComboBoxModel model = new SharedComboBoxModel(items);
+        synchronized (models) {
+            models.add(new WeakReference<>(model));
+        }
+        return model;
+    }
+
+    // On the EDT: tells the live combo box models that their items changed,
+    // moving any selection of a renamed item to its new name
+    private void changed(Object renamedFrom, Object renamedTo) {
+        List<SharedComboBoxModel> live = new ArrayList<>();
+        synchronized (models) {
+            for (Iterator<WeakReference<SharedComboBoxModel>> it = models.iterator(); it.hasNext();) {
+                SharedComboBoxModel model = it.next().get();
+                if (model == null) {
+                    it.remove();
+                } else {
+                    live.add(model);
+                }
+            }
+        }
+        for (SharedComboBoxModel model : live) {
+            model.reload(renamedFrom, renamedTo);
+        }
+    }
+
+    /**
+     * One load of the reference tables; never changed once published.
+     */
+    private static final class Snapshot {
+        Snapshot(List<String> publishers, Map<String, Integer> estYears, Map<String, String> categories, Map<Integer, String> authors) {
+            this.publishers = Collections.unmodifiableList(publishers);
+            this.estYears = Collections.unmodifiableMap(estYears);
+            this.categories = Collections.unmodifiableMap(categories);
+            this.authors = Collections.unmodifiableMap(authors);
+        }
+
+        final List<String> publishers;
+        final Map<String, Integer> estYears;
+        final Map<String, String> categories;
+        final Map<Integer, String> authors;
+    }
+
+    private interface Load {
+        void run(Connection con) throws SQLException;
+    }
+
+    /**
+     * Combo box model over one list of the current snapshot. Like
+     * DefaultComboBoxModel it selects the first item once there is one.
+     */
+    private final class SharedComboBoxModel extends AbstractListModel<String> implements ComboBoxModel<String> {
+        SharedComboBoxModel(Function<Snapshot, List<String>> source) {
+            this.source = source;
+            this.items = source.apply(snapshot);
+            if (!items.isEmpty()) {
+                selected = items.get(0);
+            }
+        }
+
+        @Override
+        public int getSize() {
+            return items.size();
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            return items.get(index);
+        }
+
+        @Override
+        public void setSelectedItem(Object item) {
+            if (item == null ? selected != null : !item.equals(selected)) {
+                selected = item;
+                fireContentsChanged(this, -1, -1);
+            }
+        }
+
+        @Override
+        public Object getSelectedItem() {
+            return selected;
+        }
+
+        void reload(Object renamedFrom, Object renamedTo) {
+            int oldSize = items.size();
+            items = source.apply(snapshot);
+            if (renamedFrom != null && renamedFrom.equals(selected)) {
+                selected = renamedTo;
+            }
+            if (selected == null && !items.isEmpty()) {
+                selected = items.get(0);
+            }
+            fireContentsChanged(this, 0, Math.max(oldSize, items.size()) - 1);
+        }
+
+        private final Function<Snapshot, List<String>> source;
+        private List<String> items;
+        private Object selected;
+    }
+
+
+    private final ExecutorService loader;
+    // Orders publisher names the way the pubName collation does, as KeysetNavigator does
+    private final Collator collator = Collator.getInstance(Locale.ROOT);
+    private final List<WeakReference<SharedComboBoxModel>> models = new ArrayList<>();
+    private final BookRepository books = new BookRepository();
+    private volatile TitleIndex titleIndex;
+    // ISBNs (old and new) of the books written since the last patchTitles
+    private final Set<String> writtenBooks = new LinkedHashSet<>();
+    private boolean titlesPatchQueued = false;
+    // Set by a RELOAD: the next patchTitles reads the whole index again
+    private boolean titlesReloadQueued = false;
+    private volatile Snapshot snapshot = new Snapshot(new ArrayList<>(), new LinkedHashMap<>(), new LinkedHashMap<>(), new LinkedHashMap<>());
+}
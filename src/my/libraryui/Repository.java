@@ -0,0 +1,75 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base of the typed repositories. Each repository selects a fixed column
+ * list and maps it by position, so column indexes are settled once where the
+ * list is declared instead of being looked up by name for every field of
+ * every row, and integers and dates are read with getInt and getDate rather
+ * than through Strings.
+ *
+ * Nullable INT columns map to Integer, null for NULL, so that a 0 the user
+ * typed still reaches the schema's triggers, which reject it.
+ */
+public abstract class Repository<T> {
+
+    /**
+     * Maps the row the ResultSet is positioned on.
+     */
+    protected abstract T map(ResultSet rs) throws SQLException;
+
+    protected List<T> list(PreparedStatement stmt) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                rows.add(map(rs));
+            }
+        }
+        return rows;
+    }
+
+    protected T one(PreparedStatement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? map(rs) : null;
+        }
+    }
+
+    protected static LocalDate getDate(ResultSet rs, int column) throws SQLException {
+        Date date = rs.getDate(column);
+        return date == null ? null : date.toLocalDate();
+    }
+
+    protected static void setDate(PreparedStatement stmt, int index, LocalDate date) throws SQLException {
+        if (date == null) {
+            stmt.setNull(index, Types.DATE);
+        } else {
+            stmt.setDate(index, Date.valueOf(date));
+        }
+    }
+
+    protected static Integer getInteger(ResultSet rs, int column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    protected static void setInt(PreparedStatement stmt, int index, Integer value) throws SQLException {
+        if (value == null) {
+            stmt.setNull(index, Types.INTEGER);
+        } else {
+            stmt.setInt(index, value);
+        }
+    }
+}
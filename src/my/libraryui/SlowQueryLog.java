@@ -0,0 +1,228 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes every statement slower than library.jdbc.slowQueryMillis (500 by
+ * default, negative to turn the log off) to a rolling file, with its bound
+ * parameters and the plan MySQL reports for it with EXPLAIN FORMAT=JSON.
+ *
+ * JdbcStats calls report after the slow execution has returned; the EXPLAIN
+ * runs later on a single background thread with a connection of its own
+ * from ConnectionPool, so the frame that ran the query does not wait for
+ * it. A shape is explained at most once per library.jdbc.slowQueryExplainInterval
+ * seconds (60 by default); slow executions in between are logged without a
+ * plan. When the background thread falls behind, reports are dropped
+ * rather than queued without bound.
+ *
+ * The plan is followed by a short list of the things in it most often to
+ * blame: full table scans, joins through the join buffer (a cross join
+ * such as OlderEmployeesQuery's from Employee, Permanent_Employee), dependent
+ * subqueries, filesorts and temporary tables.
+ *
+ * The file is library.jdbc.slowQueryLog (slow-queries.%g.log in the working
+ * directory, %g being the generation), rolled over every
+ * library.jdbc.slowQueryLogBytes bytes (5 MB) and keeping 5 generations.
+ */
+final class SlowQueryLog {
+
+    public static final long THRESHOLD_MILLIS = Long.getLong("library.jdbc.slowQueryMillis", 500L);
+    public static final boolean ENABLED = THRESHOLD_MILLIS >= 0;
+    public static final long EXPLAIN_INTERVAL = Long.getLong("library.jdbc.slowQueryExplainInterval", 60L);
+    public static final String FILE = System.getProperty("library.jdbc.slowQueryLog", "slow-queries.%g.log");
+    public static final int FILE_BYTES = Integer.getInteger("library.jdbc.slowQueryLogBytes", 5 * 1024 * 1024);
+    public static final int FILE_COUNT = 5;
+    public static final int MAX_PENDING = 100;
+
+    private static final long THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(THRESHOLD_MILLIS);
+    private static final Pattern EXPLAINABLE = Pattern.compile("(?is)\\s*\\(?\\s*(select|insert|update|delete|replace)\\b.*");
+    private static final Pattern FULL_SCAN = Pattern.compile("\"table_name\"\\s*:\\s*\"([^\"]+)\"\\s*,\\s*\"access_type\"\\s*:\\s*\"ALL\"");
+    private static final Pattern JOIN_BUFFER = Pattern.compile("\"table_name\"\\s*:\\s*\"([^\"]+)\"[^{}]*\"using_join_buffer\"");
+    private static final Logger LOG = Logger.getLogger(SlowQueryLog.class.getName());
+
+    /**
+     * Whether an execution that took nanos should be reported. False on the
+     * background thread itself, so EXPLAINs are never explained.
+     */
+    static boolean isSlow(long nanos) {
+        return ENABLED && nanos >= THRESHOLD_NANOS && Thread.currentThread() != worker;
+    }
+
+    /**
+     * Queues a slow execution for the log. shape is the SQL as JdbcStats
+     * counts it, sql the text that ran and parameters the values bound to
+     * it, first parameter first.
+     */
+    static void report(String shape, String sql, List<Object> parameters, long nanos, boolean failed) {
+        Slow slow = new Slow(LocalDateTime.now(), shape, sql, new ArrayList<>(parameters), nanos, failed);
+        executor().execute(() -> write(slow));
+    }
+
+    private SlowQueryLog() {
+    }
+
+    private static synchronized ThreadPoolExecutor executor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_PENDING), r -> {
+                Thread t = new Thread(r, "SlowQueryLog");
+                t.setDaemon(true);
+                worker = t;
+                return t;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+            try {
+                FileHandler handler = new FileHandler(FILE, FILE_BYTES, FILE_COUNT, true);
+                handler.setFormatter(new Formatter() {
+                    @Override
+                    public String format(LogRecord record) {
+                        return record.getMessage() + System.lineSeparator();
+                    }
+                });
+                file = Logger.getLogger(SlowQueryLog.class.getName() + ".file");
+                file.setUseParentHandlers(false);
+                file.addHandler(handler);
+            } catch (IOException | RuntimeException ex) {
+                LOG.warning("Could not open " + FILE + ", slow queries go to the console: " + ex);
+                file = LOG;
+            }
+        }
+        return executor;
+    }
+
+    // Runs on the background thread
+    private static void write(Slow slow) {
+        String nl = System.lineSeparator();
+        StringBuilder entry = new StringBuilder();
+        entry.append(String.format("# %s  %.1f ms%s%n", slow.time, slow.nanos / 1e6, slow.failed ? "  (failed)" : ""));
+        entry.append(slow.sql.trim()).append(nl);
+        if (!slow.parameters.isEmpty()) {
+            entry.append("parameters: ").append(slow.parameters).append(nl);
+        }
+
+        LocalDateTime explained = lastExplained.get(slow.shape);
+        if (!EXPLAINABLE.matcher(slow.sql).matches()) {
+            entry.append("plan: (not an explainable statement)").append(nl);
+        } else if (explained != null && explained.plusSeconds(EXPLAIN_INTERVAL).isAfter(slow.time)) {
+            entry.append("plan: (explained at ").append(explained).append(')').append(nl);
+        } else if (!canRebind(slow.parameters)) {
+            entry.append("plan: (parameters cannot be bound again)").append(nl);
+        } else {
+            String plan;
+            try {
+                plan = explain(slow.sql, slow.parameters);
+                lastExplained.put(slow.shape, slow.time);
+            } catch (SQLException ex) {
+                plan = null;
+                entry.append("plan: (EXPLAIN failed: ").append(ex.getMessage()).append(')').append(nl);
+            }
+            if (plan != null) {
+                entry.append("plan: ").append(plan.trim()).append(nl);
+                List<String> warnings = warnings(plan);
+                if (!warnings.isEmpty()) {
+                    entry.append("look at: ").append(String.join("; ", warnings)).append(nl);
+                }
+            }
+        }
+        file.log(Level.INFO, entry.toString());
+    }
+
+    private static String explain(String sql, List<Object> parameters) throws SQLException {
+        Connection con = ConnectionPool.getInstance().borrow();
+        try (PreparedStatement ps = con.prepareStatement("explain format=json " + sql)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                ps.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : "";
+            }
+        } finally {
+            ConnectionPool.getInstance().release(con);
+        }
+    }
+
+    // Streams and LOBs were consumed by the execution itself
+    private static boolean canRebind(List<Object> parameters) {
+        for (Object value : parameters) {
+            if (value instanceof InputStream || value instanceof Reader || value instanceof Blob || value instanceof Clob) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static List<String> warnings(String plan) {
+        List<String> warnings = new ArrayList<>();
+        Matcher m = FULL_SCAN.matcher(plan);
+        while (m.find()) {
+            warnings.add("full scan of " + m.group(1));
+        }
+        m = JOIN_BUFFER.matcher(plan);
+        while (m.find()) {
+            warnings.add(m.group(1) + " joined through the join buffer (missing join condition or index)");
+        }
+        if (plan.matches("(?s).*\"dependent\"\\s*:\\s*true.*")) {
+            warnings.add("dependent subquery, run once per outer row");
+        }
+        if (plan.matches("(?s).*\"using_filesort\"\\s*:\\s*true.*")) {
+            warnings.add("filesort");
+        }
+        if (plan.matches("(?s).*\"using_temporary_table\"\\s*:\\s*true.*")) {
+            warnings.add("temporary table");
+        }
+        return warnings;
+    }
+
+    /**
+     * One slow execution waiting to be written.
+     */
+    private static final class Slow {
+        Slow(LocalDateTime time, String shape, String sql, List<Object> parameters, long nanos, boolean failed) {
+            this.time = time;
+            this.shape = shape;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.nanos = nanos;
+            this.failed = failed;
+        }
+
+        final LocalDateTime time;
+        final String shape;
+        final String sql;
+        final List<Object> parameters;
+        final long nanos;
+        final boolean failed;
+    }
+
+
+    private static ThreadPoolExecutor executor;
+    private static volatile Thread worker;
+    private static Logger file;
+    private static final Map<String, LocalDateTime> lastExplained = new ConcurrentHashMap<>();
+}
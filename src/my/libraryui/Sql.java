@@ -0,0 +1,121 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+/**
+ * Every SQL statement the frames issue, written with ? placeholders so it can
+ * be prepared once per connection by StatementCache and re-executed with
+ * bound parameters.
+ */
+public final class Sql {
+
+    private Sql() {
+    }
+
+    /* Reference data for combo boxes */
+    public static final String PUBLISHER_NAMES = "select pubName from Publisher";
+    public static final String TITLE_INDEX = "select title, ISBN from Book";
+    // Ordered, as INX_estYear covers this query and could otherwise hand the rows back in estYear order
+    public static final String PUBLISHER_EST_YEARS = "select pubName, estYear from Publisher order by pubName";
+    public static final String PUBLISHER_EST_YEAR = "select pubName, estYear from Publisher where pubName = ?";
+    public static final String CATEGORIES = "select categoryName, supercategoryName from Category";
+    public static final String AUTHORS = "select authID, AFirst, ALast from Author";
+
+    /* bookFrame */
+    public static final String BOOK_INSERT = "insert into Book values (?, ?, ?, ?, ?)";
+    public static final String BOOK_UPDATE = "update Book set ISBN = ?, title = ?, pubYear = ?, numPages = ?, pubName = ? where ISBN = ?";
+    public static final String BOOK_DELETE = "delete from Book where ISBN = ?";
+
+    /* memberFrame */
+    public static final String MEMBER_INSERT = "insert into Member values (?, ?, ?, ?, ?, ?, ?)";
+    public static final String MEMBER_UPDATE = "update Member set memberID = ?, MFirst = ?, MLast = ?, Street = ?, Snumber = ?, PostalCode = ?, Mbirthdate = ? where memberID = ?";
+    public static final String MEMBER_DELETE = "delete from Member where memberID = ?";
+
+    /* publisherFrame */
+    public static final String PUBLISHER_INSERT = "insert into Publisher values (?, ?, ?, ?, ?)";
+    public static final String PUBLISHER_UPDATE = "update Publisher set pubName = ?, estYear = ?, street = ?, snumber = ?, postalCode = ? where pubName = ?";
+    public static final String PUBLISHER_DELETE = "delete from Publisher where pubName = ?";
+
+    /* bookPositionFrame */
+    // In primary key order, which bookPositionFrame steps through and BookPositionModel.apply keeps
+    public static final String COPY_POSITIONS = "select c.ISBN, c.copyNr, c.shelf, b.title from Copies as c inner join Book as b on c.ISBN = b.ISBN order by c.ISBN, c.copyNr";
+    public static final String BOOK_POSITION_UPDATE = "update BookPosition set shelf = ? where title = ?";
+    public static final String COPY_POSITIONS_OF_BOOK = "select c.ISBN, c.copyNr, c.shelf, b.title from Copies as c inner join Book as b on c.ISBN = b.ISBN where c.ISBN = ? order by c.copyNr";
+
+    /* CopyRepository */
+    public static final String COPIES_OF_BOOK = "select ISBN, copyNr, shelf, null from Copies where ISBN = ? order by copyNr";
+    public static final String COPY_INSERT = "insert into Copies values (?, ?, ?)";
+    public static final String COPY_SHELF_UPDATE = "update Copies set shelf = ? where ISBN = ? and copyNr = ?";
+
+    /* LoanRepository */
+    public static final String LOANS_OF_MEMBER = "select memberID, ISBN, copyNr, date_of_borrowing, date_of_return from Borrows where memberID = ? order by date_of_borrowing";
+    public static final String OPEN_LOANS_OF_MEMBER = "select memberID, ISBN, copyNr, date_of_borrowing, date_of_return from Borrows where memberID = ? and date_of_return is null order by date_of_borrowing";
+    public static final String LOAN_INSERT = "insert into Borrows values (?, ?, ?, ?, ?)";
+    public static final String LOAN_RETURN = "update Borrows set date_of_return = ? where memberID = ? and ISBN = ? and copyNr = ? and date_of_borrowing = ?";
+    public static final String LOAN_STATS_ENSURE = "insert into MemberLoanStats (memberID) values (?) on duplicate key update memberID = memberID";
+    public static final String LOAN_STATS_FOR_UPDATE = "select openLoans, datediff(curdate(), oldestOpenLoan) from MemberLoanStats where memberID = ? for update";
+    // Recomputes every member's counters from Borrows, for loads that bypass the TR_LOANSTATS_* triggers
+    public static final String LOAN_STATS_REBUILD = "insert into MemberLoanStats (memberID, totalLoans, openLoans, oldestOpenLoan) select memberID, count(*), sum(date_of_return is null), min(case when date_of_return is null then date_of_borrowing end) from Borrows group by memberID on duplicate key update totalLoans = values(totalLoans), openLoans = values(openLoans), oldestOpenLoan = values(oldestOpenLoan)";
+
+    /* ChangeLogPoller */
+    public static final String CHANGE_LOG_HEAD = "select coalesce(max(changeID), 0) from ChangeLog";
+    public static final String CHANGE_LOG_AFTER = "select changeID, entity, operation, entityKey, oldKey, sessionID from ChangeLog where changeID > ? order by changeID limit ?";
+    // One entry standing for a whole bulk load of a table; the row triggers are kept quiet meanwhile (see SP_CHANGELOG)
+    public static final String CHANGE_LOG_RELOAD = "insert into ChangeLog (entity, operation, entityKey, oldKey, sessionID) values (?, 'RELOAD', '', '', connection_id())";
+    public static final String CHANGE_LOG_RANGE = "select changeID, entity, operation, entityKey, oldKey, sessionID from ChangeLog where changeID between ? and ? order by changeID";
+
+    /* CatalogSearchQuery */
+    // The titles, authors and categories matching word number %1$d
+    private static final String CATALOG_SEARCH_WORD = "select t.ISBN, %1$d as word, match(t.title) against (? in boolean mode) as score from Book as t "
+            + "where match(t.title) against (? in boolean mode) "
+            + "union all select aw.ISBN, %1$d, match(au.AFirst, au.ALast) against (? in boolean mode) from Author as au "
+            + "inner join Written_by as aw on aw.authID = au.authID where match(au.AFirst, au.ALast) against (? in boolean mode) "
+            + "union all select cb.ISBN, %1$d, match(ca.categoryName) against (? in boolean mode) from Category as ca "
+            + "inner join Belongs_to as cb on cb.categoryName = ca.categoryName where match(ca.categoryName) against (? in boolean mode)";
+
+    // catalogSearch(2), the form PlanRegressionCheck explains
+    public static final String CATALOG_SEARCH = catalogSearch(2);
+
+    /**
+     * The catalog search for the given number of words. Parameters: for each
+     * word in turn, its boolean-mode phrase from CatalogSearchModel.terms six
+     * times, once per MATCH; then limit and offset. hits holds one relevance
+     * score per title, author and category containing a word, tagged with the
+     * word's number; ranked keeps the books that every word was found in,
+     * each in any of the three, sums their scores and cuts the page. Only the
+     * books on the page are then joined with their authors and categories.
+     */
+    public static String catalogSearch(int words) {
+        StringBuilder hits = new StringBuilder();
+        for (int word = 1; word <= words; word++) {
+            hits.append(word == 1 ? "" : " union all ").append(String.format(CATALOG_SEARCH_WORD, word));
+        }
+        return "select b.ISBN, b.title as \"Title\", "
+                + "group_concat(distinct concat(a.AFirst, ' ', a.ALast) order by a.ALast, a.AFirst separator ', ') as \"Authors\", "
+                + "group_concat(distinct bt.categoryName order by bt.categoryName separator ', ') as \"Categories\", "
+                + "round(ranked.score, 2) as \"Relevance\" "
+                + "from (select hits.ISBN, sum(hits.score) as score from (" + hits + ") as hits "
+                + "group by hits.ISBN having count(distinct hits.word) = " + words + " "
+                + "order by score desc, hits.ISBN limit ? offset ?) as ranked "
+                + "inner join Book as b on b.ISBN = ranked.ISBN "
+                + "left join Written_by as w on w.ISBN = b.ISBN left join Author as a on a.authID = w.authID "
+                + "left join Belongs_to as bt on bt.ISBN = b.ISBN "
+                + "group by b.ISBN, b.title, ranked.score order by ranked.score desc, b.ISBN";
+    }
+
+    /* Report frames */
+    // LazyTableModel pages these with limit and offset, so each orders its rows by a unique key
+    // BORROWED_COUNT and BORROWED_FIVE read the MemberLoanStats counters kept by the TR_LOANSTATS_* triggers
+    public static final String BORROWED_COUNT = "select m.MFirst as \"FirstName\", m.MLast as \"LastName\", s.totalLoans as \"BooksBorrowed\" from MemberLoanStats as s inner join Member as m on m.memberID = s.memberID where s.totalLoans > 0 order by s.totalLoans desc, s.memberID desc";
+    public static final String BOOKS_WRITTEN = "select a.AFirst as \"First Name\", a.ALast as \"Last Name\", COUNT(*) as \"Books Written\" from Written_by as w inner join Author as a on a.authID=w.authID group by w.authID order by w.authID";
+    public static final String OLDER_EMPLOYEES = "select EFirst as \"First Name\", Elast as \"Last Name\", HiringDate as \"Hiring Date\" from Employee, Permanent_Employee order by HiringDate, Permanent_Employee.empID, Employee.empID";
+    public static final String TOTAL_SALARIES = "select SUM(salary) as \"Total Salary Costs\" from Employee";
+    public static final String BORROWED_FIVE = "select m.memberID as \"Member ID\", m.MFirst as \"First Name\", m.MLast as \"Last Name\" from MemberLoanStats as s inner join Member as m on m.memberID = s.memberID where s.totalLoans = 5 order by s.memberID";
+    public static final String PUB_AFTER_YEAR = "select title from Book where pubName in (select pubName from Publisher where estYear > ?) order by title, ISBN";
+    public static final String PUBLISHED_BY = "select title from Book as b inner join Publisher as p on b.pubName=p.pubName where b.pubName = ? order by b.title, b.ISBN";
+    public static final String BOOK_POSITION_BY_TITLE = "select shelf,copyNr from Copies as c inner join Book as b on c.ISBN=b.ISBN where b.title = ?";
+    public static final String BOOK_POSITION_BY_ISBN = "select shelf, copyNr from Copies where ISBN = ? order by copyNr";
+}
@@ -0,0 +1,120 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection cache of PreparedStatements, keyed by SQL text.
+ * Pooled connections keep their cache between borrows, so a statement from
+ * Sql is parsed and planned by the server once per connection rather than on
+ * every execution (the pool connects with useServerPrepStmts=true).
+ *
+ * Statements handed out are owned by the cache: callers bind parameters and
+ * execute them, and close only the ResultSet.
+ */
+public final class StatementCache {
+
+    public static final int MAX_STATEMENTS = Integer.getInteger("library.stmtCache.size", 64);
+
+    private static final Map<Connection, StatementCache> CACHES = new WeakHashMap<>();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    public static PreparedStatement prepare(Connection con, String sql) throws SQLException {
+        return prepare(con, sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+
+    public static PreparedStatement prepare(Connection con, String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        StatementCache cache;
+        synchronized (CACHES) {
+            cache = CACHES.get(con);
+            if (cache == null) {
+                cache = new StatementCache();
+                CACHES.put(con, cache);
+            }
+        }
+        return cache.get(con, sql, resultSetType, resultSetConcurrency);
+    }
+
+    /**
+     * Closes and forgets every statement cached for con. Called by the pool
+     * before it closes a physical connection.
+     */
+    public static void evict(Connection con) {
+        StatementCache cache;
+        synchronized (CACHES) {
+            cache = CACHES.remove(con);
+        }
+        if (cache != null) {
+            cache.closeAll();
+        }
+    }
+
+    public static long getHitCount() {
+        return HITS.get();
+    }
+
+    public static long getMissCount() {
+        return MISSES.get();
+    }
+
+    private StatementCache() {
+    }
+
+    private synchronized PreparedStatement get(Connection con, String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        String key = resultSetType == ResultSet.TYPE_FORWARD_ONLY && resultSetConcurrency == ResultSet.CONCUR_READ_ONLY
+                ? sql
+                : resultSetType + "/" + resultSetConcurrency + ":" + sql;
+        PreparedStatement stmt = statements.get(key);
+        if (stmt != null && !stmt.isClosed()) {
+            HITS.incrementAndGet();
+            stmt.clearParameters();
+            return stmt;
+        }
+        MISSES.incrementAndGet();
+        stmt = con.prepareStatement(sql, resultSetType, resultSetConcurrency);
+        statements.put(key, stmt);
+        return stmt;
+    }
+
+    private synchronized void closeAll() {
+        List<PreparedStatement> all = new ArrayList<>(statements.values());
+        statements.clear();
+        for (PreparedStatement stmt : all) {
+            close(stmt);
+        }
+    }
+
+    private static void close(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ex) {
+        }
+    }
+
+
+    // Access-ordered, so the least recently used statement is closed first
+    private final LinkedHashMap<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() > MAX_STATEMENTS) {
+                close(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+}
@@ -0,0 +1,76 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+/**
+ * Snapshot of the figures JdbcStats keeps for one SQL shape. Times are in
+ * microseconds and measured from the execute call to its return, which for
+ * a query is the time to the first (or, unless streaming, the last) row.
+ * Rows are those read from the ResultSets of a query, or those changed by
+ * an update.
+ */
+public final class StatementStats {
+
+    StatementStats(String sql, long executions, long errors, long rows, long totalMicros,
+            long p50Micros, long p95Micros, long p99Micros, long maxMicros) {
+        this.sql = sql;
+        this.executions = executions;
+        this.errors = errors;
+        this.rows = rows;
+        this.totalMicros = totalMicros;
+        this.p50Micros = p50Micros;
+        this.p95Micros = p95Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getExecutions() {
+        return executions;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getTotalMicros() {
+        return totalMicros;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP95Micros() {
+        return p95Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+
+    private final String sql;
+    private final long executions;
+    private final long errors;
+    private final long rows;
+    private final long totalMicros;
+    private final long p50Micros;
+    private final long p95Micros;
+    private final long p99Micros;
+    private final long maxMicros;
+}
@@ -0,0 +1,411 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes a whole table, or the result of one of the report queries, to a
+ * file without holding the result in memory. The query runs on a pooled
+ * connection of its own with a forward-only, read-only statement and a
+ * fetch size of Integer.MIN_VALUE, which makes the MySQL driver stream rows
+ * from the server one at a time instead of reading the whole result first.
+ * Rows are encoded into a fixed direct ByteBuffer that is written to a
+ * FileChannel whenever it fills, so memory use does not grow with the
+ * number of rows.
+ *
+ * Two formats are offered. CSV is UTF-8 with a byte order mark (so
+ * spreadsheet programs read the Greek text correctly), a header line, CRLF
+ * line ends, quotes only where needed and NULL as an empty field. BINARY is
+ * a compact format for reloading:
+ *
+ *   "LIBX", version byte 1, varint column count,
+ *   per column: name as string, type byte (1 integer, 2 double, 3 date, 4 text),
+ *   per row: byte 1, null bitmap of (columns + 7) / 8 bytes (bit c set when
+ *            column c is NULL), then each non-NULL value,
+ *   end: byte 0, varint row count.
+ *
+ * Integers are zigzag varints, doubles 8 bytes big endian, dates zigzag
+ * varint epoch days and strings a varint byte length followed by UTF-8.
+ * DECIMAL, time and any other column types are written as text.
+ *
+ * Run with: java -cp dist/Library.jar:lib/MySQLDriver/mysql-connector-java-5.1.23-bin.jar my.libraryui.StreamingExport table|report file.csv|file.libx [parameter]
+ */
+public final class StreamingExport {
+
+    public static final int BUFFER_SIZE = Integer.getInteger("library.export.bufferSize", 256 * 1024);
+
+    public enum Format {
+        CSV, BINARY;
+
+        /**
+         * CSV for a .csv file, BINARY for anything else.
+         */
+        public static Format forFile(Path file) {
+            return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : BINARY;
+        }
+    }
+
+    /** Every table of the Library schema. */
+    public static final String[] TABLES = {
+        "Member", "Book", "Author", "Category", "Copies", "Publisher", "Employee", "Permanent_Employee",
+        "Temporary_Employee", "Borrows", "Belongs_to", "Reminder", "Written_by", "MemberLoanStats"
+    };
+
+    private static final byte TYPE_INTEGER = 1;
+    private static final byte TYPE_DOUBLE = 2;
+    private static final byte TYPE_DATE = 3;
+    private static final byte TYPE_TEXT = 4;
+
+    private static final Map<String, Report> REPORTS = new LinkedHashMap<>();
+
+    static {
+        report("BorrowedCount", Sql.BORROWED_COUNT, null);
+        report("BorrowedFive", Sql.BORROWED_FIVE, null);
+        report("BooksWritten", Sql.BOOKS_WRITTEN, null);
+        report("OlderEmployees", Sql.OLDER_EMPLOYEES, null);
+        report("TotalSalaries", Sql.TOTAL_SALARIES, null);
+        report("PubAfterYear", Sql.PUB_AFTER_YEAR, "Publishers established after year:");
+        report("PublishedBy", Sql.PUBLISHED_BY, "Publisher:");
+        report("BookPosition", Sql.BOOK_POSITION_BY_TITLE, "Title:");
+    }
+
+    private StreamingExport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: StreamingExport <table|report> <file.csv|file.libx> [parameter]");
+            System.err.println("Tables and reports: " + String.join(", ", names()));
+            System.exit(2);
+        }
+        Path file = Paths.get(args[1]);
+        Object[] params = args.length > 2 ? new Object[] {args[2]} : new Object[0];
+        try {
+            long start = System.nanoTime();
+            long rows = export(args[0], params, Format.forFile(file), file);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println(String.format("Exported %d rows to %s in %.1f s (%.0f rows/s)", rows, file, seconds, rows / seconds));
+        } finally {
+            ConnectionPool.getInstance().shutdown();
+        }
+    }
+
+    /**
+     * Returns the names export accepts: the tables, then the reports.
+     */
+    public static String[] names() {
+        List<String> names = new ArrayList<>();
+        for (String table : TABLES) {
+            names.add(table);
+        }
+        names.addAll(REPORTS.keySet());
+        return names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * Returns the prompt for the report's one parameter, or null if name
+     * takes none.
+     */
+    public static String parameterPrompt(String name) {
+        Report report = REPORTS.get(name);
+        return report == null ? null : report.prompt;
+    }
+
+    /**
+     * Exports the table or report called name to file, borrowing a pooled
+     * connection for the duration. Returns the number of rows written.
+     */
+    public static long export(String name, Object[] params, Format format, Path file) throws SQLException, IOException {
+        ConnectionPool pool = ConnectionPool.getInstance();
+        Connection con = pool.borrow();
+        try {
+            return export(con, sqlFor(name), params, format, file);
+        } finally {
+            pool.release(con);
+        }
+    }
+
+    /**
+     * Streams the result of sql to file. The connection cannot run anything
+     * else until this returns.
+     */
+    public static long export(Connection con, String sql, Object[] params, Format format, Path file) throws SQLException, IOException {
+        // Not taken from StatementCache: the streaming fetch size would stay on the cached statement
+        try (PreparedStatement stmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery(); Output out = new Output(file)) {
+                return format == Format.CSV ? writeCsv(rs, out) : writeBinary(rs, out);
+            }
+        }
+    }
+
+    private static String sqlFor(String name) {
+        for (String table : TABLES) {
+            if (table.equalsIgnoreCase(name)) {
+                return "select * from " + table;
+            }
+        }
+        Report report = REPORTS.get(name);
+        if (report == null) {
+            throw new IllegalArgumentException("No table or report called " + name);
+        }
+        return report.sql;
+    }
+
+    private static long writeCsv(ResultSet rs, Output out) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columns = meta.getColumnCount();
+        StringBuilder line = new StringBuilder("\uFEFF");
+        for (int c = 1; c <= columns; c++) {
+            appendCsv(line, meta.getColumnLabel(c), c);
+        }
+        long rows = 0;
+        while (true) {
+            line.append("\r\n");
+            out.put(line.toString().getBytes(StandardCharsets.UTF_8));
+            line.setLength(0);
+            if (!rs.next()) {
+                break;
+            }
+            for (int c = 1; c <= columns; c++) {
+                appendCsv(line, rs.getString(c), c);
+            }
+            rows++;
+        }
+        return rows;
+    }
+
+    private static void appendCsv(StringBuilder line, String value, int column) {
+        if (column > 1) {
+            line.append(',');
+        }
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private static long writeBinary(ResultSet rs, Output out) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columns = meta.getColumnCount();
+        byte[] types = new byte[columns];
+        out.put("LIBX".getBytes(StandardCharsets.US_ASCII));
+        out.put((byte) 1);
+        out.putVarint(columns);
+        for (int c = 0; c < columns; c++) {
+            types[c] = typeOf(meta.getColumnType(c + 1));
+            out.putString(meta.getColumnLabel(c + 1));
+            out.put(types[c]);
+        }
+
+        byte[] nulls = new byte[(columns + 7) / 8];
+        Object[] values = new Object[columns];
+        long rows = 0;
+        while (rs.next()) {
+            Arrays.fill(nulls, (byte) 0);
+            for (int c = 0; c < columns; c++) {
+                values[c] = read(rs, c + 1, types[c]);
+                if (values[c] == null) {
+                    nulls[c / 8] |= 1 << (c % 8);
+                }
+            }
+            out.put((byte) 1);
+            out.put(nulls);
+            for (int c = 0; c < columns; c++) {
+                if (values[c] != null) {
+                    write(out, types[c], values[c]);
+                }
+            }
+            rows++;
+        }
+        out.put((byte) 0);
+        out.putVarint(rows);
+        return rows;
+    }
+
+    private static byte typeOf(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return TYPE_INTEGER;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return TYPE_DOUBLE;
+            case Types.DATE:
+                return TYPE_DATE;
+            default:
+                return TYPE_TEXT;
+        }
+    }
+
+    // Returns the value boxed, or null for NULL
+    private static Object read(ResultSet rs, int column, byte type) throws SQLException {
+        switch (type) {
+            case TYPE_INTEGER: {
+                long value = rs.getLong(column);
+                return rs.wasNull() ? null : value;
+            }
+            case TYPE_DOUBLE: {
+                double value = rs.getDouble(column);
+                return rs.wasNull() ? null : value;
+            }
+            case TYPE_DATE: {
+                Date value = rs.getDate(column);
+                return value == null ? null : value.toLocalDate().toEpochDay();
+            }
+            default:
+                return rs.getString(column);
+        }
+    }
+
+    private static void write(Output out, byte type, Object value) throws IOException {
+        switch (type) {
+            case TYPE_INTEGER:
+            case TYPE_DATE:
+                out.putZigzag((Long) value);
+                break;
+            case TYPE_DOUBLE:
+                out.putDouble((Double) value);
+                break;
+            default:
+                out.putString((String) value);
+        }
+    }
+
+    private static void report(String name, String sql, String prompt) {
+        REPORTS.put(name, new Report(sql, prompt));
+    }
+
+    private static final class Report {
+        Report(String sql, String prompt) {
+            this.sql = sql;
+            this.prompt = prompt;
+        }
+
+        final String sql;
+        final String prompt;
+    }
+
+    /**
+     * A FileChannel written through one reused direct buffer.
+     */
+    private static final class Output implements AutoCloseable {
+
+        Output(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void put(byte value) throws IOException {
+            room(1);
+            buffer.put(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                room(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void putDouble(double value) throws IOException {
+            room(8);
+            buffer.putDouble(value);
+        }
+
+        void putVarint(long value) throws IOException {
+            room(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void putZigzag(long value) throws IOException {
+            putVarint((value << 1) ^ (value >> 63));
+        }
+
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarint(bytes.length);
+            put(bytes);
+        }
+
+        // Writes the buffer out if it has fewer than bytes bytes free
+        private void room(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                channel.close();
+            }
+        }
+
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+}
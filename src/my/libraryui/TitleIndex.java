@@ -0,0 +1,301 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory prefix index of every book title, for type-ahead search. Titles
+ * are folded to a search key (accents dropped, upper case, runs of spaces
+ * made one) and held in three parallel arrays sorted by that key, so the
+ * titles starting with a prefix are found by one binary search and read off
+ * in order: a lookup costs O(log n + limit) whatever the size of the
+ * catalog, and holds no lock.
+ *
+ * Immutable; patch returns a patched copy, which ReferenceData swaps in
+ * after books are written. The sorted arrays are shared between copies and
+ * the writes since they were built are kept in a small overlay (the books
+ * written, and the ISBNs of the array entries they replace or delete), which
+ * find merges in. Once the overlay reaches MERGE_THRESHOLD entries it is
+ * folded into new arrays, so a write costs O(log n) plus a copy of the
+ * overlay, and the O(n) rebuild happens once per MERGE_THRESHOLD writes.
+ */
+public final class TitleIndex {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MERGE_THRESHOLD = Integer.getInteger("library.titles.mergeThreshold", 4096);
+
+    /**
+     * Reads every title and ISBN from Book.
+     */
+    public static TitleIndex load(Connection con) throws SQLException {
+        List<String> titles = new ArrayList<>();
+        List<String> isbns = new ArrayList<>();
+        try (ResultSet rs = StatementCache.prepare(con, Sql.TITLE_INDEX).executeQuery()) {
+            while (rs.next()) {
+                titles.add(rs.getString(1));
+                isbns.add(rs.getString(2));
+            }
+        }
+        return of(titles, isbns);
+    }
+
+    public static TitleIndex of(List<String> titles, List<String> isbns) {
+        Integer[] order = new Integer[titles.size()];
+        String[] unsortedKeys = new String[order.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            unsortedKeys[i] = key(titles.get(i));
+        }
+        Arrays.sort(order, Comparator.<Integer, String>comparing(i -> unsortedKeys[i])
+                .thenComparing(i -> titles.get(i))
+                .thenComparing(i -> isbns.get(i)));
+
+        String[] keys = new String[order.length];
+        String[] sortedTitles = new String[order.length];
+        String[] sortedIsbns = new String[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = unsortedKeys[order[i]];
+            sortedTitles[i] = titles.get(order[i]);
+            sortedIsbns[i] = isbns.get(order[i]);
+        }
+        return new TitleIndex(keys, sortedTitles, sortedIsbns);
+    }
+
+    private TitleIndex(String[] keys, String[] titles, String[] isbns) {
+        this(keys, titles, isbns, byIsbn(isbns), Collections.<String>emptySet(), new TreeMap<>(), new HashMap<>());
+    }
+
+    private TitleIndex(String[] keys, String[] titles, String[] isbns, int[] isbnOrder,
+            Set<String> replaced, TreeMap<String, Match> added, Map<String, String> addedKeys) {
+        this.keys = keys;
+        this.titles = titles;
+        this.isbns = isbns;
+        this.isbnOrder = isbnOrder;
+        this.replaced = replaced;
+        this.added = added;
+        this.addedKeys = addedKeys;
+    }
+
+    public int size() {
+        return keys.length - replaced.size() + added.size();
+    }
+
+    /**
+     * Returns up to limit books whose title starts with prefix, ignoring
+     * case and accents, in title order. An empty prefix matches every book.
+     */
+    public List<Match> find(String prefix, int limit) {
+        String folded = fold(prefix);
+        List<Match> matches = new ArrayList<>(Math.min(limit, 64));
+        int i = lowerBound(folded);
+        Iterator<Map.Entry<String, Match>> overlay = added.tailMap(folded).entrySet().iterator();
+        Map.Entry<String, Match> next = overlay.hasNext() ? overlay.next() : null;
+        while (matches.size() < limit) {
+            while (i < keys.length && replaced.contains(isbns[i])) {
+                i++;
+            }
+            boolean inBase = i < keys.length && keys[i].startsWith(folded);
+            boolean inOverlay = next != null && next.getKey().startsWith(folded);
+            if (!inBase && !inOverlay) {
+                break;
+            }
+            if (inBase && (!inOverlay || sortKey(keys[i], titles[i], isbns[i]).compareTo(next.getKey()) < 0)) {
+                matches.add(new Match(titles[i], isbns[i]));
+                i++;
+            } else {
+                matches.add(next.getValue());
+                next = overlay.hasNext() ? overlay.next() : null;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * A copy in which the books with the ISBNs in removed are gone and the
+     * books in written are present under their current title (replacing any
+     * entry with the same ISBN). An ISBN belongs in one of the two at most.
+     */
+    public TitleIndex patch(Collection<String> removed, Collection<Match> written) {
+        Set<String> newReplaced = new HashSet<>(replaced);
+        TreeMap<String, Match> newAdded = new TreeMap<>(added);
+        Map<String, String> newAddedKeys = new HashMap<>(addedKeys);
+        List<String> dropped = new ArrayList<>(removed);
+        for (Match match : written) {
+            dropped.add(match.getIsbn());
+        }
+        for (String isbn : dropped) {
+            String sortKey = newAddedKeys.remove(isbn);
+            if (sortKey != null) {
+                newAdded.remove(sortKey);
+            }
+            if (basePosition(isbn) >= 0) {
+                newReplaced.add(isbn);
+            }
+        }
+        for (Match match : written) {
+            String sortKey = sortKey(key(match.getTitle()), match.getTitle(), match.getIsbn());
+            newAdded.put(sortKey, match);
+            newAddedKeys.put(match.getIsbn(), sortKey);
+        }
+        TitleIndex patched = new TitleIndex(keys, titles, isbns, isbnOrder, newReplaced, newAdded, newAddedKeys);
+        return newReplaced.size() + newAdded.size() >= MERGE_THRESHOLD ? patched.merged() : patched;
+    }
+
+    // Folds the overlay into new sorted arrays
+    private TitleIndex merged() {
+        int size = size();
+        String[] newKeys = new String[size];
+        String[] newTitles = new String[size];
+        String[] newIsbns = new String[size];
+        List<Match> matches = find("", Integer.MAX_VALUE);
+        for (int i = 0; i < size; i++) {
+            Match match = matches.get(i);
+            newKeys[i] = key(match.getTitle());
+            newTitles[i] = match.getTitle();
+            newIsbns[i] = match.getIsbn();
+        }
+        return new TitleIndex(newKeys, newTitles, newIsbns);
+    }
+
+    /**
+     * Folds text for matching: canonical decomposition with the combining
+     * marks dropped, upper case, leading spaces removed and each run of
+     * spaces made one. A trailing space is kept, so the prefix "ab " finds
+     * "Ab Cd" but not "Abc".
+     */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        boolean space = true;   // drops leading spaces
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            int type = Character.getType(c);
+            if (type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK || type == Character.COMBINING_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                if (!space) {
+                    folded.append(' ');
+                }
+                space = true;
+            } else {
+                folded.append(c);
+                space = false;
+            }
+        }
+        return folded.toString().toUpperCase(Locale.ROOT);
+    }
+
+    private static String key(String title) {
+        String folded = fold(title == null ? "" : title);
+        return folded.endsWith(" ") ? folded.substring(0, folded.length() - 1) : folded;
+    }
+
+    // First index whose key is not below key
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Orders like the arrays: by key, then title, then ISBN
+    private static String sortKey(String key, String title, String isbn) {
+        return key + '\0' + title + '\0' + isbn;
+    }
+
+    // Positions in the arrays, in ISBN order
+    private static int[] byIsbn(String[] isbns) {
+        Integer[] order = new Integer[isbns.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> isbns[i]));
+        int[] positions = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            positions[i] = order[i];
+        }
+        return positions;
+    }
+
+    // Position of isbn in the arrays, or -1
+    private int basePosition(String isbn) {
+        int low = 0;
+        int high = isbnOrder.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = isbns[isbnOrder[mid]].compareTo(isbn);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return isbnOrder[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One book found; shown in the title picker as its title and ISBN.
+     */
+    public static final class Match {
+        public Match(String title, String isbn) {
+            this.title = title;
+            this.isbn = isbn;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getIsbn() {
+            return isbn;
+        }
+
+        @Override
+        public String toString() {
+            return title + " (" + isbn + ")";
+        }
+
+        private final String title;
+        private final String isbn;
+    }
+
+
+    private final String[] keys;
+    private final String[] titles;
+    private final String[] isbns;
+    private final int[] isbnOrder;
+    // The overlay: ISBNs of array entries no longer current, and books written since, by sort key
+    private final Set<String> replaced;
+    private final TreeMap<String, Match> added;
+    private final Map<String, String> addedKeys;
+}
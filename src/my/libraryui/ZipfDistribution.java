@@ -0,0 +1,43 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package my.libraryui;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws ranks 0..n-1 where rank k is picked with probability proportional
+ * to 1 / (k + 1)^exponent: a few ranks take most of the draws and the rest
+ * form a long tail, the way a handful of titles account for most loans.
+ *
+ * The cumulative weights are computed once, so a draw is a binary search.
+ * Safe to share between threads; each caller supplies its own Random.
+ */
+final class ZipfDistribution {
+
+    ZipfDistribution(int n, double exponent) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        total = sum;
+    }
+
+    int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+        // A miss returns -(insertion point) - 1; the insertion point is the rank drawn
+        return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+    }
+
+
+    private final double[] cumulative;
+    private final double total;
+}
@@ -4,10 +4,9 @@
  * and open the template in the editor.
  */
 package my.libraryui;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.sql.Statement;
-import java.sql.PreparedStatement;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 import javax.swing.JOptionPane;
 import my.libraryui.ConnectionDB;
 
@@ -20,39 +19,14 @@ public class bookFrame extends javax.swing.JFrame {
         
         initComponents();
         this.setLocationRelativeTo(null); // Align window on screen center
+        insertButton.setEnabled(false);
+        db_exec = new DbExecutor(this, db_con);
         
-        try {
-            try {
-                Statement pubStmt = db_con.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-                String query = "select pubName from Publisher";
-                ResultSet pubSet = pubStmt.executeQuery(query);
-                
-                insertButton.setEnabled(false);
-                
-                while (pubSet.next()){
-                    publisherBox.addItem(pubSet.getString("pubName"));
-                }
-                
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(null, ex);
-            }
-            
-            if (result_set == null) {
-                fetchResultSet();
-            }
-            if (result_set != null) {
-                if (result_set.first()) {
-                    isbn_book.setText(result_set.getString("ISBN"));
-                    title_book.setText(result_set.getString("title"));
-                    year_book.setText(result_set.getString("pubYear"));
-                    pages_book.setText(result_set.getString("numPages"));
-                    publisherBox.setSelectedItem(result_set.getString("pubName"));
-                    ISBN = isbn_book.getText();
-                }
-            }
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(null, ex);
-        }
+        publisherBox.setModel(ReferenceData.getInstance().publisherModel());
+        ChangeBus.getInstance().subscribe(ChangeEvent.Entity.BOOK, changes);
+        ChangeBus.getInstance().subscribe(ChangeEvent.Entity.PUBLISHER, changes);
+        
+        db_exec.submit(() -> model.first(db_con.connection), this::showRecord, ex -> JOptionPane.showMessageDialog(null, ex));
     }
 
     /**
@@ -315,87 +289,65 @@ public class bookFrame extends javax.swing.JFrame {
 
     
     private void closeButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_closeButtonActionPerformed
-        setVisible(false);  //Close bookFrame
+        dispose();  //Close bookFrame
     }//GEN-LAST:event_closeButtonActionPerformed
 
     
-    public void fetchResultSet() {
-        try {
-            
-            Statement stmt = db_con.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-            String query = "select * from Book";
-            result_set = stmt.executeQuery(query);
-            
-        } catch (Exception ex) {
-
-            try {
-                if (db_con.connection != null) {
-                    db_con.closeCon();
-                }
-            } catch (Exception x) {
-            }
+    // Writes made through other frames: books, or a publisher rename or delete cascading into Book
+    private void changed(ChangeEvent event) {
+        if (event.getSource() == model) {
+            return;
+        }
+        if (event.getEntity() == ChangeEvent.Entity.BOOK) {
+            db_exec.submit(() -> model.apply(db_con.connection, event), this::showRecord, ex -> LOG.warning("Could not refresh after " + event + ": " + ex));
+        } else if (event.isRename() || event.getOperation() == ChangeEvent.Operation.DELETE || event.getOperation() == ChangeEvent.Operation.RELOAD) {
+            db_exec.submit(() -> {
+                Book shown = model.getCurrent();
+                Book book = model.refresh(db_con.connection);
+                return shown != null && (event.getOldKey() == null || event.getOldKey().toString().equalsIgnoreCase(shown.getPubName())) ? book : null;
+            }, this::showRecord, ex -> LOG.warning("Could not refresh after " + event + ": " + ex));
         }
     }
+
+    private void showRecord(Book book) {
+        if (book == null) {
+            return;
+        }
+        isbn_book.setText(book.getIsbn());
+        title_book.setText(book.getTitle());
+        year_book.setText(book.getPubYear() == null ? "" : book.getPubYear().toString());
+        pages_book.setText(book.getNumPages() == null ? "" : book.getNumPages().toString());
+        publisherBox.setSelectedItem(book.getPubName());
+    }
     
     
     private void nextButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_nextButtonActionPerformed
         updateButton.setEnabled(true);
         insertButton.setEnabled(false);
-        try {
-            if (result_set == null) {
-                fetchResultSet();
-            }
-            if (result_set != null) {
-                if (previousButton.isEnabled() == false)
-                    previousButton.setEnabled(true);
-                if (result_set.next()) {
-                    isbn_book.setText(result_set.getString("ISBN"));
-                    title_book.setText(result_set.getString("title"));
-                    year_book.setText(result_set.getString("pubYear"));
-                    pages_book.setText(result_set.getString("numPages"));
-                    publisherBox.setSelectedItem(result_set.getString("pubName"));
-                    
-                    ISBN = isbn_book.getText();
-                    insertButton.setEnabled(false);
-
-                } else {
-                    nextButton.setEnabled(false);
-                }
+        previousButton.setEnabled(true);
+        db_exec.submit(() -> model.next(db_con.connection), record -> {
+            if (record != null) {
+                showRecord(record);
+                insertButton.setEnabled(false);
+            } else {
+                nextButton.setEnabled(false);
             }
-        } catch (Exception ex) {
-            System.out.println(ex);
-        }
+        }, ex -> JOptionPane.showMessageDialog(null, ex));
     }//GEN-LAST:event_nextButtonActionPerformed
 
     
     private void previousButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_previousButtonActionPerformed
         updateButton.setEnabled(true);
         insertButton.setEnabled(false); 
-        try {
-            if (result_set == null) {
-                fetchResultSet();
-            }
-            if (result_set != null) {
-                if (nextButton.isEnabled() == false)
-                    nextButton.setEnabled(true);
-                
-                if (result_set.previous()) {
-                    isbn_book.setText(result_set.getString("ISBN"));
-                    title_book.setText(result_set.getString("title"));
-                    year_book.setText(result_set.getString("pubYear"));
-                    pages_book.setText(result_set.getString("numPages"));
-                    publisherBox.setSelectedItem(result_set.getString("pubName"));
-                    
-                    ISBN = isbn_book.getText();
-                    insertButton.setEnabled(false);
-
-                 } else {
-                    previousButton.setEnabled(false);
-                }
+        nextButton.setEnabled(true);
+        db_exec.submit(() -> model.previous(db_con.connection), record -> {
+            if (record != null) {
+                showRecord(record);
+                insertButton.setEnabled(false);
+            } else {
+                previousButton.setEnabled(false);
             }
-        } catch (Exception ex) {
-            System.out.println(ex);
-        }
+        }, ex -> JOptionPane.showMessageDialog(null, ex));
     }//GEN-LAST:event_previousButtonActionPerformed
 
     
@@ -416,110 +368,44 @@ public class bookFrame extends javax.swing.JFrame {
 
     
     private void insertButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_insertButtonActionPerformed
-        String isbn=isbn_book.getText().trim(), title=title_book.getText(), year=year_book.getText(), pages=pages_book.getText();
+        String isbn=isbn_book.getText(), title=title_book.getText(), year=year_book.getText(), pages=pages_book.getText();
         String publisher = publisherBox.getSelectedItem().toString();
-        try {
-            Statement stmt = db_con.connection.createStatement();
-            String query = "insert into Book values (\""+isbn+"\",\""+title+"\","+year+","+pages+",\""+publisher+"\");";
-            
-            stmt.executeUpdate(query);
+        db_exec.submit(() -> {
+            model.insert(db_con.connection, isbn, title, year, pages, publisher);
+            return null;
+        }, done -> {
             JOptionPane.showMessageDialog(null, "Inserted a book!" );
             newButton.doClick();
-            result_set = null;
-        } catch (Exception ex) {
-            if (ex.toString().contains("field")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Λάθος τύπος στοιχείων" );
-            }
-            else if (ex.toString().contains("duplicate")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Το βιβλίο με αυτό το ISBN ήδη υπάρχει" );
-            }
-            else if (ex.toString().contains("ISBN length")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Το μήκος του ISBN δεν είναι 13 χαρακτήρες" );
-            }
-            else if (ex.toString().contains("correct format")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! H σωστή μορφή του ISBN είναι: ###-###-###-#" );
-            }
-            else if (ex.toString().contains("Error! Year")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Το έτος πρέπει να είναι από το έτος ίδρυσης του εκδοτικού οίκου μέχρι το τρέχον" );
-            }
-            else if (ex.toString().contains("Error! Pages")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Οι σελίδες πρέπει να είναι θετικός αριθμός" );
-            }
-            else if (ex.toString().contains("\"\"")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Τα πεδία πρέπει να είναι συμπληρωμένα." );
-            }
-            else if (isbn.equals("")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Τα πεδία πρέπει να είναι συμπληρωμένα." );
-            }
-            else {
-                JOptionPane.showMessageDialog(null, ex );
-            }
-        }
+        }, ex -> JOptionPane.showMessageDialog(null, model.errorMessage(RecordModel.Action.INSERT, ex)));
     }//GEN-LAST:event_insertButtonActionPerformed
 
     
     private void updateButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_updateButtonActionPerformed
         String isbn=isbn_book.getText(), title=title_book.getText(), year=year_book.getText(), pages=pages_book.getText();
         String publisher = publisherBox.getSelectedItem().toString();
-        
-        try {
-            Statement stmt = db_con.connection.createStatement();
-            String query= "update Book set ISBN=\""+isbn+"\",title=\""+title+"\",pubYear="+year+",numPages="+pages+",pubName=\""+publisher+"\" where ISBN=\""+ISBN+"\";";
-            stmt.executeUpdate(query);
+        db_exec.submit(() -> model.update(db_con.connection, isbn, title, year, pages, publisher), record -> {
+            showRecord(record);
             JOptionPane.showMessageDialog(null, "Updated a book!" );
-        } catch (Exception ex) {
-            if (ex.toString().contains("field")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Λάθος τύπος στοιχείων" );
-            }
-            else if (ex.toString().contains("ON UPDATE CASCADE")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Το βιβλίο αυτό είναι δανεισμένο" );
-            }
-            else if (ex.toString().contains("duplicate")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Το βιβλίο με αυτό το ISBN ήδη υπάρχει" );
-            }
-            else if (ex.toString().contains("ISBN length")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Το μήκος του ISBN δεν είναι 13 χαρακτήρες" );
-            }
-            else if (ex.toString().contains("correct format")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! H σωστή μορφή του ISBN είναι: ###-###-###-#" );
-            }
-            else if (ex.toString().contains("Error! Year")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Το έτος πρέπει να είναι από το έτος ίδρυσης του εκδοτικού οίκου μέχρι το τρέχον" );
-            }
-            else if (ex.toString().contains("Error! Pages")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Οι σελίδες πρέπει να είναι θετικός αριθμός" );
-            } 
-            else {
-                JOptionPane.showMessageDialog(null, ex );
-            }
-        }
-        
-        result_set = null;
-        nextButton.doClick();
+        }, ex -> JOptionPane.showMessageDialog(null, model.errorMessage(RecordModel.Action.UPDATE, ex)));
     }//GEN-LAST:event_updateButtonActionPerformed
         
     
     private void deleteButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_deleteButtonActionPerformed
         String isbn=isbn_book.getText();
-        try {
-            Statement stmt = db_con.connection.createStatement();
-            String query= "delete from Book where ISBN=\""+isbn+"\";";
-            stmt.executeUpdate(query);
-            
-            result_set = null;
-            nextButton.doClick();
+        db_exec.submit(() -> model.delete(db_con.connection, isbn), record -> {
+            showRecord(record);
             JOptionPane.showMessageDialog(null, "Deleted a book!" );
-        }
-        catch (Exception ex) {
-            if (ex.toString().contains("delete")) {
-                JOptionPane.showMessageDialog(null, "Το βιβλίο είναι δανεισμένο από κάποιο μέλος.\n Δεν μπορεί να διαγραφεί!" );
-            }
-            else
-                JOptionPane.showMessageDialog(null, ex );
-        }                             
+        }, ex -> JOptionPane.showMessageDialog(null, model.errorMessage(RecordModel.Action.DELETE, ex)));
     }//GEN-LAST:event_deleteButtonActionPerformed
 
     
+    @Override
+    public void dispose() {
+        ChangeBus.getInstance().unsubscribe(changes);
+        db_exec.close(db_con::closeCon);  // Hand the connection back to the pool once queued work is done
+        super.dispose();
+    }
+
     /**
      * @param args the command line arguments
      */
@@ -556,10 +442,13 @@ public class bookFrame extends javax.swing.JFrame {
     }
 
     
+    private static final Logger LOG = Logger.getLogger(bookFrame.class.getName());
+
     final private ConnectionDB db_con;
+    final private DbExecutor db_exec;
 //    private Statement stmt = null;
-    private ResultSet result_set = null;
-    private String ISBN = null;
+    private final BookModel model = new BookModel();
+    private final Consumer<ChangeEvent> changes = this::changed;
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton closeButton;
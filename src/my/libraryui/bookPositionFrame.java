@@ -5,10 +5,9 @@
  */
 package my.libraryui;
 
-import java.sql.ResultSet;
-import java.sql.Statement;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 import javax.swing.JOptionPane;
-import net.proteanit.sql.DbUtils;
 
 
 public class bookPositionFrame extends javax.swing.JFrame {
@@ -25,39 +24,24 @@ public class bookPositionFrame extends javax.swing.JFrame {
         title_view.setEditable(false);
         copynr_view.setEditable(false);
         
-        try {
-            if (result_set == null) {
-                fetchResultSet();
-            }
-            if (result_set != null) {
-                if (result_set.first()) {
-                    title_view.setText(result_set.getString("title"));
-                    shelf_view.setText(result_set.getString("shelf"));
-                    copynr_view.setText(result_set.getString("copyNr"));
-                    TITLE = title_view.getText();
-                }
-            }
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(null, ex);
-        }
+        db_exec = new DbExecutor(this, db_con);
+        db_exec.submit(() -> model.first(db_con.connection), this::showRecord, ex -> JOptionPane.showMessageDialog(null, ex));
+        ChangeBus.getInstance().subscribe(ChangeEvent.Entity.COPY, changes);
+        ChangeBus.getInstance().subscribe(ChangeEvent.Entity.BOOK, changes);
+    }
+
+    // Shelf moves made through another bookPositionFrame, and book writes
+    private void changed(ChangeEvent event) {
+        db_exec.submit(() -> model.apply(db_con.connection, event), this::showRecord, ex -> LOG.warning("Could not refresh after " + event + ": " + ex));
     }
     
-    
-    public void fetchResultSet() {
-        try {
-            Statement stmt = db_con.connection.createStatement();
-            String query = "select * from BookPosition";
-            result_set = stmt.executeQuery(query);
-            
-        } catch (Exception ex) {
-
-            try {
-                if (db_con.connection != null) {
-                    db_con.closeCon();
-                }
-            } catch (Exception x) {
-            }
+    private void showRecord(Copy copy) {
+        if (copy == null) {
+            return;
         }
+        title_view.setText(copy.getTitle());
+        shelf_view.setText(copy.getShelf() == null ? "" : copy.getShelf().toString());
+        copynr_view.setText(Integer.toString(copy.getCopyNr()));
     }
 
     /**
@@ -251,86 +235,55 @@ public class bookPositionFrame extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     private void previousButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_previousButtonActionPerformed
-        try {
-            if (result_set == null) {
-                fetchResultSet();
-            }
-            if (result_set != null) {
-                if (nextButton.isEnabled() == false)
-                nextButton.setEnabled(true);
-
-                if (result_set.previous()) {
-                    title_view.setText(result_set.getString("title"));
-                    shelf_view.setText(result_set.getString("shelf"));
-                    copynr_view.setText(result_set.getString("copyNr"));
-                    TITLE = title_view.getText();
-
-                } else {
-                    previousButton.setEnabled(false);
-                }
+        nextButton.setEnabled(true);
+        db_exec.submit(() -> model.previous(db_con.connection), record -> {
+            if (record != null) {
+                showRecord(record);
+            } else {
+                previousButton.setEnabled(false);
             }
-        } catch (Exception ex) {
-            System.out.println(ex);
-        }
+        }, ex -> JOptionPane.showMessageDialog(null, ex));
     }//GEN-LAST:event_previousButtonActionPerformed
 
     private void nextButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_nextButtonActionPerformed
-        try {
-            if (result_set == null) {
-                fetchResultSet();
+        previousButton.setEnabled(true);
+        db_exec.submit(() -> model.next(db_con.connection), record -> {
+            if (record != null) {
+                showRecord(record);
+            } else {
+                nextButton.setEnabled(false);
             }
-            if (result_set != null) {
-                if (previousButton.isEnabled() == false)
-                previousButton.setEnabled(true);
-                if (result_set.next()) {
-                    title_view.setText(result_set.getString("title"));
-                    shelf_view.setText(result_set.getString("shelf"));
-                    copynr_view.setText(result_set.getString("copyNr"));
-
-                    TITLE = title_view.getText();
-
-                } else {
-                    //  result_set = null;
-                    nextButton.setEnabled(false);
-                }
-            }
-        } catch (Exception ex) {
-            System.out.println(ex);
-        }
+        }, ex -> JOptionPane.showMessageDialog(null, ex));
     }//GEN-LAST:event_nextButtonActionPerformed
 
     private void updateButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_updateButtonActionPerformed
         String shelf=shelf_view.getText();
 
-        try {
-            Statement stmt = db_con.connection.createStatement();
-            String query= "update BookPosition set shelf="+shelf+" where title=\""+TITLE+"\";";
-            stmt.executeUpdate(query);
+        db_exec.submit(() -> {
+            model.moveTitle(db_con.connection, shelf);
+            return null;
+        }, done -> {
             JOptionPane.showMessageDialog(null, "Updated a book's shelf!" );
-        } catch (Exception ex) {
-            if (ex.toString().contains("field")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Λάθος τύπος στοιχείων" );
-            }
-            else if (ex.toString().contains("Error! Copy")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Ο αριθμός του ραφιού πρέπει να είναι θετικός αριθμός." );
-            } 
-            else {
-                JOptionPane.showMessageDialog(null, ex );
-            }
-        }
+        }, ex -> JOptionPane.showMessageDialog(null, model.errorMessage(ex)));
         
-        result_set = null;
-        nextButton.doClick();
+        nextButton.doClick();   // queued behind the update
     }//GEN-LAST:event_updateButtonActionPerformed
 
     private void closeButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_closeButtonActionPerformed
-        setVisible(false);  //Close bookFrame
+        dispose();  //Close bookFrame
     }//GEN-LAST:event_closeButtonActionPerformed
 
     private void title_viewActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_title_viewActionPerformed
         // TODO add your handling code here:
     }//GEN-LAST:event_title_viewActionPerformed
 
+    @Override
+    public void dispose() {
+        ChangeBus.getInstance().unsubscribe(changes);
+        db_exec.close(db_con::closeCon);  // Hand the connection back to the pool once queued work is done
+        super.dispose();
+    }
+
     /**
      * @param args the command line arguments
      */
@@ -366,9 +319,12 @@ public class bookPositionFrame extends javax.swing.JFrame {
         });
     }
 
+    private static final Logger LOG = Logger.getLogger(bookPositionFrame.class.getName());
+
     final private ConnectionDB db_con;
-    private ResultSet result_set = null;
-    private String TITLE = null;    
+    final private DbExecutor db_exec;
+    private final BookPositionModel model = new BookPositionModel();
+    private final Consumer<ChangeEvent> changes = this::changed;
     
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton closeButton;
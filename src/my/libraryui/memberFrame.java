@@ -6,8 +6,8 @@
 package my.libraryui;
 
 import com.toedter.calendar.JTextFieldDateEditor;
-import java.sql.ResultSet;
-import java.sql.Statement;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 import javax.swing.JOptionPane;
 
 
@@ -23,26 +23,9 @@ public class memberFrame extends javax.swing.JFrame {
         insertButton.setEnabled(false);
         JTextFieldDateEditor editor = (JTextFieldDateEditor) birth_member.getDateEditor();
         editor.setEditable(false);
-        try{
-         if (result_set == null) {
-                fetchResultSet();
-            }
-            if (result_set != null) {
-                if (result_set.first()) {
-                    id_member.setText(result_set.getString("memberID"));
-                    first_member.setText(result_set.getString("MFirst"));
-                    last_member.setText(result_set.getString("MLast"));
-                    street_member.setText(result_set.getString("Street"));
-                    number_member.setText(result_set.getString("Snumber"));
-                    postal_member.setText(result_set.getString("postalCode")); 
-                    String bb  = result_set.getString("Mbirthdate");
-                    ((javax.swing.JTextField)birth_member.getDateEditor().getUiComponent()).setText(bb); 
-                    ID = Integer.parseInt(result_set.getString("memberID"));
-                }
-            }
-        }catch  (Exception ex ){
-            JOptionPane.showMessageDialog(null, ex);
-        }
+        db_exec = new DbExecutor(this, db_con);
+        db_exec.submit(() -> model.first(db_con.connection), this::showRecord, ex -> JOptionPane.showMessageDialog(null, ex));
+        ChangeBus.getInstance().subscribe(ChangeEvent.Entity.MEMBER, changes);
     }
 
     /**
@@ -311,83 +294,53 @@ public class memberFrame extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     private void closeButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_closeButtonActionPerformed
-        setVisible(false);  //Close memberFrame
+        dispose();  //Close memberFrame
     }//GEN-LAST:event_closeButtonActionPerformed
 
-    public void fetchResultSet() {
-        try {           
-            Statement stmt = db_con.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-            String query = "select * from Member";
-            result_set = stmt.executeQuery(query);
-            
-        } catch (Exception ex) {
-
-            try {
-                if (db_con.connection != null) {
-                    db_con.closeCon();
-                }
-            } catch (Exception x) {
-            }
+    // Writes made to the same table through another memberFrame
+    private void changed(ChangeEvent event) {
+        if (event.getSource() != model) {
+            db_exec.submit(() -> model.apply(db_con.connection, event), this::showRecord, ex -> LOG.warning("Could not refresh after " + event + ": " + ex));
+        }
+    }
+
+    private void showRecord(Member member) {
+        if (member == null) {
+            return;
         }
+        id_member.setText(Integer.toString(member.getMemberId()));
+        first_member.setText(member.getFirst());
+        last_member.setText(member.getLast());
+        street_member.setText(member.getStreet());
+        number_member.setText(member.getStreetNumber());
+        postal_member.setText(member.getPostalCode());
+        ((javax.swing.JTextField)birth_member.getDateEditor().getUiComponent()).setText(member.getBirthdate() == null ? "" : member.getBirthdate().toString());
     }
     
     private void nextButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_nextButtonActionPerformed
         updateButton.setEnabled(true);
         insertButton.setEnabled(false);
-        try {
-            if (result_set == null) {
-                fetchResultSet();
-            }
-            if (result_set != null) {
-                if (previousButton.isEnabled() == false)
-                    previousButton.setEnabled(true);
-                if (result_set.next()) {
-                    id_member.setText(result_set.getString("memberID"));
-                    first_member.setText(result_set.getString("MFirst"));
-                    last_member.setText(result_set.getString("MLast"));
-                    street_member.setText(result_set.getString("Street"));
-                    number_member.setText(result_set.getString("Snumber"));
-                    postal_member.setText(result_set.getString("postalCode"));
-                    String bb  = result_set.getString("Mbirthdate");
-                    ((javax.swing.JTextField)birth_member.getDateEditor().getUiComponent()).setText(bb);
-                    ID = Integer.parseInt(result_set.getString("memberID"));
-                } else {
-                    nextButton.setEnabled(false);
-                }
+        previousButton.setEnabled(true);
+        db_exec.submit(() -> model.next(db_con.connection), record -> {
+            if (record != null) {
+                showRecord(record);
+            } else {
+                nextButton.setEnabled(false);
             }
-        } catch (Exception ex) {
-            System.out.println(ex);
-        }
+        }, ex -> JOptionPane.showMessageDialog(null, ex));
     }//GEN-LAST:event_nextButtonActionPerformed
 
     private void previousButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_previousButtonActionPerformed
         updateButton.setEnabled(true);
         insertButton.setEnabled(false);
-        try {
-            if (result_set == null) {
-                fetchResultSet();
-            }
-            if (result_set != null) {
-                if (nextButton.isEnabled() == false)
-                    nextButton.setEnabled(true);
-                
-                if (result_set.previous()) {
-                    id_member.setText(result_set.getString("memberID"));
-                    first_member.setText(result_set.getString("MFirst"));
-                    last_member.setText(result_set.getString("MLast"));
-                    street_member.setText(result_set.getString("Street"));
-                    number_member.setText(result_set.getString("Snumber"));
-                    postal_member.setText(result_set.getString("postalCode"));
-                    String bb  = result_set.getString("Mbirthdate");
-                    ((javax.swing.JTextField)birth_member.getDateEditor().getUiComponent()).setText(bb);
-                    ID = Integer.parseInt(result_set.getString("memberID"));
-                } else {
-                    previousButton.setEnabled(false);
-                }
+        nextButton.setEnabled(true);
+        db_exec.submit(() -> model.previous(db_con.connection), record -> {
+            if (record != null) {
+                showRecord(record);
+            } else {
+                previousButton.setEnabled(false);
             }
-        } catch (Exception ex) {
-            System.out.println(ex);
-        }
+        }, ex -> JOptionPane.showMessageDialog(null, ex));
     }//GEN-LAST:event_previousButtonActionPerformed
 
     private void newButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_newButtonActionPerformed
@@ -410,29 +363,14 @@ public class memberFrame extends javax.swing.JFrame {
         String street = street_member.getText();
         String number = number_member.getText();
         String postal = postal_member.getText();
-        try{
-            String bb = ((javax.swing.JTextField)birth_member.getDateEditor().getUiComponent()).getText();
-            
-            Statement stmt = db_con.connection.createStatement();
-            String query = "insert into Member values ("+id+", \""+first+"\", \""+last+"\" , \""+street+"\" ,\""+number+"\", "+postal+",\""+bb+"\");";
-            stmt.executeUpdate(query);
+        String bb = ((javax.swing.JTextField)birth_member.getDateEditor().getUiComponent()).getText();
+        db_exec.submit(() -> {
+            model.insert(db_con.connection, id, first, last, street, number, postal, bb);
+            return null;
+        }, done -> {
             JOptionPane.showMessageDialog(null, "Inserted a new Member!" );
-            result_set = null;
             newButton.doClick();
-        } catch (Exception ex) {
-            if (ex.toString().contains("field") || ex.toString().contains("'Mbirthdate'")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Λάθος τύπος στοιχείων" );
-            }
-            else if (ex.toString().contains("Duplicate")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Υπάρχει ήδη μέλος με αυτό το member ID" );
-            }
-            else if (ex.toString().contains("\"\"")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Τα πεδία πρέπει να είναι συμπληρωμένα." );
-            }
-            else {
-                JOptionPane.showMessageDialog(null, ex );
-            }
-        }       
+        }, ex -> JOptionPane.showMessageDialog(null, model.errorMessage(RecordModel.Action.INSERT, ex)));
 
     }//GEN-LAST:event_insertButtonActionPerformed
 
@@ -443,50 +381,28 @@ public class memberFrame extends javax.swing.JFrame {
         String street = street_member.getText();
         String number = number_member.getText();
         String postal = postal_member.getText();
-        try {
-            String bb  = ((javax.swing.JTextField)birth_member.getDateEditor().getUiComponent()).getText();
-
-            Statement stmt = db_con.connection.createStatement();
-            String query = "update Member set memberID="+id+", MFirst=\""+first+"\" , MLast =\""+last+"\" , Street=\""+street+"\", Snumber=\""+number+"\", PostalCode= "+postal+" , Mbirthdate=\""+bb+"\" where memberID="+ID+";";
-            stmt.executeUpdate(query);  
+        String bb  = ((javax.swing.JTextField)birth_member.getDateEditor().getUiComponent()).getText();
+        db_exec.submit(() -> model.update(db_con.connection, id, first, last, street, number, postal, bb), record -> {
+            showRecord(record);
             JOptionPane.showMessageDialog(null, "Updated a new Member!" );
-        } catch (Exception ex) {
-            if (ex.toString().contains("field") || ex.toString().contains("'Mbirthdate'")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Λάθος τύπος στοιχείων" );
-            }
-            else if (ex.toString().contains("Duplicate")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Υπάρχει ήδη μέλος με αυτό το member ID" );
-            }
-            else {
-                JOptionPane.showMessageDialog(null, ex );
-            }
-        }       
-        result_set = null;
-        nextButton.doClick();
+        }, ex -> JOptionPane.showMessageDialog(null, model.errorMessage(RecordModel.Action.UPDATE, ex)));
     }//GEN-LAST:event_updateButtonActionPerformed
 
     private void deleteButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_deleteButtonActionPerformed
-        try {
-            Statement stmt = db_con.connection.createStatement();
-            String query = "DELETE FROM Member WHERE memberID = '"+id_member.getText()+"';";
-            stmt.executeUpdate(query);
-            
-            result_set = null;
-            nextButton.doClick();
+        String id = id_member.getText();
+        db_exec.submit(() -> model.delete(db_con.connection, id), record -> {
+            showRecord(record);
             JOptionPane.showMessageDialog(null, "Deleted a member!" );
-        }
-        catch (Exception ex) {
-            if (ex.toString().contains("delete")) {
-                JOptionPane.showMessageDialog(null, "Το μέλος έχει δανεισμένα βιβλία.\n Δεν μπορεί να διαγραφεί!" );
-            }
-            else if (ex.toString().contains("\"\"")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Τα πεδία πρέπει να είναι συμπληρωμένα." );
-            }
-            else
-                JOptionPane.showMessageDialog(null, ex );
-        } 
+        }, ex -> JOptionPane.showMessageDialog(null, model.errorMessage(RecordModel.Action.DELETE, ex)));
     }//GEN-LAST:event_deleteButtonActionPerformed
 
+    @Override
+    public void dispose() {
+        ChangeBus.getInstance().unsubscribe(changes);
+        db_exec.close(db_con::closeCon);  // Hand the connection back to the pool once queued work is done
+        super.dispose();
+    }
+
     /**
      * @param args the command line arguments
      */
@@ -522,9 +438,12 @@ public class memberFrame extends javax.swing.JFrame {
         });
     }
 
+    private static final Logger LOG = Logger.getLogger(memberFrame.class.getName());
+
     final private ConnectionDB db_con;
-    private int ID;
-    private ResultSet result_set = null;
+    final private DbExecutor db_exec;
+    private final MemberModel model = new MemberModel();
+    private final Consumer<ChangeEvent> changes = this::changed;
     
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private com.toedter.calendar.JDateChooser birth_member;
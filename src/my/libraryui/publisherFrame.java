@@ -5,8 +5,8 @@
  */
 package my.libraryui;
 
-import java.sql.ResultSet;
-import java.sql.Statement;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 import javax.swing.JOptionPane;
 
 
@@ -20,23 +20,9 @@ public class publisherFrame extends javax.swing.JFrame {
         initComponents();
         this.setLocationRelativeTo(null); // Align window on screen center  
         insertButton.setEnabled(false);
-        try{
-         if (result_set == null) {
-                fetchResultSet();
-            }
-            if (result_set != null) {
-                if (result_set.first()) {
-                    name_publisher.setText(result_set.getString("pubName"));
-                    year_publisher.setText(result_set.getString("estYear"));
-                    street_publisher.setText(result_set.getString("street"));
-                    number_publisher.setText(result_set.getString("snumber"));
-                    postal_code_publisher.setText(result_set.getString("postalCode"));
-                    NAME = name_publisher.getText();
-                }
-            }
-        }catch  (Exception ex ){
-            JOptionPane.showMessageDialog(null, ex);
-        }
+        db_exec = new DbExecutor(this, db_con);
+        db_exec.submit(() -> model.first(db_con.connection), this::showRecord, ex -> JOptionPane.showMessageDialog(null, ex));
+        ChangeBus.getInstance().subscribe(ChangeEvent.Entity.PUBLISHER, changes);
     }
 
     /**
@@ -269,61 +255,33 @@ public class publisherFrame extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     private void closeButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_closeButtonActionPerformed
-        setVisible(false);  //Close bookFrame
+        dispose();  //Close bookFrame
     }//GEN-LAST:event_closeButtonActionPerformed
 
     private void nextButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_nextButtonActionPerformed
         updateButton.setEnabled(true);
         insertButton.setEnabled(false);
-        try {
-            if (result_set == null) {
-                fetchResultSet();
-            }
-            if (result_set != null) {
-                if (previousButton.isEnabled() == false)
-                previousButton.setEnabled(true);
-                
-                if (result_set.next()) {
-                    name_publisher.setText(result_set.getString("pubName"));
-                    year_publisher.setText(result_set.getString("estYear"));
-                    street_publisher.setText(result_set.getString("street"));
-                    number_publisher.setText(result_set.getString("snumber"));
-                    postal_code_publisher.setText(result_set.getString("postalCode"));
-                    NAME = name_publisher.getText();
-                } else {
-                    nextButton.setEnabled(false);
-                }
+        previousButton.setEnabled(true);
+        db_exec.submit(() -> model.next(db_con.connection), record -> {
+            if (record != null) {
+                showRecord(record);
+            } else {
+                nextButton.setEnabled(false);
             }
-        } catch (Exception ex) {
-            System.out.println(ex);
-        }
+        }, ex -> JOptionPane.showMessageDialog(null, ex));
     }//GEN-LAST:event_nextButtonActionPerformed
 
     private void previousButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_previousButtonActionPerformed
         updateButton.setEnabled(true);
         insertButton.setEnabled(false);
-        try {
-            if (result_set == null) {
-                fetchResultSet();
-            }
-            if (result_set != null) {
-                if (nextButton.isEnabled() == false)
-                    nextButton.setEnabled(true);
-                
-                if (result_set.previous()) {
-                    name_publisher.setText(result_set.getString("pubName"));
-                    year_publisher.setText(result_set.getString("estYear"));
-                    street_publisher.setText(result_set.getString("street"));
-                    number_publisher.setText(result_set.getString("snumber"));
-                    postal_code_publisher.setText(result_set.getString("postalCode"));
-                    NAME = name_publisher.getText();
-                } else {
-                    previousButton.setEnabled(false);
-                }
+        nextButton.setEnabled(true);
+        db_exec.submit(() -> model.previous(db_con.connection), record -> {
+            if (record != null) {
+                showRecord(record);
+            } else {
+                previousButton.setEnabled(false);
             }
-        } catch (Exception ex) {
-            System.out.println(ex);
-        }
+        }, ex -> JOptionPane.showMessageDialog(null, ex));
     }//GEN-LAST:event_previousButtonActionPerformed
 
     private void newButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_newButtonActionPerformed
@@ -343,27 +301,13 @@ public class publisherFrame extends javax.swing.JFrame {
         String street = street_publisher.getText();
         String number = number_publisher.getText();
         String postal = postal_code_publisher.getText();
-        try {
-            Statement stmt = db_con.connection.createStatement();
-            String query = "insert into Publisher values ( \""+name+"\" , "+year+", \""+street+"\" , \""+number+"\" , "+postal+");";
-            stmt.executeUpdate(query);  
+        db_exec.submit(() -> {
+            model.insert(db_con.connection, name, year, street, number, postal);
+            return null;
+        }, done -> {
             JOptionPane.showMessageDialog(null, "Inserted a new Publisher!" );
-            result_set = null;
             newButton.doClick();
-        } catch (Exception ex) {
-            if (ex.toString().contains("field")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Λάθος τύπος στοιχείων" );
-            }
-            else if (ex.toString().contains("Duplicate")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Ο εκδοτικός οίκος αυτός ήδη υπάρχει" );
-            }
-            else if (ex.toString().contains("\"\"")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Τα πεδία πρέπει να είναι συμπληρωμένα." );
-            }
-            else {
-                JOptionPane.showMessageDialog(null, ex );
-            }
-        }       
+        }, ex -> JOptionPane.showMessageDialog(null, model.errorMessage(RecordModel.Action.INSERT, ex)));
     }//GEN-LAST:event_insertButtonActionPerformed
 
     private void updateButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_updateButtonActionPerformed
@@ -372,66 +316,47 @@ public class publisherFrame extends javax.swing.JFrame {
         String street= street_publisher.getText();
         String number = number_publisher.getText();
         String postal = postal_code_publisher.getText();
-        
-         try {
-            Statement stmt = db_con.connection.createStatement();
-            String query = "update Publisher set pubName = \""+Pname+"\", estYear = "+year+",street=\""+street+"\" , snumber=\""+number+"\" , postalCode="+postal+" where pubName=\""+NAME+"\";";
-            stmt.executeUpdate(query);   
+        db_exec.submit(() -> model.update(db_con.connection, Pname, year, street, number, postal), record -> {
+            showRecord(record);
             JOptionPane.showMessageDialog(null, "Updated  Publisher!" );
-        } catch (Exception ex) {
-            if (ex.toString().contains("field")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Λάθος τύπος στοιχείων" );
-            }
-            else if (ex.toString().contains("Duplicate")) {
-                JOptionPane.showMessageDialog(null, "Σφάλμα! Ο εκδοτικός οίκος αυτός ήδη υπάρχει" );
-            }
-            else {
-                JOptionPane.showMessageDialog(null, ex );
-            }
-        }
-          result_set = null;
-          nextButton.doClick();
+        }, ex -> JOptionPane.showMessageDialog(null, model.errorMessage(RecordModel.Action.UPDATE, ex)));
     }//GEN-LAST:event_updateButtonActionPerformed
 
     private void deleteButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_deleteButtonActionPerformed
         String name_to_del = name_publisher.getText();    
-        try {
-            Statement stmt = db_con.connection.createStatement();
-            String query = "DELETE FROM Publisher WHERE pubName = '"+name_to_del+"';";
-            stmt.executeUpdate(query);  
-            
-            result_set = null;
-            nextButton.doClick();
+        db_exec.submit(() -> model.delete(db_con.connection, name_to_del), record -> {
+            showRecord(record);
             JOptionPane.showMessageDialog(null, "Deleted a publisher!" );
-        }
-        catch (Exception ex) {
-            if (ex.toString().contains("delete")) {
-                JOptionPane.showMessageDialog(null, "Ο εκδοτικός οίκος δεν μπορεί να διαγραφεί!" );
-            }
-            else
-                JOptionPane.showMessageDialog(null, ex );
-        } 
+        }, ex -> JOptionPane.showMessageDialog(null, model.errorMessage(RecordModel.Action.DELETE, ex)));
     }//GEN-LAST:event_deleteButtonActionPerformed
 
     
-    public void fetchResultSet() {
-        try {           
-            Statement stmt = db_con.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-            String query = "select * from Publisher";
-            result_set = stmt.executeQuery(query);
-            
-        } catch (Exception ex) {
-
-            try {
-                if (db_con.connection != null) {
-                    db_con.closeCon();
-                }
-            } catch (Exception x) {
-            }
+    // Writes made to the same table through another publisherFrame
+    private void changed(ChangeEvent event) {
+        if (event.getSource() != model) {
+            db_exec.submit(() -> model.apply(db_con.connection, event), this::showRecord, ex -> LOG.warning("Could not refresh after " + event + ": " + ex));
+        }
+    }
+
+    private void showRecord(Publisher publisher) {
+        if (publisher == null) {
+            return;
         }
+        name_publisher.setText(publisher.getName());
+        year_publisher.setText(publisher.getEstYear() == null ? "" : publisher.getEstYear().toString());
+        street_publisher.setText(publisher.getStreet());
+        number_publisher.setText(publisher.getStreetNumber());
+        postal_code_publisher.setText(publisher.getPostalCode());
     }
     
     
+    @Override
+    public void dispose() {
+        ChangeBus.getInstance().unsubscribe(changes);
+        db_exec.close(db_con::closeCon);  // Hand the connection back to the pool once queued work is done
+        super.dispose();
+    }
+
     /**
      * @param args the command line arguments
      */
@@ -467,9 +392,12 @@ public class publisherFrame extends javax.swing.JFrame {
         });
     }
 
+    private static final Logger LOG = Logger.getLogger(publisherFrame.class.getName());
+
     final private ConnectionDB db_con;
-    private String NAME = null;
-    private ResultSet result_set = null;
+    final private DbExecutor db_exec;
+    private final PublisherModel model = new PublisherModel();
+    private final Consumer<ChangeEvent> changes = this::changed;
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton closeButton;
     private javax.swing.JButton deleteButton;